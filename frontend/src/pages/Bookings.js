@@ -28,7 +28,7 @@ const Bookings = () => {
       setLoading(true);
       setError('');
       
-      const response = await axios.get(`/api/bookings/user/${user.id}`);
+      const response = await axios.get(`/api/bookings/user/${user.id}?includeArchived=true`);
       setBookings(response.data);
     } catch (err) {
       setError('Failed to load bookings. Please try again later.');
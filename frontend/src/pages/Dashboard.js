@@ -28,24 +28,16 @@ const Dashboard = () => {
       setLoading(true);
       setError('');
       
-      // Fetch active bookings
-      const bookingsResponse = await axios.get(`/api/bookings/active/user/${user.id}`);
-      setActiveBookings(bookingsResponse.data);
-      
-      // Fetch all user bookings for stats
-      const allBookingsResponse = await axios.get(`/api/bookings/user/${user.id}`);
-      const allBookings = allBookingsResponse.data;
-      
-      // Calculate stats
-      const completed = allBookings.filter(booking => booking.status === 'COMPLETED').length;
-      const cancelled = allBookings.filter(booking => booking.status === 'CANCELLED').length;
-      const active = allBookings.filter(booking => booking.status === 'ACTIVE').length;
+      // One call returns the active bookings and the counts
+      const response = await axios.get(`/api/bookings/user/${user.id}/summary`);
+      const summary = response.data;
+      setActiveBookings(summary.activeBookings);
       
       setStats({
-        totalBookings: allBookings.length,
-        activeBookings: active,
-        completedBookings: completed,
-        cancelledBookings: cancelled
+        totalBookings: summary.totalBookings,
+        activeBookings: summary.countsByStatus.ACTIVE,
+        completedBookings: summary.countsByStatus.COMPLETED,
+        cancelledBookings: summary.countsByStatus.CANCELLED
       });
     } catch (err) {
       setError('Failed to load dashboard data. Please try again later.');
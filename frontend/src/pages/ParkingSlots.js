@@ -41,14 +41,26 @@ const ParkingSlots = () => {
     }
   };
 
-  const handleBookingOpen = (slot) => {
+  const handleBookingOpen = async (slot) => {
     setSelectedSlot(slot);
     setOpenBookingDialog(true);
     setBookingError('');
     setBookingSuccess(false);
+    
+    // Hold the slot while the user fills in the booking, so nobody takes it meanwhile
+    try {
+      await axios.post(`/api/parking-slots/${slot.id}/hold`, { userId: user.id });
+    } catch (err) {
+      setBookingError(err.response?.data || 'This slot is being booked by someone else.');
+      console.error(err);
+    }
   };
 
   const handleBookingClose = () => {
+    if (selectedSlot && !bookingSuccess) {
+      axios.delete(`/api/parking-slots/${selectedSlot.id}/hold`, { params: { userId: user.id } })
+        .catch(() => {});
+    }
     setOpenBookingDialog(false);
     setSelectedSlot(null);
     setBookingData({
@@ -11,6 +11,7 @@ const AdminDashboard = () => {
   const { user } = useAuth();
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState('');
+  const [warning, setWarning] = useState('');
   const [stats, setStats] = useState({
     totalUsers: 0,
     totalSlots: 0,
@@ -29,6 +30,7 @@ const AdminDashboard = () => {
     try {
       setLoading(true);
       setError('');
+      setWarning('');
       
       // Fetch all dashboard stats in a single API call
       const response = await axios.get('/api/admin/dashboard');
@@ -43,6 +45,11 @@ const AdminDashboard = () => {
         cancelledBookings: dashboardStats.cancelledBookings,
         bookingsWithPenalty: dashboardStats.bookingsWithPenalty
       });
+      
+      // Stats that failed or timed out are missing from the response
+      if (dashboardStats.partial) {
+        setWarning(`Some statistics could not be loaded: ${Object.keys(dashboardStats.failures).join(', ')}`);
+      }
     } catch (err) {
       setError('Failed to load dashboard data. Please try again later.');
       console.error(err);
@@ -58,6 +65,7 @@ const AdminDashboard = () => {
       </Typography>
       
       {error && <Alert severity="error" sx={{ mb: 2 }}>{error}</Alert>}
+      {warning && <Alert severity="warning" sx={{ mb: 2 }}>{warning}</Alert>}
       
       {loading ? (
         <Box sx={{ display: 'flex', justifyContent: 'center', mt: 4 }}>
@@ -0,0 +1,29 @@
+package com.parking.loadgen;
+
+/**
+ * The calls a driver makes, each with its own latency histograms
+ */
+public enum Endpoint {
+    SIGNIN("POST /api/auth/signin"),
+    AVAILABLE("GET /api/parking-slots/available"),
+    BOOK("POST /api/bookings"),
+    COMPLETE("PUT /api/bookings/complete/{id}"),
+    CANCEL("PUT /api/bookings/cancel/{id}");
+
+    private final String label;
+
+    Endpoint(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * File name stem for this endpoint's output
+     */
+    public String fileName() {
+        return name().toLowerCase();
+    }
+}
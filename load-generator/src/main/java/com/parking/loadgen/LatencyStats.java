@@ -0,0 +1,163 @@
+package com.parking.loadgen;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Per-endpoint latency, in microseconds.
+ *
+ * Two histograms are kept for every endpoint. Response time runs from when the
+ * schedule said the request should go out. Service time runs from when it
+ * actually went out. A client that falls behind, or a server that stalls,
+ * delays the requests after it. Response time charges that delay to those
+ * requests. Service time does not, so it shows only what the server did with
+ * the requests it got. That hidden delay is coordinated omission, and the gap
+ * between the two histograms measures it.
+ *
+ * Every interval is also written to <out>/<endpoint>.hlog, tagged "response"
+ * or "service", for HdrHistogram's log tools.
+ */
+public class LatencyStats implements AutoCloseable {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<Endpoint, Series> series = new EnumMap<>(Endpoint.class);
+    private final Path outputDir;
+
+    public LatencyStats(Path outputDir, long startTimeMs) throws IOException {
+        this.outputDir = outputDir;
+        Files.createDirectories(outputDir);
+        for (Endpoint endpoint : Endpoint.values()) {
+            series.put(endpoint, new Series(outputDir.resolve(endpoint.fileName() + ".hlog"), startTimeMs));
+        }
+    }
+
+    /**
+     * Record one finished request. Times are System.nanoTime() values.
+     */
+    public void record(Endpoint endpoint, long intendedNanos, long sentNanos, long doneNanos, boolean ok) {
+        Series s = series.get(endpoint);
+        s.response.recordValue(Math.max(doneNanos - intendedNanos, 0) / 1000);
+        s.service.recordValue(Math.max(doneNanos - sentNanos, 0) / 1000);
+        s.requests.increment();
+        if (!ok) {
+            s.errors.increment();
+        }
+    }
+
+    /**
+     * Take everything recorded since the last call and write it to the logs.
+     * Adds it to the totals when measuring, so warmup stays out of them.
+     * Returns a one-line digest of the interval.
+     */
+    public synchronized String interval(boolean measuring) {
+        StringBuilder line = new StringBuilder();
+        for (Map.Entry<Endpoint, Series> entry : series.entrySet()) {
+            Series s = entry.getValue();
+            s.responseInterval = s.response.getIntervalHistogram(s.responseInterval);
+            s.serviceInterval = s.service.getIntervalHistogram(s.serviceInterval);
+            long requests = s.requests.sumThenReset();
+            long errors = s.errors.sumThenReset();
+
+            s.responseInterval.setTag("response");
+            s.serviceInterval.setTag("service");
+            s.log.outputIntervalHistogram(s.responseInterval);
+            s.log.outputIntervalHistogram(s.serviceInterval);
+            s.logStream.flush();
+
+            if (measuring) {
+                s.responseTotal.add(s.responseInterval);
+                s.serviceTotal.add(s.serviceInterval);
+                s.totalRequests += requests;
+                s.totalErrors += errors;
+            }
+            if (requests > 0) {
+                line.append(String.format("  %s n=%d err=%d p50=%.1f p99=%.1f",
+                        entry.getKey().fileName(), requests, errors,
+                        ms(s.responseInterval.getValueAtPercentile(50)), ms(s.responseInterval.getValueAtPercentile(99))));
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Print the measured totals, response time first and service time beside it
+     */
+    public synchronized void printSummary(PrintStream out, double measuredSeconds) {
+        out.printf("%-34s %8s %7s %8s %9s %9s %9s %9s %9s | %9s%n",
+                "endpoint (ms)", "count", "errors", "req/s", "p50", "p90", "p99", "p99.9", "max", "svc p99");
+        for (Map.Entry<Endpoint, Series> entry : series.entrySet()) {
+            Series s = entry.getValue();
+            Histogram h = s.responseTotal;
+            out.printf("%-34s %8d %7d %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f | %9.1f%n",
+                    entry.getKey().getLabel(), s.totalRequests, s.totalErrors, s.totalRequests / measuredSeconds,
+                    ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)), ms(h.getValueAtPercentile(99)),
+                    ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()), ms(s.serviceTotal.getValueAtPercentile(99)));
+        }
+    }
+
+    /**
+     * Write the full percentile distributions as <endpoint>-response.hgrm and
+     * <endpoint>-service.hgrm, in milliseconds, for the HdrHistogram plotter
+     */
+    public synchronized void writePercentiles() throws IOException {
+        for (Map.Entry<Endpoint, Series> entry : series.entrySet()) {
+            String stem = entry.getKey().fileName();
+            writeDistribution(entry.getValue().responseTotal, outputDir.resolve(stem + "-response.hgrm"));
+            writeDistribution(entry.getValue().serviceTotal, outputDir.resolve(stem + "-service.hgrm"));
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Series s : series.values()) {
+            s.logStream.close();
+        }
+    }
+
+    private static void writeDistribution(Histogram histogram, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 5, MICROS_PER_MILLI);
+        }
+    }
+
+    private static double ms(long micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+
+    private static final class Series {
+        private final Recorder response = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder service = new Recorder(SIGNIFICANT_DIGITS);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final PrintStream logStream;
+        private final HistogramLogWriter log;
+
+        // Only touched under the LatencyStats lock
+        private Histogram responseInterval;
+        private Histogram serviceInterval;
+        private final Histogram responseTotal = new Histogram(SIGNIFICANT_DIGITS);
+        private final Histogram serviceTotal = new Histogram(SIGNIFICANT_DIGITS);
+        private long totalRequests;
+        private long totalErrors;
+
+        private Series(Path logFile, long startTimeMs) throws IOException {
+            logStream = new PrintStream(Files.newOutputStream(logFile));
+            log = new HistogramLogWriter(logStream);
+            log.outputLogFormatVersion();
+            log.outputStartTime(startTimeMs);
+            log.setBaseTime(startTimeMs);
+            log.outputLegend();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.parking.loadgen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Run settings, given on the command line as --name=value. Durations are in
+ * seconds unless the name says otherwise.
+ */
+public class LoadConfig {
+
+    static final String USAGE = String.join("\n",
+            "Usage: java -jar parking-load-generator.jar [--name=value ...]",
+            "",
+            "Target and setup",
+            "  --base-url=http://localhost:8080  application to drive",
+            "  --setup=true                      create the slots and users below before starting",
+            "  --slots=200                       slots LG-0001.. created by setup",
+            "  --users=1000                      driver accounts lg-00001.. created by setup",
+            "  --password=loadgen123             password of the driver accounts",
+            "  --admin-username=admin            admin account used by setup",
+            "  --admin-password=admin123",
+            "",
+            "Traffic",
+            "  --rate=10                         mean driver arrivals per second (Poisson)",
+            "  --duration=300                    how long arrivals keep coming",
+            "  --warmup=30                       leading seconds left out of the results",
+            "  --zipf=1.0                        skew of visits across drivers, 0 for uniform",
+            "  --stay-mean=60                    mean stay, exponentially distributed",
+            "  --stay-max=600                    longest stay",
+            "  --browse-ratio=0.2                arrivals that only look at availability",
+            "  --cancel-ratio=0.1                bookings cancelled instead of completed",
+            "  --overstay-ratio=0.05             drivers leaving after their booked end time",
+            "  --signin-ratio=0.1                visits that sign in again with a known token",
+            "",
+            "Limits and output",
+            "  --max-in-flight=10000             arrivals beyond this many open visits are dropped",
+            "  --request-timeout-ms=10000",
+            "  --report=10                       seconds between progress lines",
+            "  --out=target/load-results         histogram logs and percentile files",
+            "  --seed=<time>                     seed for arrivals and driver choices");
+
+    String baseUrl = "http://localhost:8080";
+    boolean setup = true;
+    int slots = 200;
+    int users = 1000;
+    String password = "loadgen123";
+    String adminUsername = "admin";
+    String adminPassword = "admin123";
+
+    double rate = 10;
+    long durationSeconds = 300;
+    long warmupSeconds = 30;
+    double zipfExponent = 1.0;
+    double stayMeanSeconds = 60;
+    double stayMaxSeconds = 600;
+    double browseRatio = 0.2;
+    double cancelRatio = 0.1;
+    double overstayRatio = 0.05;
+    double signinRatio = 0.1;
+
+    int maxInFlight = 10000;
+    long requestTimeoutMs = 10000;
+    long reportSeconds = 10;
+    String outputDir = "target/load-results";
+    long seed = System.nanoTime();
+
+    static LoadConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                throw new IllegalArgumentException(USAGE);
+            }
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg + "\n\n" + USAGE);
+            }
+            values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+
+        LoadConfig config = new LoadConfig();
+        config.baseUrl = stripSlash(stringValue(values, "base-url", config.baseUrl));
+        config.setup = Boolean.parseBoolean(stringValue(values, "setup", String.valueOf(config.setup)));
+        config.slots = intValue(values, "slots", config.slots);
+        config.users = intValue(values, "users", config.users);
+        config.password = stringValue(values, "password", config.password);
+        config.adminUsername = stringValue(values, "admin-username", config.adminUsername);
+        config.adminPassword = stringValue(values, "admin-password", config.adminPassword);
+
+        config.rate = doubleValue(values, "rate", config.rate);
+        config.durationSeconds = longValue(values, "duration", config.durationSeconds);
+        config.warmupSeconds = longValue(values, "warmup", config.warmupSeconds);
+        config.zipfExponent = doubleValue(values, "zipf", config.zipfExponent);
+        config.stayMeanSeconds = doubleValue(values, "stay-mean", config.stayMeanSeconds);
+        config.stayMaxSeconds = doubleValue(values, "stay-max", config.stayMaxSeconds);
+        config.browseRatio = doubleValue(values, "browse-ratio", config.browseRatio);
+        config.cancelRatio = doubleValue(values, "cancel-ratio", config.cancelRatio);
+        config.overstayRatio = doubleValue(values, "overstay-ratio", config.overstayRatio);
+        config.signinRatio = doubleValue(values, "signin-ratio", config.signinRatio);
+
+        config.maxInFlight = intValue(values, "max-in-flight", config.maxInFlight);
+        config.requestTimeoutMs = longValue(values, "request-timeout-ms", config.requestTimeoutMs);
+        config.reportSeconds = longValue(values, "report", config.reportSeconds);
+        config.outputDir = stringValue(values, "out", config.outputDir);
+        config.seed = longValue(values, "seed", config.seed);
+
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown option --" + values.keySet().iterator().next() + "\n\n" + USAGE);
+        }
+        config.validate();
+        return config;
+    }
+
+    private void validate() {
+        if (rate <= 0 || durationSeconds <= 0 || users <= 0 || reportSeconds <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("rate, duration, users, report and max-in-flight must be positive");
+        }
+        if (warmupSeconds < 0 || warmupSeconds >= durationSeconds) {
+            throw new IllegalArgumentException("warmup must be shorter than duration");
+        }
+        if (stayMeanSeconds <= 0 || stayMaxSeconds < stayMeanSeconds) {
+            throw new IllegalArgumentException("stay-mean must be positive and no more than stay-max");
+        }
+        for (double ratio : new double[] { browseRatio, cancelRatio, overstayRatio, signinRatio }) {
+            if (ratio < 0 || ratio > 1) {
+                throw new IllegalArgumentException("Ratios must be between 0 and 1");
+            }
+        }
+        if (users > 99999) {
+            throw new IllegalArgumentException("At most 99999 users, usernames are limited to 20 characters");
+        }
+    }
+
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    // Each reader removes its option, so whatever is left over was not recognised
+    private static String stringValue(Map<String, String> values, String name, String fallback) {
+        String value = values.remove(name);
+        return value != null ? value : fallback;
+    }
+
+    private static int intValue(Map<String, String> values, String name, int fallback) {
+        String value = values.remove(name);
+        return value != null ? Integer.parseInt(value) : fallback;
+    }
+
+    private static long longValue(Map<String, String> values, String name, long fallback) {
+        String value = values.remove(name);
+        return value != null ? Long.parseLong(value) : fallback;
+    }
+
+    private static double doubleValue(Map<String, String> values, String name, double fallback) {
+        String value = values.remove(name);
+        return value != null ? Double.parseDouble(value) : fallback;
+    }
+}
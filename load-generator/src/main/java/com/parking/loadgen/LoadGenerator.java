@@ -0,0 +1,291 @@
+package com.parking.loadgen;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parking.loadgen.ParkingClient.Reply;
+import com.parking.loadgen.Population.Driver;
+
+/**
+ * Drives the application the way a garage does. Drivers arrive as a Poisson
+ * process at --rate per second. Each one looks at the available slots, books
+ * one, stays a while and then completes or cancels the booking.
+ *
+ * The load is open loop. Arrivals follow their schedule whether or not earlier
+ * visits have finished, each visit on its own virtual thread. A slow server
+ * then faces more concurrent visits, the same as in a real garage, instead of
+ * quietly getting fewer requests. Latency is measured from the scheduled time,
+ * see {@link LatencyStats}.
+ */
+public class LoadGenerator {
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final LoadConfig config;
+    private final LatencyStats stats;
+    private final ParkingClient client;
+    private final Population population;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder arrivals = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder signInFailures = new LongAdder();
+    private final LongAdder turnedAway = new LongAdder();
+    private final LongAdder browsed = new LongAdder();
+    private final LongAdder bookingsRefused = new LongAdder();
+    private final LongAdder bookings = new LongAdder();
+    private final LongAdder departures = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        Path outputDir = Path.of(config.outputDir);
+        try (LatencyStats stats = new LatencyStats(outputDir, System.currentTimeMillis())) {
+            new LoadGenerator(config, stats).run();
+            stats.writePercentiles();
+        }
+        System.out.println("Histogram logs and percentile files are in " + outputDir.toAbsolutePath());
+    }
+
+    LoadGenerator(LoadConfig config, LatencyStats stats) {
+        this.config = config;
+        this.stats = stats;
+        this.client = new ParkingClient(config, stats);
+        this.population = new Population(config.users, config.zipfExponent);
+    }
+
+    void run() throws IOException, InterruptedException {
+        if (config.setup) {
+            setup();
+        }
+        System.out.printf("Offering %.1f arrivals/s for %d s (first %d s warmup) to %s, seed %d%n",
+                config.rate, config.durationSeconds, config.warmupSeconds, config.baseUrl, config.seed);
+
+        long start = System.nanoTime();
+        long warmupEnd = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+        long end = start + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+
+        Thread reporter = new Thread(() -> report(start, warmupEnd), "load-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+        ExecutorService visits = Executors.newVirtualThreadPerTaskExecutor();
+
+        SplittableRandom schedule = new SplittableRandom(config.seed);
+        long next = start;
+        while (true) {
+            next += (long) (-Math.log(1.0 - schedule.nextDouble()) / config.rate * 1e9);
+            if (next >= end) {
+                break;
+            }
+            // Behind schedule means no sleep, the visit still counts from its scheduled time
+            sleepUntil(next);
+            arrivals.increment();
+            SplittableRandom random = schedule.split();
+            if (inFlight.incrementAndGet() > config.maxInFlight) {
+                inFlight.decrementAndGet();
+                dropped.increment();
+                continue;
+            }
+            long arrival = next;
+            visits.execute(() -> {
+                try {
+                    visit(arrival, random);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+
+        // Let the cars already parked leave, their departures are part of the load
+        System.out.printf("Arrivals done, waiting for %d visits to finish%n", inFlight.get());
+        visits.shutdown();
+        long drainSeconds = (long) config.stayMaxSeconds * 2 + 60;
+        if (!visits.awaitTermination(drainSeconds, TimeUnit.SECONDS)) {
+            System.out.printf("%d visits still open after %d s, abandoning them%n", inFlight.get(), drainSeconds);
+            visits.shutdownNow();
+        }
+        long finished = System.nanoTime();
+        reporter.interrupt();
+        reporter.join();
+        System.out.println(progress(finished - start) + stats.interval(true));
+
+        System.out.println();
+        System.out.printf("arrivals=%d dropped=%d sign-in-failures=%d turned-away=%d browsed=%d booked=%d"
+                + " refused=%d departed=%d%n", arrivals.sum(), dropped.sum(), signInFailures.sum(), turnedAway.sum(),
+                browsed.sum(), bookings.sum(), bookingsRefused.sum(), departures.sum());
+        stats.printSummary(System.out, (finished - warmupEnd) / 1e9);
+        if (dropped.sum() > 0) {
+            System.out.printf("WARNING: %d arrivals were dropped at --max-in-flight=%d, the offered load was not"
+                    + " fully applied%n", dropped.sum(), config.maxInFlight);
+        }
+    }
+
+    private void visit(long arrivalNanos, SplittableRandom random) {
+        Driver driver = population.pick(random);
+        long next = arrivalNanos;
+
+        // Kept locally, another visit by the same driver may sign in or out meanwhile
+        String token = driver.getToken();
+        String userId = driver.getUserId();
+        if (token == null || random.nextDouble() < config.signinRatio) {
+            Reply reply = client.signIn(driver.getUsername(), config.password, next);
+            if (!reply.ok() || reply.body() == null) {
+                signInFailures.increment();
+                return;
+            }
+            token = reply.body().path("token").asText();
+            userId = reply.body().path("id").asText();
+            driver.signedIn(userId, token);
+            next = System.nanoTime();
+        }
+
+        Reply available = client.available(token, next);
+        if (available.status() == 401) {
+            driver.signedOut();
+            return;
+        }
+        List<String> slotIds = ParkingClient.slotIds(available);
+        if (slotIds.isEmpty()) {
+            turnedAway.increment();
+            return;
+        }
+        if (random.nextDouble() < config.browseRatio) {
+            browsed.increment();
+            return;
+        }
+
+        double plannedStay = Math.min(-Math.log(1.0 - random.nextDouble()) * config.stayMeanSeconds, config.stayMaxSeconds);
+        LocalDateTime now = LocalDateTime.now();
+        String slotId = slotIds.get(random.nextInt(slotIds.size()));
+        Reply booking = client.book(token, userId, slotId, now.format(formatter),
+                now.plusSeconds((long) Math.ceil(plannedStay)).format(formatter), System.nanoTime());
+        if (!booking.ok() || booking.body() == null) {
+            // Usually another driver got the slot first
+            bookingsRefused.increment();
+            return;
+        }
+        bookings.increment();
+        String bookingId = booking.body().path("id").asText();
+
+        boolean cancel = random.nextDouble() < config.cancelRatio;
+        double stay;
+        if (cancel) {
+            stay = plannedStay * random.nextDouble() * 0.5;
+        } else if (random.nextDouble() < config.overstayRatio) {
+            // Past the booked end time, so completion charges a penalty
+            stay = plannedStay + 1 + plannedStay * random.nextDouble() * 0.5;
+        } else {
+            stay = plannedStay * (0.5 + random.nextDouble() * 0.5);
+        }
+        long departure = System.nanoTime() + (long) (stay * 1e9);
+        if (!sleepUntil(departure)) {
+            return;
+        }
+        if (cancel) {
+            client.cancel(token, bookingId, departure);
+        } else {
+            client.complete(token, bookingId, departure);
+        }
+        departures.increment();
+    }
+
+    /**
+     * Progress lines every --report seconds, with one extra cut at the end of
+     * warmup so no interval straddles it
+     */
+    private void report(long start, long warmupEnd) {
+        long reportNanos = TimeUnit.SECONDS.toNanos(config.reportSeconds);
+        long tick = start;
+        boolean measuring = warmupEnd == start;
+        while (true) {
+            long regular = tick + reportNanos;
+            boolean warmupCut = !measuring && warmupEnd <= regular;
+            tick = warmupCut ? warmupEnd : regular;
+            if (!sleepUntil(tick)) {
+                return;
+            }
+            String line = progress(tick - start) + stats.interval(measuring);
+            System.out.println(warmupCut ? line + "  (end of warmup)" : line);
+            measuring = measuring || warmupCut;
+        }
+    }
+
+    private String progress(long elapsedNanos) {
+        return String.format("[%5ds] arrivals=%d in-flight=%d dropped=%d turned-away=%d refused=%d",
+                TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), arrivals.sum(), inFlight.get(), dropped.sum(),
+                turnedAway.sum(), bookingsRefused.sum());
+    }
+
+    /**
+     * Create the slots and driver accounts, leaving any that already exist
+     */
+    private void setup() throws IOException, InterruptedException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpResponse<String> signIn = client.sendSetup("POST", "/api/auth/signin", null, "application/json",
+                client.toJson(Map.of("username", config.adminUsername, "password", config.adminPassword)));
+        if (signIn.statusCode() != 200) {
+            throw new IllegalStateException("Admin sign-in failed with " + signIn.statusCode() + ": " + signIn.body());
+        }
+        String token = objectMapper.readTree(signIn.body()).path("token").asText();
+
+        if (config.slots > 0) {
+            HttpResponse<String> slots = client.sendSetup("POST", "/api/parking-slots/bulk", token, "application/json",
+                    client.toJson(Map.of("prefix", "LG-", "rangeStart", 1, "rangeEnd", config.slots, "padding", 4,
+                            "lot", "LOADGEN")));
+            JsonNode result = objectMapper.readTree(slots.body());
+            System.out.printf("Setup: %d slots created, %d already there%n",
+                    result.path("created").asInt(), result.path("duplicates").asInt());
+        }
+
+        StringBuilder users = new StringBuilder();
+        for (Driver driver : population.getDrivers()) {
+            users.append(client.toJson(Map.of("username", driver.getUsername(), "email", driver.getEmail(),
+                    "password", config.password))).append('\n');
+        }
+        HttpResponse<String> imported = client.sendSetup("POST", "/api/admin/users/import", token,
+                "application/x-ndjson", users.toString());
+        String[] lines = imported.body().split("\n");
+        JsonNode progress = objectMapper.readTree(lines[lines.length - 1]).path("progress");
+        if (imported.statusCode() != 200 || !progress.path("done").asBoolean()) {
+            throw new IllegalStateException("User import failed with " + imported.statusCode() + ": "
+                    + lines[lines.length - 1]);
+        }
+        System.out.printf("Setup: %d drivers created, %d already there%n",
+                progress.path("created").asInt(), progress.path("duplicates").asInt());
+    }
+
+    /**
+     * Park until the given System.nanoTime(). False if interrupted.
+     */
+    private static boolean sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+}
@@ -0,0 +1,146 @@
+package com.parking.loadgen;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The application's REST API as a driver uses it. Every timed call takes the
+ * time it was scheduled for, so latency counts from then and not from whenever
+ * the call got round to being sent.
+ */
+public class ParkingClient {
+
+    /**
+     * What a timed call got back. Body is null when the request failed outright.
+     */
+    public record Reply(int status, JsonNode body) {
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    private final HttpClient http;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final LatencyStats stats;
+
+    public ParkingClient(LoadConfig config, LatencyStats stats) {
+        this.baseUrl = config.baseUrl;
+        this.requestTimeout = Duration.ofMillis(config.requestTimeoutMs);
+        this.stats = stats;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(requestTimeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public Reply signIn(String username, String password, long intendedNanos) {
+        return send(Endpoint.SIGNIN, intendedNanos, post("/api/auth/signin", null,
+                Map.of("username", username, "password", password)));
+    }
+
+    public Reply available(String token, long intendedNanos) {
+        return send(Endpoint.AVAILABLE, intendedNanos, request("/api/parking-slots/available", token).GET());
+    }
+
+    public Reply book(String token, String userId, String slotId, String startTime, String endTime, long intendedNanos) {
+        return send(Endpoint.BOOK, intendedNanos, post("/api/bookings", token,
+                Map.of("userId", userId, "slotId", slotId, "startTime", startTime, "endTime", endTime)));
+    }
+
+    public Reply complete(String token, String bookingId, long intendedNanos) {
+        return send(Endpoint.COMPLETE, intendedNanos,
+                request("/api/bookings/complete/" + bookingId, token).PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    public Reply cancel(String token, String bookingId, long intendedNanos) {
+        return send(Endpoint.CANCEL, intendedNanos,
+                request("/api/bookings/cancel/" + bookingId, token).PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    /**
+     * Ids of the slots in an available-slots reply
+     */
+    public static List<String> slotIds(Reply reply) {
+        List<String> ids = new ArrayList<>();
+        if (reply.body() != null && reply.body().isArray()) {
+            for (JsonNode slot : reply.body()) {
+                ids.add(slot.path("id").asText());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Untimed call for setup, with a raw body and content type
+     */
+    public HttpResponse<String> sendSetup(String method, String path, String token, String contentType, String body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = request(path, token)
+                .timeout(Duration.ofMinutes(10))
+                .header("Content-Type", contentType)
+                .method(method, HttpRequest.BodyPublishers.ofString(body));
+        return http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    public String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private Reply send(Endpoint endpoint, long intendedNanos, HttpRequest.Builder builder) {
+        long sent = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = http.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+            Reply reply = new Reply(response.statusCode(), null);
+            stats.record(endpoint, intendedNanos, sent, System.nanoTime(), reply.ok());
+            // Parsed after recording so client-side JSON work stays out of the latency
+            return new Reply(reply.status(), parse(response.body()));
+        } catch (IOException e) {
+            stats.record(endpoint, intendedNanos, sent, System.nanoTime(), false);
+            return new Reply(0, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Reply(0, null);
+        }
+    }
+
+    private JsonNode parse(byte[] body) {
+        try {
+            return body.length > 0 ? objectMapper.readTree(body) : null;
+        } catch (IOException e) {
+            // Error replies are often plain text
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder post(String path, String token, Object body) {
+        return request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(body)));
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(requestTimeout);
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,80 @@
+package com.parking.loadgen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The drivers. A few regulars park far more often than everyone else: driver k
+ * is picked with weight 1 / k^s (Zipf), so with s = 1 the busiest tenth of
+ * 1000 drivers makes about two thirds of the visits. s = 0 picks uniformly.
+ */
+public class Population {
+
+    /**
+     * One account. A driver who is signed in reuses the token, like the app
+     * does, so sign-ins are far rarer than visits.
+     */
+    public static final class Driver {
+        private final String username;
+        private final String email;
+        private volatile String userId;
+        private volatile String token;
+
+        private Driver(int number) {
+            this.username = String.format("lg-%05d", number);
+            this.email = username + "@loadgen.local";
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public void signedIn(String userId, String token) {
+            this.userId = userId;
+            this.token = token;
+        }
+
+        public void signedOut() {
+            this.token = null;
+        }
+    }
+
+    private final Driver[] drivers;
+    private final double[] cumulative;
+
+    public Population(int size, double zipfExponent) {
+        drivers = new Driver[size];
+        cumulative = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            drivers[i] = new Driver(i + 1);
+            total += 1.0 / Math.pow(i + 1, zipfExponent);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    public Driver pick(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        // Not found gives -(insertion point) - 1, the first weight above the draw
+        return drivers[index >= 0 ? index : Math.min(-index - 1, drivers.length - 1)];
+    }
+
+    public Driver[] getDrivers() {
+        return drivers;
+    }
+}
@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+#
+# Starts the application against a local MongoDB, in a database of its own,
+# and drives it with the open-loop load generator.
+#
+# Usage: scripts/load-test.sh [load generator options...]
+#   e.g. scripts/load-test.sh --rate=50 --duration=600 --users=5000
+#
+# Environment:
+#   PORT            port to start the application on (default 8080)
+#   MONGO_HOST      local MongoDB host (default localhost)
+#   MONGO_PORT      local MongoDB port (default 27017)
+#   LOAD_DATABASE   database the run uses, dropped afterwards unless KEEP_DATA=true (default parking_load_test)
+#   APP_ARGS        extra arguments for the application, such as --app.write-behind.enabled=true
+#
+# Build first with "mvn package" and "mvn -f load-generator/pom.xml package".
+# Results land in target/load-results.
+
+set -euo pipefail
+
+PORT=${PORT:-8080}
+MONGO_HOST=${MONGO_HOST:-localhost}
+MONGO_PORT=${MONGO_PORT:-27017}
+LOAD_DATABASE=${LOAD_DATABASE:-parking_load_test}
+URL="http://localhost:${PORT}/api/parking-slots/available"
+
+JAR=$(ls target/parking-management-system-*.jar | grep -v -e fast-start -e '\.original$' | head -n 1)
+GENERATOR=load-generator/target/parking-load-generator.jar
+if [ ! -f "$GENERATOR" ]; then
+    echo "Missing $GENERATOR, build it with: mvn -f load-generator/pom.xml package" >&2
+    exit 2
+fi
+
+if ! (exec 3<> "/dev/tcp/${MONGO_HOST}/${MONGO_PORT}") 2> /dev/null; then
+    echo "No MongoDB listening on ${MONGO_HOST}:${MONGO_PORT}" >&2
+    exit 1
+fi
+
+java -jar "$JAR" --server.port="$PORT" \
+    --spring.data.mongodb.host="$MONGO_HOST" --spring.data.mongodb.port="$MONGO_PORT" \
+    --spring.data.mongodb.database="$LOAD_DATABASE" ${APP_ARGS:-} > target/load-test-app.log 2>&1 &
+pid=$!
+trap 'kill "$pid" 2> /dev/null || true; wait "$pid" 2> /dev/null || true' EXIT
+
+until curl -sf -o /dev/null "$URL"; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+        echo "Application exited before serving $URL, see target/load-test-app.log" >&2
+        exit 1
+    fi
+    sleep 0.2
+done
+# The default admin account is created just after readiness
+sleep 2
+
+java -jar "$GENERATOR" --base-url="http://localhost:${PORT}" --out=target/load-results "$@"
+
+if [ "${KEEP_DATA:-false}" != "true" ] && command -v mongosh > /dev/null; then
+    mongosh --quiet "mongodb://${MONGO_HOST}:${MONGO_PORT}/${LOAD_DATABASE}" --eval 'db.dropDatabase()' > /dev/null
+fi
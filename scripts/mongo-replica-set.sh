@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+#
+# Starts a throwaway single-node MongoDB replica set, enough for change
+# streams and so for the invalidation bus. Needs mongod and mongosh on the PATH.
+#
+# Usage: scripts/mongo-replica-set.sh [start|stop]
+#
+# Environment:
+#   MONGO_PORT   port to listen on (default 27017)
+#   MONGO_DIR    data and log directory (default data/mongo-rs)
+#
+# Then start each instance with --app.invalidation.enabled=true. Use a different
+# --app.invalidation.instance-id per instance when they share a host and port.
+
+set -euo pipefail
+
+MONGO_PORT=${MONGO_PORT:-27017}
+MONGO_DIR=${MONGO_DIR:-data/mongo-rs}
+
+case "${1:-start}" in
+start)
+    mkdir -p "$MONGO_DIR/db"
+    mongod --replSet rs0 --port "$MONGO_PORT" --bind_ip localhost --dbpath "$MONGO_DIR/db" \
+        --logpath "$MONGO_DIR/mongod.log" --pidfilepath "$MONGO_DIR/mongod.pid" --fork
+    # Already initiated when the data directory is reused
+    mongosh --quiet --port "$MONGO_PORT" --eval "
+        try { rs.status(); } catch (e) {
+            rs.initiate({ _id: 'rs0', members: [{ _id: 0, host: 'localhost:$MONGO_PORT' }] });
+        }
+        while (!db.hello().isWritablePrimary) { sleep(100); }
+        print('Replica set rs0 ready on port $MONGO_PORT');"
+    ;;
+stop)
+    mongosh --quiet --port "$MONGO_PORT" --eval "db.getSiblingDB('admin').shutdownServer()" || true
+    ;;
+*)
+    echo "Usage: $0 [start|stop]" >&2
+    exit 2
+    ;;
+esac
@@ -0,0 +1,85 @@
+#!/usr/bin/env bash
+#
+# Measures time from JVM launch to the first successful
+# GET /api/parking-slots/available and flags regressions against a baseline.
+#
+# Usage: scripts/startup-benchmark.sh [standard|fast-start] [runs]
+#
+# Environment:
+#   PORT                  port to start the application on (default 8080)
+#   BASELINE_FILE         where the baseline median is read/written (default target/startup-baseline-<mode>.txt)
+#   REGRESSION_PERCENT    allowed slowdown over the baseline before failing (default 10)
+#   SAVE_BASELINE=true    store this run's median as the new baseline
+#
+# Build first with "mvn package" (standard) or "mvn -Pfast-start verify" (fast-start).
+
+set -euo pipefail
+
+MODE=${1:-standard}
+RUNS=${2:-5}
+PORT=${PORT:-8080}
+REGRESSION_PERCENT=${REGRESSION_PERCENT:-10}
+BASELINE_FILE=${BASELINE_FILE:-target/startup-baseline-${MODE}.txt}
+URL="http://localhost:${PORT}/api/parking-slots/available"
+
+case "$MODE" in
+    standard)
+        WORKDIR=target
+        JAR=$(ls target/parking-management-system-*.jar | grep -v -e fast-start -e '\.original$' | head -n 1)
+        JAVA_ARGS=(-jar "$(basename "$JAR")")
+        ;;
+    fast-start)
+        WORKDIR=target/fast-start
+        JAR=$(ls target/fast-start/*-fast-start.jar | head -n 1)
+        JAVA_ARGS=(-XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar "$(basename "$JAR")")
+        ;;
+    *)
+        echo "Unknown mode: $MODE (expected standard or fast-start)" >&2
+        exit 2
+        ;;
+esac
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+timings=()
+for run in $(seq 1 "$RUNS"); do
+    start=$(now_ms)
+    (cd "$WORKDIR" && exec java "${JAVA_ARGS[@]}" --server.port="$PORT" > /dev/null 2>&1) &
+    pid=$!
+
+    until curl -sf -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "Application exited before serving $URL" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+
+    elapsed=$(( $(now_ms) - start ))
+    timings+=("$elapsed")
+    echo "run $run: ${elapsed} ms"
+
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+done
+
+median=$(printf '%s\n' "${timings[@]}" | sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }')
+echo "mode=$MODE runs=$RUNS median=${median} ms"
+
+if [ -f "$BASELINE_FILE" ]; then
+    baseline=$(cat "$BASELINE_FILE")
+    limit=$(( baseline * (100 + REGRESSION_PERCENT) / 100 ))
+    echo "baseline=${baseline} ms limit=${limit} ms"
+    if [ "$median" -gt "$limit" ]; then
+        echo "REGRESSION: median ${median} ms exceeds baseline ${baseline} ms by more than ${REGRESSION_PERCENT}%" >&2
+        exit 1
+    fi
+fi
+
+if [ "${SAVE_BASELINE:-false}" = "true" ]; then
+    mkdir -p "$(dirname "$BASELINE_FILE")"
+    echo "$median" > "$BASELINE_FILE"
+    echo "Saved baseline to $BASELINE_FILE"
+fi
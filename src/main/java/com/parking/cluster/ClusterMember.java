@@ -0,0 +1,26 @@
+package com.parking.cluster;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A running application instance. Members renew their lease on every
+ * heartbeat; a TTL index on leaseExpiresAt removes instances that stopped.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "cluster_members")
+public class ClusterMember {
+    @Id
+    private String id;
+    private String url;
+    private Date leaseExpiresAt;
+    private String startedAt;
+}
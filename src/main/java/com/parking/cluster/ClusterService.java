@@ -0,0 +1,391 @@
+package com.parking.cluster;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Partitions slots among running instances, off unless app.cluster.enabled is set.
+ *
+ * Every instance keeps a lease in cluster_members and renews it each
+ * heartbeat. The live members form a consistent hash ring over slot ids.
+ * Booking requests for a slot owned by another instance are forwarded to it,
+ * and the owner runs them one at a time per slot, so it is the single writer
+ * for its partition. A forwarded request is always handled where it lands,
+ * so instances with briefly different views of the ring cannot bounce a
+ * request back and forth. Forwards are signed with app.cluster.secret over
+ * the method, path, query and a SHA-256 of the body, and only a recent
+ * forward signed by a live member counts as one; anything else is routed like
+ * a client request.
+ */
+@Service
+@Slf4j
+public class ClusterService {
+
+    public static final String FORWARDED_HEADER = "X-Cluster-Forwarded-By";
+    public static final String SIGNATURE_HEADER = "X-Cluster-Signature";
+
+    private static final String HMAC = "HmacSHA256";
+
+    private static final int LOCK_STRIPES = 256;
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.cluster.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cluster.instance-id:}")
+    private String instanceId;
+
+    @Value("${app.cluster.advertised-url:http://localhost:${server.port:8080}}")
+    private String advertisedUrl;
+
+    @Value("${app.cluster.lease-ms:10000}")
+    private long leaseMs;
+
+    @Value("${app.cluster.virtual-nodes:64}")
+    private int virtualNodes;
+
+    @Value("${app.cluster.forward-timeout-ms:5000}")
+    private long forwardTimeoutMs;
+
+    // Shared by all instances, signs forwarded requests
+    @Value("${app.cluster.secret:}")
+    private String secret;
+
+    @Value("${app.cluster.forward-max-age-ms:30000}")
+    private long forwardMaxAgeMs;
+
+    private final ReentrantLock[] slotLocks = new ReentrantLock[LOCK_STRIPES];
+
+    private HttpClient httpClient;
+    private volatile HashRing ring;
+    private volatile Map<String, String> memberUrls = new HashMap<>();
+
+    private final Object joinLock = new Object();
+    private volatile boolean joined;
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            slotLocks[i] = new ReentrantLock();
+        }
+        if (!enabled) {
+            return;
+        }
+
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalStateException("app.cluster.secret must be set when app.cluster.enabled is");
+        }
+        if (instanceId == null || instanceId.isEmpty()) {
+            instanceId = UUID.randomUUID().toString();
+        }
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(forwardTimeoutMs))
+                .build();
+    }
+
+    /**
+     * Takes a lease once the application is ready. A request routed before
+     * then waits for the join, see {@link #ownerOf(String)}.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void join() {
+        if (enabled) {
+            awaitJoined();
+        }
+    }
+
+    /**
+     * Join at most once; concurrent callers wait for the one doing it
+     */
+    private void awaitJoined() {
+        if (joined) {
+            return;
+        }
+        synchronized (joinLock) {
+            if (joined) {
+                return;
+            }
+            // Mongo drops expired leases itself, so crashed instances disappear without cleanup
+            mongoTemplate.indexOps(ClusterMember.class)
+                    .ensureIndex(new Index().on("leaseExpiresAt", Sort.Direction.ASC).expire(0, TimeUnit.SECONDS));
+
+            Update update = new Update().set("startedAt", LocalDateTime.now().format(formatter));
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(instanceId)), update, ClusterMember.class);
+            renewLease();
+            joined = true;
+            log.info("Joined cluster as {} at {}", instanceId, advertisedUrl);
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (enabled) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(instanceId)), ClusterMember.class);
+        }
+    }
+
+    /**
+     * Renew our lease and pick up members that joined or whose lease ran out
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.heartbeat-ms:2000}")
+    public void heartbeat() {
+        if (enabled && joined) {
+            renewLease();
+        }
+    }
+
+    private void renewLease() {
+        Date now = new Date();
+        Update update = new Update()
+                .set("url", advertisedUrl)
+                .set("leaseExpiresAt", new Date(now.getTime() + leaseMs));
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(instanceId)), update, ClusterMember.class);
+
+        // The TTL monitor only runs once a minute, so filter on the lease as well
+        List<ClusterMember> members = mongoTemplate.find(
+                Query.query(Criteria.where("leaseExpiresAt").gt(now)), ClusterMember.class);
+
+        Map<String, String> urls = new HashMap<>();
+        for (ClusterMember member : members) {
+            urls.put(member.getId(), member.getUrl());
+        }
+        urls.put(instanceId, advertisedUrl);
+
+        if (!urls.keySet().equals(memberUrls.keySet())) {
+            log.info("Cluster membership changed to {}", urls.keySet());
+            ring = new HashRing(new ArrayList<>(urls.keySet()), virtualNodes);
+        }
+        memberUrls = urls;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public Map<String, String> getMembers() {
+        return memberUrls;
+    }
+
+    /**
+     * Whether this instance owns the slot; always when clustering is off
+     */
+    public boolean owns(String slotId) {
+        return ownerOf(slotId).equals(instanceId);
+    }
+
+    /**
+     * Instance id owning the slot; this instance when clustering is off
+     */
+    public String ownerOf(String slotId) {
+        if (!enabled || slotId == null) {
+            return instanceId;
+        }
+        // Before the join, owning everything would break single-writer partitions
+        awaitJoined();
+        HashRing current = ring;
+        String owner = current.ownerOf(slotId);
+        return owner != null ? owner : instanceId;
+    }
+
+    /**
+     * Run a booking request for the slot here if we own it, one request per slot
+     * at a time, or forward it to the owner and relay its response
+     */
+    public ResponseEntity<?> route(String slotId, HttpServletRequest request, Object body,
+            Supplier<ResponseEntity<?>> local) {
+        if (!enabled || slotId == null) {
+            return local.get();
+        }
+
+        String owner = ownerOf(slotId);
+        if (owner.equals(instanceId) || isForwarded(request, body)) {
+            ReentrantLock lock = slotLocks[Math.floorMod(slotId.hashCode(), LOCK_STRIPES)];
+            lock.lock();
+            try {
+                return local.get();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return forward(memberUrls.get(owner), request, body);
+    }
+
+    /**
+     * Run work holding this instance's booking locks for all the slots, taken
+     * in stripe order so two callers cannot deadlock. Like route, only locks
+     * when clustering is on.
+     */
+    public <T> T withSlotLocks(Collection<String> slotIds, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+
+        int[] stripes = slotIds.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(slotId -> Math.floorMod(slotId.hashCode(), LOCK_STRIPES))
+                .distinct()
+                .sorted()
+                .toArray();
+        int locked = 0;
+        try {
+            for (int stripe : stripes) {
+                slotLocks[stripe].lock();
+                locked++;
+            }
+            return work.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                slotLocks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Whether the request was forwarded by a live member. Anyone can send the
+     * header, so the signature and its age are checked too. The body has been
+     * read by then, so it is hashed as forward() serialized it.
+     */
+    private boolean isForwarded(HttpServletRequest request, Object body) {
+        String forwardedBy = request.getHeader(FORWARDED_HEADER);
+        String signature = request.getHeader(SIGNATURE_HEADER);
+        if (forwardedBy == null || signature == null || !memberUrls.containsKey(forwardedBy)) {
+            return false;
+        }
+        int separator = signature.indexOf(':');
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(signature.substring(0, Math.max(separator, 0)));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (Math.abs(System.currentTimeMillis() - timestamp) > forwardMaxAgeMs) {
+            return false;
+        }
+        String expected;
+        try {
+            expected = sign(forwardedBy, timestamp, request.getMethod(), request.getRequestURI(),
+                    request.getQueryString(), payload(body));
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                signature.substring(separator + 1).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private byte[] payload(Object body) throws JsonProcessingException {
+        return body != null ? objectMapper.writeValueAsBytes(body) : new byte[0];
+    }
+
+    private String sign(String forwardedBy, long timestamp, String method, String path, String query, byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC));
+            String bodyHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload));
+            String signed = forwardedBy + "\n" + timestamp + "\n" + method + "\n" + path + "\n"
+                    + (query != null ? query : "") + "\n" + bodyHash;
+            return HexFormat.of().formatHex(mac.doFinal(signed.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign forwarded request", e);
+        }
+    }
+
+    private ResponseEntity<?> forward(String ownerUrl, HttpServletRequest request, Object body) {
+        if (ownerUrl == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error: Slot owner is unavailable, please retry");
+        }
+
+        try {
+            String query = request.getQueryString();
+            URI uri = URI.create(ownerUrl + request.getRequestURI() + (query != null ? "?" + query : ""));
+            byte[] payload = payload(body);
+            long timestamp = System.currentTimeMillis();
+
+            HttpRequest.Builder forwarded = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(forwardTimeoutMs))
+                    .header(FORWARDED_HEADER, instanceId)
+                    .header(SIGNATURE_HEADER, timestamp + ":"
+                            + sign(instanceId, timestamp, request.getMethod(), request.getRequestURI(), query, payload))
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(payload));
+            String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (authorization != null) {
+                forwarded.header(HttpHeaders.AUTHORIZATION, authorization);
+            }
+
+            HttpResponse<byte[]> response = httpClient.send(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray());
+            ResponseEntity.BodyBuilder relayed = ResponseEntity.status(response.statusCode());
+            response.headers().firstValue(HttpHeaders.CONTENT_TYPE)
+                    .ifPresent(contentType -> relayed.header(HttpHeaders.CONTENT_TYPE, contentType));
+            return relayed.body(response.body());
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error: Slot owner is unavailable, please retry");
+        } catch (Exception e) {
+            log.warn("Forwarding {} to {} failed: {}", request.getRequestURI(), ownerUrl, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error: Slot owner is unavailable, please retry");
+        }
+    }
+}
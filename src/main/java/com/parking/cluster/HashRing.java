@@ -0,0 +1,53 @@
+package com.parking.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent hash ring of member ids. Each member is placed at
+ * several virtual points so partitions stay balanced, and adding or removing
+ * one member only moves the keys next to its points.
+ */
+class HashRing {
+
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    HashRing(Collection<String> memberIds, int virtualNodes) {
+        for (String memberId : memberIds) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(memberId + "#" + i), memberId);
+            }
+        }
+    }
+
+    /**
+     * Member owning the key, or null for an empty ring
+     */
+    String ownerOf(String key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = points.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * FNV-1a followed by the MurmurHash3 finalizer, which spreads nearby keys
+     * such as consecutive slot ids across the ring
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
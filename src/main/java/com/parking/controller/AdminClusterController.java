@@ -0,0 +1,43 @@
+package com.parking.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.parking.cluster.ClusterService;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/cluster")
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class AdminClusterController {
+
+    @Autowired
+    private ClusterService clusterService;
+
+    /**
+     * Live members as seen by this instance, and the owner of a slot when slotId is given
+     */
+    @GetMapping
+    public ResponseEntity<?> getCluster(@RequestParam(value = "slotId", required = false) String slotId) {
+        if (!clusterService.isEnabled()) {
+            return ResponseEntity.badRequest().body("Error: Clustering is disabled");
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("instanceId", clusterService.getInstanceId());
+        response.put("members", clusterService.getMembers());
+        if (slotId != null) {
+            response.put("slotOwner", clusterService.ownerOf(slotId));
+        }
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,5 +1,11 @@
 package com.parking.controller;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -9,7 +15,6 @@ import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,16 +25,20 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.parking.model.Booking;
-import com.parking.model.Booking.BookingStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parking.dto.ListOptions;
 import com.parking.model.User;
-import com.parking.service.BookingService;
-import com.parking.service.ParkingSlotService;
+import com.parking.service.BookingArchiveService;
+import com.parking.service.DashboardService;
+import com.parking.service.KeysetPager;
+import com.parking.service.UserImportService;
 import com.parking.service.UserService;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = KeysetPager.NEXT_CURSOR_HEADER)
 @RestController
 @RequestMapping("/api/admin")
 @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -39,16 +48,22 @@ public class AdminController {
     private UserService userService;
     
     @Autowired
-    private BookingService bookingService;
+    private BookingArchiveService bookingArchiveService;
     
     @Autowired
-    private ParkingSlotService parkingSlotService;
+    private DashboardService dashboardService;
     
     @Autowired
-    private PasswordEncoder encoder;
+    private UserImportService userImportService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
     
     @GetMapping("/users")
-    public ResponseEntity<List<User>> getAllUsers() {
+    public ResponseEntity<?> getAllUsers(ListOptions listOptions) {
+        if (listOptions.isPaged()) {
+            return PageResponses.of(() -> userService.getUsers(listOptions));
+        }
         List<User> users = userService.getAllUsers();
         return ResponseEntity.ok(users);
     }
@@ -77,9 +92,7 @@ public class AdminController {
             user.setRoles(roles);
         }
         
-        // Encode password
-        user.setPassword(encoder.encode(user.getPassword()));
-        
+        // UserService encodes the password
         User savedUser = userService.createUser(user);
         return ResponseEntity.ok(savedUser);
     }
@@ -120,51 +133,67 @@ public class AdminController {
         roles.add("ROLE_ADMIN");
         user.setRoles(roles);
         
-        // Encode password
-        user.setPassword(encoder.encode(user.getPassword()));
-        
+        // UserService encodes the password
         User savedUser = userService.createUser(user);
         return ResponseEntity.ok(savedUser);
     }
     
+    /**
+     * Create users from a text/csv (header username,email,password[,roles]) or
+     * application/x-ndjson body, read and answered as a stream. The response is
+     * NDJSON: a rowError line for each row not created, a progress line after
+     * each batch and a last progress line with done set.
+     */
+    @PostMapping(value = "/users/import", consumes = { "text/csv", "application/x-ndjson" })
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserImportService.Format format = request.getContentType().toLowerCase().startsWith("text/csv")
+                ? UserImportService.Format.CSV
+                : UserImportService.Format.NDJSON;
+        
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        try {
+            userImportService.importUsers(reader, format,
+                    rowError -> writeLine(out, Map.of("rowError", rowError), false),
+                    progress -> writeLine(out, Map.of("progress", progress), true));
+        } catch (RuntimeException e) {
+            // Headers are already sent, so the failure goes in the stream
+            writeLine(out, Map.of("error", String.valueOf(e.getMessage())), true);
+        }
+    }
+    
+    private void writeLine(OutputStream out, Object line, boolean flush) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+            if (flush) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Run the booking archival now instead of waiting for the schedule
+     */
+    @PostMapping("/bookings/archive")
+    public ResponseEntity<?> archiveBookings() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("archived", bookingArchiveService.archiveClosedBookings());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error archiving bookings: " + e.getMessage());
+        }
+    }
+    
     @GetMapping("/dashboard")
     public ResponseEntity<?> getDashboardStats() {
         try {
-            Map<String, Object> stats = new HashMap<>();
-            
-            // Get user statistics
-            List<User> users = userService.getAllUsers();
-            stats.put("totalUsers", users.size());
-            
-            // Get parking slot statistics
-            stats.put("totalSlots", parkingSlotService.getAllParkingSlots().size());
-            
-            // Get booking statistics
-            List<Booking> allBookings = bookingService.getAllBookings();
-            stats.put("totalBookings", allBookings.size());
-            
-            // Calculate booking status counts
-            long activeBookings = allBookings.stream()
-                    .filter(b -> b.getStatus() == BookingStatus.ACTIVE)
-                    .count();
-            
-            long completedBookings = allBookings.stream()
-                    .filter(b -> b.getStatus() == BookingStatus.COMPLETED)
-                    .count();
-            
-            long cancelledBookings = allBookings.stream()
-                    .filter(b -> b.getStatus() == BookingStatus.CANCELLED)
-                    .count();
-            
-            // Get bookings with penalties
-            List<Booking> penaltyBookings = bookingService.getBookingsWithPenalty();
-            
-            stats.put("activeBookings", activeBookings);
-            stats.put("completedBookings", completedBookings);
-            stats.put("cancelledBookings", cancelledBookings);
-            stats.put("bookingsWithPenalty", penaltyBookings.size());
-            
-            return ResponseEntity.ok(stats);
+            return ResponseEntity.ok(dashboardService.getDashboardStats());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error fetching dashboard data: " + e.getMessage());
         }
@@ -0,0 +1,37 @@
+package com.parking.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.parking.tracing.RequestTracer;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/diagnostics")
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class AdminDiagnosticsController {
+
+    @Autowired
+    private RequestTracer requestTracer;
+
+    /**
+     * The slowest requests of the last few minutes with their time per span kind
+     */
+    @GetMapping("/slow")
+    public ResponseEntity<?> getSlowRequests(@RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "minutes", defaultValue = "5") int minutes) {
+        if (!requestTracer.isEnabled()) {
+            return ResponseEntity.badRequest().body("Error: Request tracing is disabled");
+        }
+        if (limit < 1 || minutes < 1) {
+            return ResponseEntity.badRequest().body("Error: limit and minutes must be positive");
+        }
+        return ResponseEntity.ok(requestTracer.getSlowest(limit, minutes));
+    }
+}
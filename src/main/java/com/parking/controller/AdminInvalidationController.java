@@ -0,0 +1,29 @@
+package com.parking.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.parking.invalidation.InvalidationBus;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/invalidation")
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class AdminInvalidationController {
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    /**
+     * Whether this instance's change stream is open, and how far it has got
+     */
+    @GetMapping
+    public ResponseEntity<?> getStatus() {
+        return ResponseEntity.ok(invalidationBus.getStatus());
+    }
+}
@@ -0,0 +1,62 @@
+package com.parking.controller;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.parking.journal.BookingJournal;
+import com.parking.journal.Occupant;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/journal")
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class AdminJournalController {
+
+    @Autowired
+    private BookingJournal bookingJournal;
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Slot occupancy now, or at the given point in time (yyyy-MM-dd HH:mm:ss) for audits
+     */
+    @GetMapping("/occupancy")
+    public ResponseEntity<?> getOccupancy(@RequestParam(value = "at", required = false) String at) {
+        if (!bookingJournal.isEnabled()) {
+            return ResponseEntity.badRequest().body("Error: Booking journal is disabled");
+        }
+
+        try {
+            Map<String, Occupant> occupancy;
+            if (at == null) {
+                occupancy = bookingJournal.getOccupancy();
+            } else {
+                long timestamp = LocalDateTime.parse(at, formatter).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                occupancy = bookingJournal.getOccupancyAt(timestamp);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("at", at != null ? at : LocalDateTime.now().format(formatter));
+            response.put("occupiedSlots", occupancy.size());
+            response.put("occupancy", occupancy);
+            return ResponseEntity.ok(response);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Error: Invalid time, expected yyyy-MM-dd HH:mm:ss");
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error reading booking journal: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.parking.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.parking.service.SingleFlightRegistry;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/metrics")
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class AdminMetricsController {
+
+    @Autowired
+    private SingleFlightRegistry singleFlightRegistry;
+
+    /**
+     * Requests, actual loads and the coalescing ratio of each single-flight group
+     */
+    @GetMapping("/single-flight")
+    public ResponseEntity<?> getSingleFlightStats() {
+        return ResponseEntity.ok(singleFlightRegistry.getStats());
+    }
+}
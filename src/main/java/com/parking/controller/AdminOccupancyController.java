@@ -0,0 +1,59 @@
+package com.parking.controller;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.parking.occupancy.OccupancyTimeSeries;
+import com.parking.occupancy.Resolution;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/occupancy")
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class AdminOccupancyController {
+
+    @Autowired
+    private OccupancyTimeSeries occupancyTimeSeries;
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Occupancy curve between from and to (yyyy-MM-dd HH:mm:ss UTC, default the
+     * last 24 hours) at MINUTE, HOUR or DAY resolution. With slotId, the utilization
+     * of that slot instead of the lot-wide occupied count.
+     */
+    @GetMapping
+    public ResponseEntity<?> getOccupancy(
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "resolution", defaultValue = "HOUR") Resolution resolution,
+            @RequestParam(value = "slotId", required = false) String slotId) {
+        try {
+            // Same zone as the day buckets and point labels
+            LocalDateTime toTime = to != null ? LocalDateTime.parse(to, formatter)
+                    : LocalDateTime.now(OccupancyTimeSeries.ZONE);
+            LocalDateTime fromTime = from != null ? LocalDateTime.parse(from, formatter) : toTime.minusDays(1);
+            long fromMillis = fromTime.toInstant(OccupancyTimeSeries.ZONE).toEpochMilli();
+            long toMillis = toTime.toInstant(OccupancyTimeSeries.ZONE).toEpochMilli();
+
+            if (slotId != null) {
+                return ResponseEntity.ok(occupancyTimeSeries.querySlot(slotId, fromMillis, toMillis, resolution));
+            }
+            return ResponseEntity.ok(occupancyTimeSeries.query(fromMillis, toMillis, resolution));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Error: Invalid time, expected yyyy-MM-dd HH:mm:ss");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
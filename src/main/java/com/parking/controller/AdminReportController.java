@@ -0,0 +1,51 @@
+package com.parking.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.parking.reporting.BookingReport;
+import com.parking.reporting.BookingReportEngine;
+import com.parking.reporting.BookingReportQuery;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/reports")
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class AdminReportController {
+
+    @Autowired
+    private BookingReportEngine bookingReportEngine;
+
+    /**
+     * Run an ad-hoc booking report, e.g. {"groupBy": "WEEKDAY", "statuses": ["COMPLETED"]}
+     * for the average stay by weekday
+     */
+    @PostMapping("/bookings")
+    public ResponseEntity<?> runBookingReport(@RequestBody BookingReportQuery query) {
+        try {
+            BookingReport report = bookingReportEngine.run(query);
+            return ResponseEntity.ok(report);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the report snapshot now instead of waiting for the next refresh
+     */
+    @PostMapping("/bookings/refresh")
+    public ResponseEntity<?> refreshSnapshot() {
+        try {
+            bookingReportEngine.refresh();
+            return ResponseEntity.ok("Booking report snapshot refreshed");
+        } catch (RuntimeException e) {
+            return ResponseEntity.internalServerError().body("Error refreshing booking report snapshot: " + e.getMessage());
+        }
+    }
+}
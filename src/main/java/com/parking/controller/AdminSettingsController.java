@@ -11,11 +11,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.parking.cluster.ClusterService;
+import com.parking.dto.BulkRateUpdateRequest;
+import com.parking.dto.BulkRateUpdateResult;
 import com.parking.model.GlobalSettings;
 import com.parking.model.ParkingSlot;
 import com.parking.service.GlobalSettingsService;
 import com.parking.service.ParkingSlotService;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/admin/settings")
@@ -28,6 +33,9 @@ public class AdminSettingsController {
     @Autowired
     private ParkingSlotService parkingSlotService;
     
+    @Autowired
+    private ClusterService clusterService;
+    
     @GetMapping("/global")
     public ResponseEntity<GlobalSettings> getGlobalSettings() {
         GlobalSettings settings = globalSettingsService.getGlobalSettings();
@@ -43,13 +51,32 @@ public class AdminSettingsController {
     @PutMapping("/parking-slot/{id}/rate")
     public ResponseEntity<?> updateParkingSlotRate(
             @PathVariable("id") String id,
-            @RequestBody ParkingSlot parkingSlotDetails) {
+            @RequestBody ParkingSlot parkingSlotDetails,
+            HttpServletRequest request) {
+        // Handled by the slot's owner, like its bookings
+        return clusterService.route(id, request, parkingSlotDetails, () -> {
+            try {
+                // Only update the hourly rate
+                ParkingSlot updatedSlot = parkingSlotService.updateParkingSlotRate(id, parkingSlotDetails.getHourlyRate());
+                return ResponseEntity.ok(updatedSlot);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Not routed: the filter spans every owner's slots. Booking writes only
+     * set the fields they change and leave the rate alone, so a booking on
+     * another instance cannot undo the new rate.
+     */
+    @PutMapping("/parking-slots/rate")
+    public ResponseEntity<?> updateParkingSlotRates(@RequestBody BulkRateUpdateRequest request) {
         try {
-            // Only update the hourly rate
-            ParkingSlot updatedSlot = parkingSlotService.updateParkingSlotRate(id, parkingSlotDetails.getHourlyRate());
-            return ResponseEntity.ok(updatedSlot);
+            BulkRateUpdateResult result = parkingSlotService.updateParkingSlotRates(request);
+            return ResponseEntity.ok(result);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
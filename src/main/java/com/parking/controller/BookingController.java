@@ -1,6 +1,7 @@
 package com.parking.controller;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -13,36 +14,102 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import com.parking.cluster.ClusterService;
+import com.parking.dto.ListOptions;
+import com.parking.dto.UserBookingSummary;
+import com.parking.dto.WaitlistRequest;
+import com.parking.dto.WaitlistStatus;
 import com.parking.model.Booking;
 import com.parking.service.BookingService;
+import com.parking.service.BookingSummaryService;
+import com.parking.service.DataVersionService;
+import com.parking.service.KeysetPager;
+import com.parking.service.WaitlistService;
 
-@CrossOrigin(origins = "*", maxAge = 3600)
+import jakarta.servlet.http.HttpServletRequest;
+
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = KeysetPager.NEXT_CURSOR_HEADER)
 @RestController
 @RequestMapping("/api/bookings")
 public class BookingController {
 
     @Autowired
     private BookingService bookingService;
+    
+    @Autowired
+    private BookingSummaryService bookingSummaryService;
+    
+    @Autowired
+    private DataVersionService dataVersionService;
+    
+    @Autowired
+    private WaitlistService waitlistService;
+    
+    @Autowired
+    private ClusterService clusterService;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Booking>> getAllBookings() {
-        List<Booking> bookings = bookingService.getAllBookings();
+    public ResponseEntity<?> getAllBookings(WebRequest webRequest, ListOptions listOptions,
+            @RequestParam(value = "includeArchived", defaultValue = "false") boolean includeArchived) {
+        if (webRequest.checkNotModified(dataVersionService.bookingsETag())) {
+            return null;
+        }
+        if (listOptions.isPaged()) {
+            return PageResponses.of(() -> bookingService.getAllBookings(includeArchived, listOptions));
+        }
+        List<Booking> bookings = bookingService.getAllBookings(includeArchived);
         return ResponseEntity.ok(bookings);
     }
     
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<List<Booking>> getBookingsByUserId(@PathVariable("userId") String userId) {
-        List<Booking> bookings = bookingService.getBookingsByUserId(userId);
+    public ResponseEntity<?> getBookingsByUserId(@PathVariable("userId") String userId, WebRequest webRequest,
+            ListOptions listOptions,
+            @RequestParam(value = "includeArchived", defaultValue = "false") boolean includeArchived) {
+        // The ETag is taken before the query so it can never be newer than the data
+        if (webRequest.checkNotModified(dataVersionService.userBookingsETag(userId))) {
+            return null;
+        }
+        if (listOptions.isPaged()) {
+            return PageResponses.of(() -> bookingService.getBookingsByUserId(userId, includeArchived, listOptions));
+        }
+        List<Booking> bookings = bookingService.getBookingsByUserId(userId, includeArchived);
         return ResponseEntity.ok(bookings);
     }
     
+    /**
+     * Active bookings, counts per status, totals and the latest bookings in one response
+     */
+    @GetMapping("/user/{userId}/summary")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> getBookingSummary(@PathVariable("userId") String userId, WebRequest webRequest) {
+        if (webRequest.checkNotModified(dataVersionService.userBookingsETag(userId))) {
+            return null;
+        }
+        try {
+            UserBookingSummary summary = bookingSummaryService.getSummary(userId);
+            return ResponseEntity.ok(summary);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
     @GetMapping("/active/user/{userId}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<List<Booking>> getActiveBookingsByUserId(@PathVariable("userId") String userId) {
+    public ResponseEntity<?> getActiveBookingsByUserId(@PathVariable("userId") String userId, WebRequest webRequest,
+            ListOptions listOptions) {
+        if (webRequest.checkNotModified(dataVersionService.userBookingsETag(userId))) {
+            return null;
+        }
+        if (listOptions.isPaged()) {
+            return PageResponses.of(() -> bookingService.getActiveBookingsByUserId(userId, listOptions));
+        }
         List<Booking> bookings = bookingService.getActiveBookingsByUserId(userId);
         return ResponseEntity.ok(bookings);
     }
@@ -57,35 +124,42 @@ public class BookingController {
     
     @PostMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<Booking> createBooking(@RequestBody Booking booking) {
-        Booking createdBooking = bookingService.createBooking(booking);
-        return ResponseEntity.ok(createdBooking);
+    public ResponseEntity<?> createBooking(@RequestBody Booking booking, HttpServletRequest request) {
+        // With clustering on, the instance owning the slot handles the booking
+        return clusterService.route(booking.getSlotId(), request, booking, () -> {
+            Booking createdBooking = bookingService.createBooking(booking);
+            return ResponseEntity.ok(createdBooking);
+        });
     }
     
     @PutMapping("/complete/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<?> completeBooking(@PathVariable("id") String id) {
-        try {
-            Booking completedBooking = bookingService.completeBooking(id);
-            return ResponseEntity.ok(completedBooking);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body("Failed to complete booking. Please try again.");
-        }
+    public ResponseEntity<?> completeBooking(@PathVariable("id") String id, HttpServletRequest request) {
+        return clusterService.route(slotOf(id), request, null, () -> {
+            try {
+                Booking completedBooking = bookingService.completeBooking(id);
+                return ResponseEntity.ok(completedBooking);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            } catch (Exception e) {
+                return ResponseEntity.internalServerError().body("Failed to complete booking. Please try again.");
+            }
+        });
     }
     
     @PutMapping("/cancel/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<?> cancelBooking(@PathVariable("id") String id) {
-        try {
-            Booking cancelledBooking = bookingService.cancelBooking(id);
-            return ResponseEntity.ok(cancelledBooking);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body("Failed to cancel booking. Please try again.");
-        }
+    public ResponseEntity<?> cancelBooking(@PathVariable("id") String id, HttpServletRequest request) {
+        return clusterService.route(slotOf(id), request, null, () -> {
+            try {
+                Booking cancelledBooking = bookingService.cancelBooking(id);
+                return ResponseEntity.ok(cancelledBooking);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            } catch (Exception e) {
+                return ResponseEntity.internalServerError().body("Failed to cancel booking. Please try again.");
+            }
+        });
     }
     
     @DeleteMapping("/{id}")
@@ -97,8 +171,66 @@ public class BookingController {
     
     @GetMapping("/penalties")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Booking>> getBookingsWithPenalty() {
-        List<Booking> bookings = bookingService.getBookingsWithPenalty();
+    public ResponseEntity<?> getBookingsWithPenalty(WebRequest webRequest, ListOptions listOptions,
+            @RequestParam(value = "includeArchived", defaultValue = "false") boolean includeArchived) {
+        if (webRequest.checkNotModified(dataVersionService.bookingsETag())) {
+            return null;
+        }
+        if (listOptions.isPaged()) {
+            return PageResponses.of(() -> bookingService.getBookingsWithPenalty(includeArchived, listOptions));
+        }
+        List<Booking> bookings = bookingService.getBookingsWithPenalty(includeArchived);
         return ResponseEntity.ok(bookings);
     }
+    
+    /**
+     * Join the waitlist when the lot is full. The next slot that is freed is
+     * booked for this user; poll GET /waitlist/{id} to learn when that happens.
+     */
+    @PostMapping("/waitlist")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> joinWaitlist(@RequestBody WaitlistRequest request) {
+        try {
+            WaitlistStatus status = waitlistService.enqueue(request);
+            return ResponseEntity.ok(status);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    /**
+     * Long poll: answers as soon as the entry is booked, cancelled or expired,
+     * or with the WAITING status after app.waitlist.poll-timeout-ms
+     */
+    @GetMapping("/waitlist/{id}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public DeferredResult<ResponseEntity<?>> getWaitlistStatus(@PathVariable("id") String id) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(waitlistService.getPollTimeoutMs());
+        Consumer<WaitlistStatus> listener = status -> result.setResult(ResponseEntity.ok(status));
+        
+        result.onTimeout(() -> result.setResult(waitlistService.getStatus(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build())));
+        result.onCompletion(() -> waitlistService.unwatch(id, listener));
+        
+        if (!waitlistService.watch(id, listener)) {
+            result.setResult(ResponseEntity.notFound().build());
+        }
+        return result;
+    }
+    
+    @DeleteMapping("/waitlist/{id}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> leaveWaitlist(@PathVariable("id") String id) {
+        try {
+            WaitlistStatus status = waitlistService.cancel(id);
+            return ResponseEntity.ok(status);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    private String slotOf(String bookingId) {
+        return bookingService.getBookingById(bookingId).map(Booking::getSlotId).orElse(null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.parking.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.parking.dto.GateEventBatch;
+import com.parking.dto.GateIngestResult;
+import com.parking.gate.GateEventService;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/gate")
+public class GateController {
+
+    @Autowired
+    private GateEventService gateEventService;
+
+    /**
+     * Queue a batch of gate events. 202 once queued; 429 with Retry-After when
+     * the queue is full, in which case the whole batch should be sent again;
+     * 503 while clustering is enabled.
+     */
+    @PostMapping("/events")
+    @PreAuthorize("hasRole('GATE') or hasRole('ADMIN')")
+    public ResponseEntity<?> postEvents(@RequestBody GateEventBatch batch) {
+        if (!gateEventService.isAccepting()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Error: Gate events are not accepted while clustering is enabled");
+        }
+        try {
+            GateIngestResult result = gateEventService.submit(batch.getEvents());
+            if (result.isQueueFull()) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(result);
+            }
+            return ResponseEntity.accepted().body(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(gateEventService.getStats());
+    }
+}
@@ -0,0 +1,31 @@
+package com.parking.controller;
+
+import java.util.function.Supplier;
+
+import org.springframework.http.ResponseEntity;
+
+import com.parking.dto.ListPage;
+import com.parking.service.KeysetPager;
+
+/**
+ * Paged list responses keep the plain JSON array body of the unpaged ones and
+ * carry the next cursor in a header, so existing clients are unaffected.
+ */
+final class PageResponses {
+
+    private PageResponses() {
+    }
+
+    static ResponseEntity<?> of(Supplier<ListPage> query) {
+        try {
+            ListPage page = query.get();
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(KeysetPager.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
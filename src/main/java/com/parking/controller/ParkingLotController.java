@@ -0,0 +1,92 @@
+package com.parking.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.parking.model.ParkingLot;
+import com.parking.model.ParkingSlot.SizeClass;
+import com.parking.service.ParkingLotService;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/parking-lots")
+public class ParkingLotController {
+
+    @Autowired
+    private ParkingLotService parkingLotService;
+
+    @GetMapping
+    public ResponseEntity<List<ParkingLot>> getAllParkingLots() {
+        return ResponseEntity.ok(parkingLotService.getAllParkingLots());
+    }
+    
+    /**
+     * Nearest lots with a free slot, e.g. ?lat=51.5&lng=-0.12&k=5&ev=true,
+     * answered from the in-memory lot index
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<?> getNearestParkingLots(
+            @RequestParam("lat") double latitude,
+            @RequestParam("lng") double longitude,
+            @RequestParam(value = "k", defaultValue = "5") int k,
+            @RequestParam(value = "ev", required = false) Boolean ev,
+            @RequestParam(value = "size", required = false) SizeClass size,
+            @RequestParam(value = "accessible", required = false) Boolean accessible) {
+        try {
+            return ResponseEntity.ok(parkingLotService.findNearestParkingLots(latitude, longitude, k, ev, size, accessible));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<ParkingLot> getParkingLotById(@PathVariable("id") String id) {
+        return parkingLotService.getParkingLotById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> createParkingLot(@RequestBody ParkingLot parkingLot) {
+        try {
+            return ResponseEntity.ok(parkingLotService.createParkingLot(parkingLot));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @PutMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateParkingLot(@PathVariable("id") String id, @RequestBody ParkingLot parkingLot) {
+        try {
+            return ResponseEntity.ok(parkingLotService.updateParkingLot(id, parkingLot));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> deleteParkingLot(@PathVariable("id") String id) {
+        try {
+            parkingLotService.deleteParkingLot(id);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.parking.controller;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,33 +14,110 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.parking.cluster.ClusterService;
+import com.parking.dto.BulkSlotRequest;
+import com.parking.dto.BulkSlotResult;
+import com.parking.dto.ListOptions;
+import com.parking.dto.SlotHoldRequest;
+import com.parking.dto.SlotSearchQuery;
 import com.parking.model.ParkingSlot;
+import com.parking.model.SlotHold;
+import com.parking.service.DataVersionService;
+import com.parking.service.KeysetPager;
 import com.parking.service.ParkingSlotService;
+import com.parking.service.SlotSearchIndex;
+import com.parking.service.SlotSnapshotCache;
 
-@CrossOrigin(origins = "*", maxAge = 3600)
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Slot listing, search, holds and admin changes.
+ *
+ * With clustering on, writes to an existing slot are routed to its owner like
+ * bookings, so they are serialized with them. Creating slots is not: nothing
+ * can book a slot before it exists, and the unique slotNumber index decides
+ * races between instances.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = KeysetPager.NEXT_CURSOR_HEADER)
 @RestController
 @RequestMapping("/api/parking-slots")
 public class ParkingSlotController {
 
     @Autowired
     private ParkingSlotService parkingSlotService;
+    
+    @Autowired
+    private DataVersionService dataVersionService;
+    
+    @Autowired
+    private SlotSnapshotCache slotSnapshotCache;
+    
+    @Autowired
+    private ClusterService clusterService;
+    
+    @Autowired
+    private SlotSearchIndex slotSearchIndex;
 
     @GetMapping
-    public ResponseEntity<List<ParkingSlot>> getAllParkingSlots() {
+    public ResponseEntity<?> getAllParkingSlots(WebRequest webRequest, ListOptions listOptions,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // The ETag is taken before the query so it can never be newer than the data
+        if (webRequest.checkNotModified(dataVersionService.slotsETag())) {
+            return null;
+        }
+        if (listOptions.isPaged()) {
+            return PageResponses.of(() -> parkingSlotService.getParkingSlots(listOptions));
+        }
+        SlotSnapshotCache.Payload snapshot = slotSnapshotCache.getAllSlots();
+        if (snapshot != null) {
+            slotSnapshotCache.write(snapshot, request, response);
+            return null;
+        }
         List<ParkingSlot> parkingSlots = parkingSlotService.getAllParkingSlots();
         return ResponseEntity.ok(parkingSlots);
     }
     
     @GetMapping("/available")
-    public ResponseEntity<List<ParkingSlot>> getAvailableParkingSlots() {
+    public ResponseEntity<?> getAvailableParkingSlots(WebRequest webRequest, ListOptions listOptions,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (webRequest.checkNotModified(dataVersionService.slotsETag())) {
+            return null;
+        }
+        if (listOptions.isPaged()) {
+            return PageResponses.of(() -> parkingSlotService.getAvailableParkingSlots(listOptions));
+        }
+        SlotSnapshotCache.Payload snapshot = slotSnapshotCache.getAvailableSlots();
+        if (snapshot != null) {
+            slotSnapshotCache.write(snapshot, request, response);
+            return null;
+        }
         List<ParkingSlot> parkingSlots = parkingSlotService.getAvailableParkingSlots();
         return ResponseEntity.ok(parkingSlots);
     }
     
+    /**
+     * Search by attribute, e.g. ?ev=true&size=COMPACT&floor=2&available=true,
+     * answered from the in-memory bitmap index
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchParkingSlots(SlotSearchQuery query) {
+        try {
+            return ResponseEntity.ok(slotSearchIndex.search(query));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<ParkingSlot> getParkingSlotById(@PathVariable("id") String id) {
+    public ResponseEntity<ParkingSlot> getParkingSlotById(@PathVariable("id") String id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(dataVersionService.slotsETag())) {
+            return null;
+        }
         return parkingSlotService.getParkingSlotById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -52,19 +130,67 @@ public class ParkingSlotController {
         return ResponseEntity.ok(createdSlot);
     }
     
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> createParkingSlotsBulk(@RequestBody BulkSlotRequest request) {
+        try {
+            BulkSlotResult result = parkingSlotService.createParkingSlotsBulk(request);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ParkingSlot> updateParkingSlot(
+    public ResponseEntity<?> updateParkingSlot(
             @PathVariable("id") String id,
-            @RequestBody ParkingSlot parkingSlot) {
-        ParkingSlot updatedSlot = parkingSlotService.updateParkingSlot(id, parkingSlot);
-        return ResponseEntity.ok(updatedSlot);
+            @RequestBody ParkingSlot parkingSlot,
+            HttpServletRequest request) {
+        return clusterService.route(id, request, parkingSlot, () -> {
+            ParkingSlot updatedSlot = parkingSlotService.updateParkingSlot(id, parkingSlot);
+            return ResponseEntity.ok(updatedSlot);
+        });
     }
     
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Void> deleteParkingSlot(@PathVariable("id") String id) {
-        parkingSlotService.deleteParkingSlot(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<?> deleteParkingSlot(@PathVariable("id") String id, HttpServletRequest request) {
+        return clusterService.route(id, request, null, () -> {
+            parkingSlotService.deleteParkingSlot(id);
+            return ResponseEntity.noContent().build();
+        });
+    }
+    
+    /**
+     * Hold the slot for the user while they confirm the booking
+     */
+    @PostMapping("/{id}/hold")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> holdParkingSlot(@PathVariable("id") String id, @RequestBody SlotHoldRequest holdRequest,
+            HttpServletRequest request) {
+        // Holds and bookings for a slot are handled by the same instance
+        return clusterService.route(id, request, holdRequest, () -> {
+            try {
+                SlotHold hold = parkingSlotService.holdParkingSlot(id, holdRequest.getUserId(), holdRequest.getSeconds());
+                return ResponseEntity.ok(hold);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        });
+    }
+    
+    @DeleteMapping("/{id}/hold")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> releaseParkingSlotHold(@PathVariable("id") String id,
+            @RequestParam("userId") String userId, HttpServletRequest request) {
+        return clusterService.route(id, request, null, () -> {
+            try {
+                parkingSlotService.releaseParkingSlotHold(id, userId);
+                return ResponseEntity.noContent().build();
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.parking.dto;
+
+import com.parking.model.ParkingSlot.SlotStatus;
+
+import lombok.Data;
+
+/**
+ * Filter and new hourly rate for repricing many slots at once. Slots must
+ * match all the filters that are given. At least one filter is required, or
+ * all set to reprice every slot.
+ */
+@Data
+public class BulkRateUpdateRequest {
+    private String fromSlotNumber;
+    private String toSlotNumber;
+    private SlotStatus status;
+    private String lot;
+    private double hourlyRate;
+    private boolean all;
+}
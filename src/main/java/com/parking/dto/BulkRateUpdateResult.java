@@ -0,0 +1,14 @@
+package com.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRateUpdateResult {
+    private long matchedSlots;
+    private long updatedSlots;
+    private long slotsVersion;
+}
@@ -0,0 +1,33 @@
+package com.parking.dto;
+
+import java.util.List;
+
+import com.parking.model.ParkingSlot;
+import com.parking.model.ParkingSlot.SizeClass;
+
+import lombok.Data;
+
+/**
+ * Bulk slot provisioning request. Either list the slots explicitly, or give a
+ * numbering range such as prefix "L2-", rangeStart 1, rangeEnd 500, padding 3
+ * for slots L2-001 to L2-500.
+ */
+@Data
+public class BulkSlotRequest {
+    private List<ParkingSlot> slots;
+    
+    private String prefix = "";
+    private Integer rangeStart;
+    private Integer rangeEnd;
+    private int padding = 0;
+    
+    // Lot and hourly rate for range-generated slots, a rate of 0 means the global default
+    private String lot;
+    private double hourlyRate = 0.0;
+    
+    // Attributes shared by range-generated slots
+    private Boolean evCharger;
+    private SizeClass size;
+    private Integer floor;
+    private Boolean accessible;
+}
@@ -0,0 +1,39 @@
+package com.parking.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-row outcome of a bulk slot provisioning request, in request order
+ */
+@Data
+@NoArgsConstructor
+public class BulkSlotResult {
+    private int requested;
+    private int created;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+    private List<Row> rows = new ArrayList<>();
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row {
+        private String slotNumber;
+        private RowStatus status;
+        private String id;
+        private String message;
+    }
+    
+    public enum RowStatus {
+        CREATED,
+        DUPLICATE,
+        INVALID,
+        FAILED
+    }
+}
@@ -0,0 +1,24 @@
+package com.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A car seen at a barrier gate or ANPR camera. timestamp is when it was seen,
+ * "yyyy-MM-dd HH:mm:ss", or the time of receipt when missing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GateEvent {
+    private String plate;
+    private String gate;
+    private String timestamp;
+    private Direction direction;
+
+    public enum Direction {
+        ENTRY,
+        EXIT
+    }
+}
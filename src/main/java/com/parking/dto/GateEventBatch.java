@@ -0,0 +1,14 @@
+package com.parking.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GateEventBatch {
+    private List<GateEvent> events;
+}
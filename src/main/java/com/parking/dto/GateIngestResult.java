@@ -0,0 +1,32 @@
+package com.parking.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one posted batch. Accepted events are queued, not yet applied;
+ * queued is the queue length after this batch. With queueFull set nothing was
+ * accepted and the whole batch should be sent again later.
+ */
+@Data
+@NoArgsConstructor
+public class GateIngestResult {
+    private int accepted;
+    private int invalid;
+    private int queued;
+    private boolean queueFull;
+    private List<Invalid> invalidEvents = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Invalid {
+        // Position of the event in the posted batch
+        private int index;
+        private String message;
+    }
+}
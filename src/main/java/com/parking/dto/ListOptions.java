@@ -0,0 +1,41 @@
+package com.parking.dto;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Paging and projection parameters shared by the list endpoints: at most
+ * limit items after the opaque cursor returned by the previous page, with only
+ * the comma separated fields when given.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListOptions {
+    private Integer limit;
+    private String cursor;
+    private String fields;
+
+    /**
+     * Whether the caller asked for anything beyond the old full list
+     */
+    public boolean isPaged() {
+        return limit != null || cursor != null || (fields != null && !fields.isBlank());
+    }
+
+    public Set<String> getFieldSet() {
+        if (fields == null || fields.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,18 @@
+package com.parking.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a list endpoint. nextCursor is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListPage {
+    private List<?> items;
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package com.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A lot with free slots near the caller. matchingFreeSlots counts only the
+ * free slots with the requested attributes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearestLot {
+    private String id;
+    private String name;
+    private String address;
+    private double latitude;
+    private double longitude;
+    private double distanceKm;
+    private int freeSlots;
+    private int matchingFreeSlots;
+}
@@ -0,0 +1,19 @@
+package com.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SingleFlightStats {
+    private String name;
+    private long ttlMs;
+    private long requests;
+    private long loads;
+    private long joinedInFlight;
+    private long servedFromTtl;
+    // Share of requests answered without a query of their own
+    private double coalescingRatio;
+}
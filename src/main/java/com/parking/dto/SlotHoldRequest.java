@@ -0,0 +1,13 @@
+package com.parking.dto;
+
+import lombok.Data;
+
+/**
+ * Hold a slot for the user for the given number of seconds, or the default
+ * hold time when seconds is not set.
+ */
+@Data
+public class SlotHoldRequest {
+    private String userId;
+    private Long seconds;
+}
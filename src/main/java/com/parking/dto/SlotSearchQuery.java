@@ -0,0 +1,24 @@
+package com.parking.dto;
+
+import com.parking.model.ParkingSlot.SizeClass;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Slot search filters, all optional and combined with AND. A false boolean
+ * matches slots without the attribute, including those where it is unknown.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotSearchQuery {
+    private Boolean ev;
+    private SizeClass size;
+    private Integer floor;
+    private Boolean accessible;
+    private String lot;
+    private Boolean available;
+    private Integer limit;
+}
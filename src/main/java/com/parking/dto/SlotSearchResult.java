@@ -0,0 +1,38 @@
+package com.parking.dto;
+
+import java.util.List;
+
+import com.parking.model.ParkingSlot.SizeClass;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Slots matching a search, at most limit of them, and how many matched in
+ * total. Availability is as of the given slot version.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotSearchResult {
+    private int total;
+    private long slotsVersion;
+    private long elapsedMicros;
+    private List<Hit> slots;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hit {
+        private String id;
+        private String slotNumber;
+        private String lot;
+        private Integer floor;
+        private SizeClass size;
+        private Boolean evCharger;
+        private Boolean accessible;
+        private double hourlyRate;
+        private boolean available;
+    }
+}
@@ -0,0 +1,32 @@
+package com.parking.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A traced request and its time per span kind, in milliseconds
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlowRequest {
+    private String method;
+    private String uri;
+    private int status;
+    private String endedAt;
+    private double totalMs;
+    private List<Span> spans;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Span {
+        private String kind;
+        private int count;
+        private double totalMs;
+        private double maxMs;
+    }
+}
@@ -0,0 +1,27 @@
+package com.parking.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import com.parking.model.Booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Everything the user dashboard shows, archived history included. Spent is
+ * the total of completed bookings, penalties included.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBookingSummary {
+    private String userId;
+    private List<Booking> activeBookings;
+    private Map<String, Long> countsByStatus;
+    private long totalBookings;
+    private double totalSpent;
+    private double totalPenalties;
+    private List<Booking> recentBookings;
+}
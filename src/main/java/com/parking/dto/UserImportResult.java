@@ -0,0 +1,37 @@
+package com.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running totals of a user import. Rows that were not created are reported
+ * one by one as {@link RowError}s while the import runs.
+ */
+@Data
+@NoArgsConstructor
+public class UserImportResult {
+    private int processed;
+    private int created;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+    private boolean done;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        // Line number in the file, counting the CSV header
+        private long line;
+        private String username;
+        private RowStatus status;
+        private String message;
+    }
+
+    public enum RowStatus {
+        DUPLICATE,
+        INVALID,
+        FAILED
+    }
+}
@@ -0,0 +1,17 @@
+package com.parking.dto;
+
+import java.util.Set;
+
+import lombok.Data;
+
+/**
+ * One user in an import file. Roles are "admin" or "user" (or the ROLE_ names);
+ * users without roles get ROLE_USER.
+ */
+@Data
+public class UserImportRow {
+    private String username;
+    private String email;
+    private String password;
+    private Set<String> roles;
+}
@@ -0,0 +1,13 @@
+package com.parking.dto;
+
+import lombok.Data;
+
+/**
+ * Ask for the next slot that frees up, booked for durationMinutes from the
+ * moment it is handed over.
+ */
+@Data
+public class WaitlistRequest {
+    private String userId;
+    private long durationMinutes;
+}
@@ -0,0 +1,27 @@
+package com.parking.dto;
+
+import com.parking.model.Booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistStatus {
+    private String id;
+    private String userId;
+    private State state;
+    private String enqueuedAt;
+    private Booking booking;
+
+    public enum State {
+        WAITING,
+        BOOKED,
+        CANCELLED,
+        EXPIRED,
+        // A slot was found but booking it failed; join again
+        FAILED
+    }
+}
@@ -0,0 +1,114 @@
+package com.parking.gate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.parking.dto.GateEvent;
+
+/**
+ * Fixed-size ring of gate events, allocated once at startup. Producers append
+ * whole batches under a lock, all or nothing; a single consumer drains without
+ * one. Events are held in parallel arrays, so queueing one allocates nothing.
+ */
+final class GateEventRing {
+
+    private final int capacity;
+    private final int mask;
+    private final String[] plates;
+    private final String[] times;
+    private final String[] gates;
+    private final boolean[] exits;
+    private final long[] enqueuedAt;
+
+    // Next position to drain, only moved by the consumer
+    private final AtomicLong head = new AtomicLong();
+    // Next free position; the volatile write publishes the events before it
+    private final AtomicLong tail = new AtomicLong();
+
+    private final Object producerLock = new Object();
+
+    GateEventRing(int requestedCapacity) {
+        capacity = Integer.highestOneBit(Math.max(requestedCapacity - 1, 1)) << 1;
+        mask = capacity - 1;
+        plates = new String[capacity];
+        times = new String[capacity];
+        gates = new String[capacity];
+        exits = new boolean[capacity];
+        enqueuedAt = new long[capacity];
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Append the events, whose plates are normalised and times filled in. False,
+     * with nothing appended, when they do not all fit.
+     */
+    boolean offer(List<GateEvent> events) {
+        synchronized (producerLock) {
+            long position = tail.get();
+            if (position + events.size() - head.get() > capacity) {
+                return false;
+            }
+            long now = System.nanoTime();
+            for (GateEvent event : events) {
+                int index = (int) (position++ & mask);
+                plates[index] = event.getPlate();
+                times[index] = event.getTimestamp();
+                gates[index] = event.getGate();
+                exits[index] = event.getDirection() == GateEvent.Direction.EXIT;
+                enqueuedAt[index] = now;
+            }
+            tail.set(position);
+            return true;
+        }
+    }
+
+    /**
+     * Move up to the batch's capacity of events into it. Consumer thread only.
+     */
+    int drain(Batch batch) {
+        long position = head.get();
+        int count = (int) Math.min(tail.get() - position, batch.plates.length);
+        for (int i = 0; i < count; i++) {
+            int index = (int) (position++ & mask);
+            batch.plates[i] = plates[index];
+            batch.times[i] = times[index];
+            batch.gates[i] = gates[index];
+            batch.exits[i] = exits[index];
+            batch.enqueuedAt[i] = enqueuedAt[index];
+            // Let the strings go once drained
+            plates[index] = null;
+            times[index] = null;
+            gates[index] = null;
+        }
+        head.set(position);
+        batch.size = count;
+        return count;
+    }
+
+    /**
+     * Events drained in one go, reused from batch to batch
+     */
+    static final class Batch {
+        final String[] plates;
+        final String[] times;
+        final String[] gates;
+        final boolean[] exits;
+        final long[] enqueuedAt;
+        int size;
+
+        Batch(int capacity) {
+            plates = new String[capacity];
+            times = new String[capacity];
+            gates = new String[capacity];
+            exits = new boolean[capacity];
+            enqueuedAt = new long[capacity];
+        }
+    }
+}
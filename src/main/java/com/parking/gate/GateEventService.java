@@ -0,0 +1,281 @@
+package com.parking.gate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.parking.cluster.ClusterService;
+import com.parking.dto.GateEvent;
+import com.parking.dto.GateIngestResult;
+import com.parking.service.BookingService;
+import com.parking.service.WriteBehindService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ingests entry and exit events from barrier gates and ANPR cameras.
+ *
+ * Posted batches are checked and queued in a {@link GateEventRing}, and the
+ * request returns without waiting for them to be applied. When the ring is
+ * full the whole batch is refused, and the gate controller is told to retry.
+ * The controller then slows down instead of the queue, and so the latency,
+ * growing without bound. One consumer thread drains up to
+ * app.gate.batch-size events at a time and resolves each plate through the
+ * {@link PlateIndex} in memory. It completes the matched bookings as of their
+ * exit time, charging any overstay penalty. When write-behind is on, the
+ * completions of a batch form one unit and share a journal fsync and a bulk
+ * write. Entry events are only counted.
+ *
+ * Gate ingestion is refused while clustering is enabled. A batch spans slots
+ * owned by different instances, and the consumer could only lock its own
+ * partition, so its completions would race the owners' bookings; forwarding
+ * each completion instead would give up the batching this exists for.
+ */
+@Service
+@Slf4j
+public class GateEventService {
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private PlateIndex plateIndex;
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private WriteBehindService writeBehindService;
+
+    @Value("${app.gate.ring-capacity:65536}")
+    private int ringCapacity;
+
+    @Value("${app.gate.batch-size:1024}")
+    private int batchSize;
+
+    @Value("${app.gate.max-request-events:10000}")
+    private int maxRequestEvents;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder exits = new LongAdder();
+    private final LongAdder unmatchedExits = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    // Longest time an event waited in the ring since the stats were last read
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    private GateEventRing ring;
+    private Thread consumer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        ring = new GateEventRing(ringCapacity);
+        running = true;
+        consumer = new Thread(this::consume, "gate-events");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Accepted events are still applied before shutdown
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join(10000);
+        if (ring.size() > 0) {
+            log.warn("Shutting down with {} gate events not applied", ring.size());
+        }
+    }
+
+    /**
+     * Whether events are taken, which they are not while clustering is enabled
+     */
+    public boolean isAccepting() {
+        return !clusterService.isEnabled();
+    }
+
+    /**
+     * Check and queue a batch of events. Invalid events are reported and
+     * skipped; the valid ones are queued together or, when the queue is full,
+     * not at all.
+     */
+    public GateIngestResult submit(List<GateEvent> events) {
+        if (!isAccepting()) {
+            throw new IllegalStateException("Gate events are not accepted while clustering is enabled");
+        }
+        if (events == null || events.isEmpty()) {
+            throw new RuntimeException("No events given");
+        }
+        if (events.size() > maxRequestEvents) {
+            throw new RuntimeException("At most " + maxRequestEvents + " events can be sent at once");
+        }
+
+        GateIngestResult result = new GateIngestResult();
+        String received = LocalDateTime.now().format(formatter);
+        List<GateEvent> valid = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            GateEvent event = events.get(i);
+            String message = normalize(event, received);
+            if (message != null) {
+                result.getInvalidEvents().add(new GateIngestResult.Invalid(i, message));
+            } else {
+                valid.add(event);
+            }
+        }
+        result.setInvalid(result.getInvalidEvents().size());
+        invalid.add(result.getInvalid());
+
+        if (!valid.isEmpty()) {
+            if (!ring.offer(valid)) {
+                refused.add(valid.size());
+                result.setQueueFull(true);
+                result.setQueued(ring.size());
+                return result;
+            }
+            accepted.add(valid.size());
+            result.setAccepted(valid.size());
+            LockSupport.unpark(consumer);
+        }
+        result.setQueued(ring.size());
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", ring.size());
+        stats.put("capacity", ring.capacity());
+        stats.put("accepted", accepted.sum());
+        stats.put("invalid", invalid.sum());
+        stats.put("refusedQueueFull", refused.sum());
+        stats.put("entries", entries.sum());
+        stats.put("exits", exits.sum());
+        stats.put("unmatchedExits", unmatchedExits.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("maxQueueWaitMs", TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos.getAndSet(0)));
+        stats.put("platesIndexed", plateIndex.size());
+        return stats;
+    }
+
+    /**
+     * Normalise the plate and fill in a missing timestamp. Returns why the
+     * event is invalid, or null.
+     */
+    private static String normalize(GateEvent event, String received) {
+        if (event == null) {
+            return "Event is empty";
+        }
+        String plate = PlateIndex.normalize(event.getPlate());
+        if (plate == null) {
+            return "Plate is required";
+        }
+        if (event.getDirection() == null) {
+            return "Direction must be ENTRY or EXIT";
+        }
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(received);
+        } else {
+            try {
+                LocalDateTime.parse(event.getTimestamp(), formatter);
+            } catch (DateTimeParseException e) {
+                return "Invalid timestamp, expected yyyy-MM-dd HH:mm:ss";
+            }
+        }
+        event.setPlate(plate);
+        return null;
+    }
+
+    private void consume() {
+        GateEventRing.Batch batch = new GateEventRing.Batch(batchSize);
+        while (running || ring.size() > 0) {
+            if (ring.drain(batch) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            long waited = System.nanoTime() - batch.enqueuedAt[0];
+            maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+            try {
+                apply(batch);
+            } catch (RuntimeException e) {
+                log.warn("Failed to apply {} gate events: {}", batch.size, e.getMessage());
+            }
+        }
+    }
+
+    private void apply(GateEventRing.Batch batch) {
+        // One completion per booking, at its earliest exit in the batch
+        Map<String, PlateIndex.Entry> bookings = new LinkedHashMap<>();
+        Map<String, String> exitTimes = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size; i++) {
+            if (!batch.exits[i]) {
+                entries.increment();
+                continue;
+            }
+            exits.increment();
+            PlateIndex.Entry booking = plateIndex.resolve(batch.plates[i], batch.times[i]);
+            if (booking == null) {
+                unmatchedExits.increment();
+                continue;
+            }
+            bookings.put(booking.getBookingId(), booking);
+            exitTimes.merge(booking.getBookingId(), batch.times[i], (a, b) -> a.compareTo(b) <= 0 ? a : b);
+        }
+        if (bookings.isEmpty()) {
+            return;
+        }
+
+        // Completed and failed so far
+        int[] outcome = new int[2];
+        try {
+            writeBehindService.atomically(() -> {
+                for (String bookingId : bookings.keySet()) {
+                    // With write-behind, each completion is a savepoint in the batch's
+                    // unit and a failure drops only its own writes. Without it they
+                    // are written as they go, as through the API.
+                    try {
+                        bookingService.completeBookingAt(bookingId, LocalDateTime.parse(exitTimes.get(bookingId), formatter));
+                        outcome[0]++;
+                    } catch (RuntimeException e) {
+                        // Usually completed or cancelled through the API meanwhile
+                        outcome[1]++;
+                        plateIndex.remove(bookingId);
+                        log.debug("Gate exit not applied to booking {}: {}", bookingId, e.getMessage());
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Committing the unit failed. A failed commit
+            // applies none of the batch; without write-behind the completions
+            // made before the failure stay.
+            int applied = writeBehindService.isEnabled() ? 0 : outcome[0];
+            completed.add(applied);
+            failed.add(bookings.size() - applied);
+            throw e;
+        }
+        completed.add(outcome[0]);
+        failed.add(outcome[1]);
+    }
+}
@@ -0,0 +1,204 @@
+package com.parking.gate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.parking.model.Booking;
+import com.parking.model.Booking.BookingStatus;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Active bookings by normalised licence plate, for resolving gate events
+ * without a query.
+ *
+ * BookingService reports every booking save and delete. A periodic reconcile
+ * from the active bookings in Mongo picks up writes made by other instances.
+ * A car may have more than one active booking. The one a gate event resolves
+ * to has started by the event time and ends first.
+ */
+@Component
+@Slf4j
+public class PlateIndex {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Replaced whole by a reconcile; writers hold the lock, readers do not
+    private volatile Map<String, Entry[]> bookingsByPlate = new ConcurrentHashMap<>();
+
+    private Map<String, String> plateByBooking = new HashMap<>();
+
+    /**
+     * Upper case letters and digits only, so "ab-12 cd" and "AB12CD" match
+     */
+    public static String normalize(String plate) {
+        if (plate == null) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(plate.length());
+        for (int i = 0; i < plate.length(); i++) {
+            char c = plate.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toUpperCase(c));
+            }
+        }
+        return normalized.length() > 0 ? normalized.toString() : null;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInitial() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${app.gate.reconcile-ms:60000}", initialDelayString = "${app.gate.reconcile-ms:60000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * A booking was saved; indexed while it is active and has a plate
+     */
+    public synchronized void bookingSaved(Booking booking) {
+        String plate = normalize(booking.getLicensePlate());
+        removeBooking(booking.getId());
+        if (plate != null && booking.getStatus() == BookingStatus.ACTIVE) {
+            Entry entry = new Entry(booking.getId(), booking.getSlotId(), booking.getStartTime(), booking.getEndTime());
+            bookingsByPlate.merge(plate, new Entry[] { entry }, PlateIndex::concat);
+            plateByBooking.put(booking.getId(), plate);
+        }
+    }
+
+    /**
+     * Drop a booking that was deleted or turned out to be no longer active
+     */
+    public synchronized void remove(String bookingId) {
+        removeBooking(bookingId);
+    }
+
+    /**
+     * The active booking the car was on at the given time, or null. Times are
+     * "yyyy-MM-dd HH:mm:ss" strings, which compare in time order.
+     */
+    public Entry resolve(String plate, String time) {
+        Entry[] entries = bookingsByPlate.get(plate);
+        if (entries == null) {
+            return null;
+        }
+        Entry best = null;
+        for (Entry entry : entries) {
+            boolean started = entry.startTime == null || time == null || entry.startTime.compareTo(time) <= 0;
+            if (started && (best == null || compareEnd(entry, best) < 0)) {
+                best = entry;
+            }
+        }
+        return best;
+    }
+
+    public int size() {
+        return bookingsByPlate.size();
+    }
+
+    /**
+     * Rebuild from the active bookings in Mongo. Saves reported while this runs
+     * may be lost until the next reconcile.
+     */
+    public void reconcile() {
+        try {
+            Query query = Query.query(Criteria.where("status").is(BookingStatus.ACTIVE.name()).and("licensePlate").ne(null));
+            query.fields().include("slotId").include("startTime").include("endTime").include("licensePlate");
+            Map<String, List<Entry>> rebuilt = new HashMap<>();
+            for (Booking booking : mongoTemplate.find(query, Booking.class)) {
+                String plate = normalize(booking.getLicensePlate());
+                if (plate != null) {
+                    rebuilt.computeIfAbsent(plate, p -> new ArrayList<>())
+                            .add(new Entry(booking.getId(), booking.getSlotId(), booking.getStartTime(), booking.getEndTime()));
+                }
+            }
+
+            Map<String, Entry[]> index = new ConcurrentHashMap<>(rebuilt.size() * 2);
+            Map<String, String> plates = new HashMap<>();
+            rebuilt.forEach((plate, entries) -> {
+                index.put(plate, entries.toArray(new Entry[0]));
+                entries.forEach(entry -> plates.put(entry.bookingId, plate));
+            });
+            // Read outside the lock, so booking requests never wait for the query
+            synchronized (this) {
+                bookingsByPlate = index;
+                plateByBooking = plates;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to reconcile plate index: {}", e.getMessage());
+        }
+    }
+
+    private void removeBooking(String bookingId) {
+        String plate = bookingId != null ? plateByBooking.remove(bookingId) : null;
+        if (plate != null) {
+            bookingsByPlate.computeIfPresent(plate, (key, entries) -> without(entries, bookingId));
+        }
+    }
+
+    private static int compareEnd(Entry a, Entry b) {
+        if (a.endTime == null || b.endTime == null) {
+            return a.endTime == null ? (b.endTime == null ? 0 : 1) : -1;
+        }
+        return a.endTime.compareTo(b.endTime);
+    }
+
+    private static Entry[] concat(Entry[] entries, Entry[] added) {
+        Entry[] merged = new Entry[entries.length + added.length];
+        System.arraycopy(entries, 0, merged, 0, entries.length);
+        System.arraycopy(added, 0, merged, entries.length, added.length);
+        return merged;
+    }
+
+    private static Entry[] without(Entry[] entries, String bookingId) {
+        List<Entry> kept = new ArrayList<>(entries.length);
+        for (Entry entry : entries) {
+            if (!entry.bookingId.equals(bookingId)) {
+                kept.add(entry);
+            }
+        }
+        return kept.isEmpty() ? null : kept.toArray(new Entry[0]);
+    }
+
+    /**
+     * An active booking as indexed
+     */
+    public static final class Entry {
+        private final String bookingId;
+        private final String slotId;
+        private final String startTime;
+        private final String endTime;
+
+        private Entry(String bookingId, String slotId, String startTime, String endTime) {
+            this.bookingId = bookingId;
+            this.slotId = slotId;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        public String getBookingId() {
+            return bookingId;
+        }
+
+        public String getSlotId() {
+            return slotId;
+        }
+    }
+}
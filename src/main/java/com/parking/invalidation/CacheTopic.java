@@ -0,0 +1,30 @@
+package com.parking.invalidation;
+
+/**
+ * Collections whose changes are published on the {@link InvalidationBus}
+ */
+public enum CacheTopic {
+    SLOTS("parking_slots"),
+    BOOKINGS("bookings"),
+    USERS("users"),
+    SETTINGS("global_settings");
+
+    private final String collection;
+
+    CacheTopic(String collection) {
+        this.collection = collection;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public static CacheTopic fromCollection(String collection) {
+        for (CacheTopic topic : values()) {
+            if (topic.collection.equals(collection)) {
+                return topic;
+            }
+        }
+        return null;
+    }
+}
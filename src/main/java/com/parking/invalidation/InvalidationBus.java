@@ -0,0 +1,354 @@
+package com.parking.invalidation;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.MongoServerException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.parking.invalidation.InvalidationEvent.Operation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tells in-process caches about writes made by any instance, off unless
+ * app.invalidation.enabled is set. Change streams need a replica set; a
+ * single-node one is enough, see scripts/mongo-replica-set.sh.
+ *
+ * One change stream on the database covers every {@link CacheTopic}
+ * collection. Each change is published to the listeners of its topic on the
+ * tailing thread, so listeners must only drop entries or hand work off. The
+ * resume token is saved per instance in invalidation_resume_tokens every
+ * app.invalidation.token-save-ms, and a restarted instance carries on from
+ * it. Whenever the stream (re)opens or fails, every topic gets an ALL event,
+ * as changes may have been missed. Caches should only keep entries while
+ * {@link #isActive()}; otherwise nothing would tell them about other
+ * instances' writes.
+ */
+@Service
+@Slf4j
+public class InvalidationBus {
+
+    public static final String TOKEN_COLLECTION = "invalidation_resume_tokens";
+
+    // The resume token is no longer in the oplog, or cannot be resumed from
+    private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.invalidation.enabled:false}")
+    private boolean enabled;
+
+    // Must stay the same across restarts for the instance to resume
+    @Value("${app.invalidation.instance-id:${app.cluster.instance-id:}}")
+    private String instanceId;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    @Value("${app.invalidation.token-save-ms:1000}")
+    private long tokenSaveMs;
+
+    @Value("${app.invalidation.max-await-ms:1000}")
+    private long maxAwaitMs;
+
+    @Value("${app.invalidation.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    private final Map<CacheTopic, List<Consumer<InvalidationEvent>>> listeners = new EnumMap<>(CacheTopic.class);
+
+    private final AtomicLong eventsReceived = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean active;
+    private volatile BsonDocument resumeToken;
+    private volatile long lastEventAt;
+    private volatile String lastError;
+
+    private BsonDocument savedToken;
+    private long tokenSavedAt;
+    private Thread tailer;
+
+    public InvalidationBus() {
+        for (CacheTopic topic : CacheTopic.values()) {
+            listeners.put(topic, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (instanceId == null || instanceId.isEmpty()) {
+            instanceId = hostName() + "-" + serverPort;
+        }
+
+        running = true;
+        tailer = new Thread(this::tail, "invalidation-bus");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (tailer == null) {
+            return;
+        }
+        running = false;
+        // A waiting getMore returns within max-await-ms
+        tailer.join(maxAwaitMs + 1000);
+        saveToken(true);
+    }
+
+    /**
+     * Call the listener with every change to the topic's collection. Runs on
+     * the tailing thread, so it must not block.
+     */
+    public void register(CacheTopic topic, Consumer<InvalidationEvent> listener) {
+        listeners.get(topic).add(listener);
+    }
+
+    /**
+     * True while the change stream is open, so every later write will be published
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("active", active);
+        status.put("instanceId", instanceId);
+        status.put("eventsReceived", eventsReceived.get());
+        status.put("lastEventAt", lastEventAt > 0 ? format(lastEventAt) : null);
+        status.put("hasResumeToken", resumeToken != null);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private void tail() {
+        // Read here rather than at startup, which then does not wait on Mongo
+        resumeToken = loadToken();
+        log.info("Invalidation bus started as {}, {}", instanceId,
+                resumeToken != null ? "resuming from saved token" : "starting from now");
+
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open()) {
+                active = true;
+                lastError = null;
+                publishAll();
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        dispatch(change);
+                    }
+                    // Moves on even with no matching changes, keeping the token inside the oplog window
+                    BsonDocument token = cursor.getResumeToken();
+                    if (token != null) {
+                        resumeToken = token;
+                    }
+                    saveToken(false);
+                }
+            } catch (MongoServerException e) {
+                lastError = e.getMessage();
+                if (e.getCode() == CHANGE_STREAM_HISTORY_LOST || e.getCode() == CHANGE_STREAM_FATAL_ERROR) {
+                    log.warn("Cannot resume change stream, starting from now: {}", e.getMessage());
+                    resumeToken = null;
+                } else if (running) {
+                    log.warn("Change stream failed: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                lastError = e.getMessage();
+                if (running) {
+                    log.warn("Change stream failed: {}", e.getMessage());
+                }
+            } finally {
+                if (active) {
+                    active = false;
+                    publishAll();
+                }
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(retryBackoffMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        List<String> collections = new ArrayList<>();
+        for (CacheTopic topic : CacheTopic.values()) {
+            collections.add(topic.getCollection());
+        }
+        // Lookups are by _id and only the owner fields are kept, so events stay small
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.or(
+                        Filters.in("ns.coll", collections),
+                        Filters.eq("operationType", "dropDatabase"))),
+                Aggregates.project(Projections.include("operationType", "ns", "documentKey",
+                        "fullDocument.userId", "fullDocument.username")));
+
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb().watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(maxAwaitMs, TimeUnit.MILLISECONDS);
+        BsonDocument token = resumeToken;
+        if (token != null) {
+            // Unlike resumeAfter, also works after an invalidate event
+            stream = stream.startAfter(token);
+        }
+        return stream.cursor();
+    }
+
+    private void dispatch(ChangeStreamDocument<Document> change) {
+        eventsReceived.incrementAndGet();
+        lastEventAt = System.currentTimeMillis();
+
+        OperationType type = change.getOperationType();
+        if (type == OperationType.DROP_DATABASE) {
+            publishAll();
+            return;
+        }
+        CacheTopic topic = change.getNamespace() != null
+                ? CacheTopic.fromCollection(change.getNamespace().getCollectionName())
+                : null;
+        if (topic == null) {
+            return;
+        }
+
+        Operation operation;
+        switch (type) {
+        case INSERT:
+            operation = Operation.INSERT;
+            break;
+        case UPDATE:
+            operation = Operation.UPDATE;
+            break;
+        case REPLACE:
+            operation = Operation.REPLACE;
+            break;
+        case DELETE:
+            operation = Operation.DELETE;
+            break;
+        default:
+            // Drop, rename and the like
+            publish(InvalidationEvent.all(topic));
+            return;
+        }
+
+        Document document = change.getFullDocument();
+        String userId = document != null ? document.getString("userId") : null;
+        String username = document != null ? document.getString("username") : null;
+        publish(new InvalidationEvent(topic, operation, documentId(change.getDocumentKey()), userId, username));
+    }
+
+    private void publishAll() {
+        for (CacheTopic topic : CacheTopic.values()) {
+            publish(InvalidationEvent.all(topic));
+        }
+    }
+
+    private void publish(InvalidationEvent event) {
+        for (Consumer<InvalidationEvent> listener : listeners.get(event.getTopic())) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Invalidation listener failed for {}: {}", event.getTopic(), e.getMessage());
+            }
+        }
+    }
+
+    private static String documentId(BsonDocument documentKey) {
+        BsonValue id = documentKey != null ? documentKey.get("_id") : null;
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    private BsonDocument loadToken() {
+        try {
+            BsonDocument saved = mongoTemplate.getCollection(TOKEN_COLLECTION).withDocumentClass(BsonDocument.class)
+                    .find(Filters.eq("_id", instanceId)).first();
+            return saved != null && saved.isDocument("token") ? saved.getDocument("token") : null;
+        } catch (RuntimeException e) {
+            log.warn("Failed to load change stream resume token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized void saveToken(boolean force) {
+        BsonDocument token = resumeToken;
+        long now = System.currentTimeMillis();
+        if (token == null || token.equals(savedToken) || (!force && now - tokenSavedAt < tokenSaveMs)) {
+            return;
+        }
+        try {
+            Document document = new Document("_id", instanceId)
+                    .append("token", token)
+                    .append("updatedAt", format(now));
+            mongoTemplate.getCollection(TOKEN_COLLECTION)
+                    .replaceOne(Filters.eq("_id", instanceId), document, new ReplaceOptions().upsert(true));
+            savedToken = token;
+            tokenSavedAt = now;
+        } catch (RuntimeException e) {
+            log.warn("Failed to save change stream resume token: {}", e.getMessage());
+        }
+    }
+
+    private static String format(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(formatter);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.parking.invalidation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A change to one document, or with operation ALL, a sign that any cached
+ * entry of the topic may be stale. userId is the owner of a changed booking
+ * and username the name of a changed user, when known; both are null for
+ * deletes, which only carry the id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvalidationEvent {
+    private CacheTopic topic;
+    private Operation operation;
+    private String documentId;
+    private String userId;
+    private String username;
+
+    public enum Operation {
+        INSERT,
+        UPDATE,
+        REPLACE,
+        DELETE,
+        ALL
+    }
+
+    public static InvalidationEvent all(CacheTopic topic) {
+        return new InvalidationEvent(topic, Operation.ALL, null, null, null);
+    }
+}
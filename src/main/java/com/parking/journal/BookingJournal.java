@@ -0,0 +1,338 @@
+package com.parking.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.parking.journal.JournalEvent.EventType;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of booking and slot transitions.
+ *
+ * Events are written to memory-mapped segment files under app.journal.dir. A
+ * segment is rotated once full and is named after the first sequence number it
+ * holds. Each record is framed as length (4 bytes), CRC32 of the body (4 bytes)
+ * and the encoded event; a zero length marks the end of the written data.
+ * A background thread forces dirty pages to disk every
+ * app.journal.fsync-interval-ms, so many appends share one fsync.
+ */
+@Component
+@Slf4j
+public class BookingJournal {
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    @Value("${app.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.journal.dir:data/journal}")
+    private String directory;
+
+    @Value("${app.journal.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${app.journal.fsync-interval-ms:5}")
+    private long fsyncIntervalMs;
+
+    private final Object durableLock = new Object();
+
+    private MappedByteBuffer segment;
+    private long nextSequence = 1;
+    private long lastWrittenSequence;
+    private long durableSequence;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    // Current slot occupancy rebuilt from the journal, keyed by slot id
+    private final Map<String, Occupant> occupancy = new HashMap<>();
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(Paths.get(directory));
+
+        long started = System.currentTimeMillis();
+        long[] count = new long[1];
+        replay(event -> {
+            apply(occupancy, event);
+            nextSequence = event.getSequence() + 1;
+            count[0]++;
+        });
+        lastWrittenSequence = nextSequence - 1;
+        durableSequence = lastWrittenSequence;
+        log.info("Replayed {} journal events in {} ms", count[0], System.currentTimeMillis() - started);
+
+        List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            segment = mapSegment(segmentPath(nextSequence));
+        } else {
+            segment = mapSegment(segments.get(segments.size() - 1));
+            segment.position(endOfData(segment));
+        }
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "booking-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join(1000);
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append an event and return its sequence number, or -1 when the journal is disabled.
+     * The event is durable once {@link #awaitDurable(long)} returns for that sequence.
+     */
+    public long append(JournalEvent event) {
+        if (!running) {
+            return -1;
+        }
+
+        synchronized (this) {
+            event.setSequence(nextSequence);
+            event.setTimestamp(System.currentTimeMillis());
+            byte[] body = event.encode();
+
+            // Keep room for the zero length terminator after the record
+            int recordSize = RECORD_HEADER_SIZE + body.length + 4;
+            if (recordSize > segment.capacity()) {
+                throw new RuntimeException("Journal record of " + body.length + " bytes does not fit in a "
+                        + segmentSizeMb + " MB segment");
+            }
+            if (segment.remaining() < recordSize) {
+                rotate();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            segment.putInt(body.length);
+            segment.putInt((int) crc.getValue());
+            segment.put(body);
+            // Ends the data even where a torn tail from before a restart follows
+            segment.putInt(segment.position(), 0);
+
+            apply(occupancy, event);
+            lastWrittenSequence = nextSequence++;
+            return lastWrittenSequence;
+        }
+    }
+
+    /**
+     * Block until the given sequence has been forced to disk by the group fsync
+     */
+    public void awaitDurable(long sequence) throws InterruptedException {
+        synchronized (durableLock) {
+            while (running && durableSequence < sequence) {
+                durableLock.wait();
+            }
+        }
+    }
+
+    /**
+     * Read every event in the journal, oldest first
+     */
+    public void replay(Consumer<JournalEvent> consumer) throws IOException {
+        for (Path path : listSegments()) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                JournalEvent event;
+                while ((event = readNext(buffer)) != null) {
+                    consumer.accept(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * Current occupancy as rebuilt from the journal
+     */
+    public synchronized Map<String, Occupant> getOccupancy() {
+        return new HashMap<>(occupancy);
+    }
+
+    /**
+     * Reconstruct slot occupancy as it was at the given time (epoch millis)
+     */
+    public Map<String, Occupant> getOccupancyAt(long timestamp) throws IOException {
+        Map<String, Occupant> state = new HashMap<>();
+        try {
+            replay(event -> {
+                if (event.getTimestamp() > timestamp) {
+                    throw new StopReplay();
+                }
+                apply(state, event);
+            });
+        } catch (StopReplay e) {
+            // Reached the requested point in time
+        }
+        return state;
+    }
+
+    private static void apply(Map<String, Occupant> state, JournalEvent event) {
+        EventType type = event.getType();
+        if (type == EventType.SLOT_BOOKED) {
+            state.put(event.getSlotId(), new Occupant(event.getUserId(), null, event.getTimestamp()));
+        } else if (type == EventType.BOOKING_CREATED) {
+            Occupant occupant = state.get(event.getSlotId());
+            if (occupant != null) {
+                // Occupants are shared with callers of getOccupancy, so replace rather than mutate
+                state.put(event.getSlotId(), new Occupant(occupant.getUserId(), event.getBookingId(), occupant.getSince()));
+            }
+        } else if (type == EventType.SLOT_RELEASED || type == EventType.SLOT_DELETED) {
+            state.remove(event.getSlotId());
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(fsyncIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            flush();
+        }
+    }
+
+    private void flush() {
+        MappedByteBuffer current;
+        long written;
+        synchronized (this) {
+            current = segment;
+            written = lastWrittenSequence;
+        }
+
+        if (written > durableSequence) {
+            // Segments are forced on rotation, so only the current one can be dirty
+            current.force();
+            synchronized (durableLock) {
+                durableSequence = written;
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private void rotate() {
+        segment.force();
+        try {
+            segment = mapSegment(segmentPath(nextSequence));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to rotate journal segment", e);
+        }
+    }
+
+    private MappedByteBuffer mapSegment(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentSizeMb * 1024 * 1024);
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return Paths.get(directory, String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private List<Path> listSegments() {
+        File[] files = new File(directory).listFiles(
+                (dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+
+        List<Path> segments = new ArrayList<>();
+        for (File file : files) {
+            segments.add(file.toPath());
+        }
+        // Zero padded sequence numbers sort in journal order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Position just after the last valid record of a segment
+     */
+    private static int endOfData(ByteBuffer buffer) {
+        ByteBuffer reader = buffer.duplicate();
+        reader.position(0);
+        int end = 0;
+        while (readNext(reader) != null) {
+            end = reader.position();
+        }
+        return end;
+    }
+
+    /**
+     * Decode the next record, or return null at the end of the data or at a torn write
+     */
+    private static JournalEvent readNext(ByteBuffer buffer) {
+        if (buffer.remaining() < RECORD_HEADER_SIZE) {
+            return null;
+        }
+
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+
+        byte[] body = new byte[length];
+        buffer.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+
+        return JournalEvent.decode(ByteBuffer.wrap(body));
+    }
+
+    private static class StopReplay extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StopReplay() {
+            super(null, null, false, false);
+        }
+    }
+}
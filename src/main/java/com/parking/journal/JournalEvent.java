@@ -0,0 +1,132 @@
+package com.parking.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single booking or slot transition as stored in the journal.
+ *
+ * Binary layout: type (1 byte), sequence (8), timestamp millis (8), then
+ * slotId, userId and bookingId as length-prefixed UTF-8 (2 byte length, -1 for
+ * null) and an optional payload (4 byte length, -1 for null).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEvent {
+    private EventType type;
+    private long sequence;
+    private long timestamp;
+    private String slotId;
+    private String userId;
+    private String bookingId;
+    private byte[] payload;
+
+    public enum EventType {
+        SLOT_CREATED(1),
+        SLOT_DELETED(2),
+        SLOT_BOOKED(3),
+        SLOT_RELEASED(4),
+        BOOKING_CREATED(5),
+        BOOKING_COMPLETED(6),
+        BOOKING_CANCELLED(7),
+        BOOKING_DELETED(8),
+        // Documents committed through the write-behind pipeline, BSON in the payload
+        WRITE_BATCH(9);
+
+        private final byte code;
+
+        EventType(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        public static EventType fromCode(byte code) {
+            for (EventType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown journal event type: " + code);
+        }
+    }
+
+    public static JournalEvent of(EventType type, String slotId, String userId, String bookingId) {
+        return new JournalEvent(type, 0L, 0L, slotId, userId, bookingId, null);
+    }
+
+    byte[] encode() {
+        byte[] slot = bytes(slotId);
+        byte[] user = bytes(userId);
+        byte[] booking = bytes(bookingId);
+
+        int size = 1 + 8 + 8 + fieldSize(slot) + fieldSize(user) + fieldSize(booking)
+                + 4 + (payload != null ? payload.length : 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(type.getCode());
+        buffer.putLong(sequence);
+        buffer.putLong(timestamp);
+        putString(buffer, slot);
+        putString(buffer, user);
+        putString(buffer, booking);
+        if (payload != null) {
+            buffer.putInt(payload.length);
+            buffer.put(payload);
+        } else {
+            buffer.putInt(-1);
+        }
+        return buffer.array();
+    }
+
+    static JournalEvent decode(ByteBuffer buffer) {
+        JournalEvent event = new JournalEvent();
+        event.type = EventType.fromCode(buffer.get());
+        event.sequence = buffer.getLong();
+        event.timestamp = buffer.getLong();
+        event.slotId = getString(buffer);
+        event.userId = getString(buffer);
+        event.bookingId = getString(buffer);
+
+        int payloadLength = buffer.getInt();
+        if (payloadLength >= 0) {
+            event.payload = new byte[payloadLength];
+            buffer.get(event.payload);
+        }
+        return event;
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int fieldSize(byte[] value) {
+        return 2 + (value != null ? value.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
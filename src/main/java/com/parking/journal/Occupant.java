@@ -0,0 +1,17 @@
+package com.parking.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Who holds a slot according to the journal, and since when (epoch millis)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Occupant {
+    private String userId;
+    private String bookingId;
+    private long since;
+}
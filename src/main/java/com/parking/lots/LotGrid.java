@@ -0,0 +1,185 @@
+package com.parking.lots;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import com.parking.model.ParkingLot;
+
+/**
+ * Uniform latitude/longitude grid over the lots, for k-nearest queries.
+ *
+ * A query scans rings of cells outward from the caller's cell, keeping the k
+ * closest accepted lots. It stops once even the nearest point of the next ring
+ * is further away than the k-th best. With no fixed cell size, cells are sized
+ * for about one lot each over the area the lots cover, so the number of empty
+ * cells visited stays small. Longitudes do not wrap at the antimeridian.
+ * Immutable once built.
+ */
+public class LotGrid {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double MIN_CELL_DEGREES = 0.001;
+
+    /**
+     * A lot and its great-circle distance from the query point
+     */
+    public static final class Neighbour {
+        private final ParkingLot lot;
+        private final double distanceKm;
+
+        private Neighbour(ParkingLot lot, double distanceKm) {
+            this.lot = lot;
+            this.distanceKm = distanceKm;
+        }
+
+        public ParkingLot getLot() {
+            return lot;
+        }
+
+        public double getDistanceKm() {
+            return distanceKm;
+        }
+    }
+
+    private final double cellDegrees;
+    private final Map<Long, List<ParkingLot>> cells = new HashMap<>();
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minCol = Integer.MAX_VALUE;
+    private int maxCol = Integer.MIN_VALUE;
+
+    /**
+     * Grid over the lots, with the given cell size or, when it is not positive,
+     * one chosen from the spread of the lots
+     */
+    public LotGrid(Collection<ParkingLot> lots, double cellDegrees) {
+        this.cellDegrees = cellDegrees > 0 ? cellDegrees : autoCellDegrees(lots);
+        for (ParkingLot lot : lots) {
+            int row = row(lot.getLatitude());
+            int col = col(lot.getLongitude());
+            cells.computeIfAbsent(key(row, col), k -> new ArrayList<>()).add(lot);
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minCol = Math.min(minCol, col);
+            maxCol = Math.max(maxCol, col);
+        }
+    }
+
+    /**
+     * Up to k accepted lots closest to the point, nearest first
+     */
+    public List<Neighbour> nearest(double latitude, double longitude, int k, Predicate<ParkingLot> accept) {
+        List<Neighbour> result = new ArrayList<>();
+        if (cells.isEmpty() || k <= 0) {
+            return result;
+        }
+
+        // Furthest of the current best on top
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(k,
+                Comparator.comparingDouble(Neighbour::getDistanceKm).reversed());
+        int row0 = row(latitude);
+        int col0 = col(longitude);
+        int lastRing = Math.max(Math.max(Math.abs(row0 - minRow), Math.abs(row0 - maxRow)),
+                Math.max(Math.abs(col0 - minCol), Math.abs(col0 - maxCol)));
+
+        for (int ring = 0; ring <= lastRing; ring++) {
+            if (best.size() == k && ringLowerBoundKm(latitude, ring) >= best.peek().getDistanceKm()) {
+                break;
+            }
+            for (int row = Math.max(row0 - ring, minRow); row <= Math.min(row0 + ring, maxRow); row++) {
+                if (row == row0 - ring || row == row0 + ring) {
+                    // Top and bottom edges of the ring, every column
+                    for (int col = Math.max(col0 - ring, minCol); col <= Math.min(col0 + ring, maxCol); col++) {
+                        visit(row, col, latitude, longitude, k, accept, best);
+                    }
+                } else {
+                    visit(row, col0 - ring, latitude, longitude, k, accept, best);
+                    visit(row, col0 + ring, latitude, longitude, k, accept, best);
+                }
+            }
+        }
+
+        result.addAll(best);
+        result.sort(Comparator.comparingDouble(Neighbour::getDistanceKm));
+        return result;
+    }
+
+    private void visit(int row, int col, double latitude, double longitude, int k, Predicate<ParkingLot> accept,
+            PriorityQueue<Neighbour> best) {
+        List<ParkingLot> lots = cells.get(key(row, col));
+        if (lots == null) {
+            return;
+        }
+        for (ParkingLot lot : lots) {
+            if (!accept.test(lot)) {
+                continue;
+            }
+            double distance = distanceKm(latitude, longitude, lot.getLatitude(), lot.getLongitude());
+            if (best.size() < k) {
+                best.add(new Neighbour(lot, distance));
+            } else if (distance < best.peek().getDistanceKm()) {
+                best.poll();
+                best.add(new Neighbour(lot, distance));
+            }
+        }
+    }
+
+    /**
+     * No point in the given ring is closer than this. Points in ring r are at
+     * least r - 1 whole cells away in latitude or in longitude. A longitude gap
+     * is shortest at the highest latitude the ring reaches, and haversine gives
+     * d >= 2 asin(cos(maxLat) sin(gap / 2)) there.
+     */
+    private double ringLowerBoundKm(double latitude, int ring) {
+        if (ring <= 1) {
+            return 0.0;
+        }
+        double gap = Math.toRadians((ring - 1) * cellDegrees);
+        double maxLatitude = Math.toRadians(Math.min(90.0, Math.abs(latitude) + (ring + 1) * cellDegrees));
+        return 2 * Math.asin(Math.min(1.0, Math.cos(maxLatitude) * Math.sin(gap / 2))) * EARTH_RADIUS_KM;
+    }
+
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * Math.asin(Math.min(1.0, Math.sqrt(a))) * EARTH_RADIUS_KM;
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int col(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    private static double autoCellDegrees(Collection<ParkingLot> lots) {
+        if (lots.size() < 2) {
+            return 1.0;
+        }
+        double minLat = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE;
+        double maxLng = -Double.MAX_VALUE;
+        for (ParkingLot lot : lots) {
+            minLat = Math.min(minLat, lot.getLatitude());
+            maxLat = Math.max(maxLat, lot.getLatitude());
+            minLng = Math.min(minLng, lot.getLongitude());
+            maxLng = Math.max(maxLng, lot.getLongitude());
+        }
+        double extent = Math.max(maxLat - minLat, maxLng - minLng);
+        return Math.max(extent / Math.ceil(Math.sqrt(lots.size())), MIN_CELL_DEGREES);
+    }
+}
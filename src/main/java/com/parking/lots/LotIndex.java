@@ -0,0 +1,207 @@
+package com.parking.lots;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.parking.dto.NearestLot;
+import com.parking.model.ParkingLot;
+import com.parking.model.ParkingSlot;
+import com.parking.model.ParkingSlot.SizeClass;
+import com.parking.model.ParkingSlot.SlotStatus;
+import com.parking.repository.ParkingLotRepository;
+import com.parking.snapshot.SlotStateStore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Live free-slot counts per lot, with a {@link LotGrid} over the lot locations
+ * for nearest-lot queries. Neither touches Mongo on the query path.
+ *
+ * Free counts are kept per attribute profile (EV charger, accessible, size
+ * class), so a query for, say, accessible EV slots sums a few counters per lot.
+ * ParkingSlotService reports each slot write as it happens. Writes made by
+ * another instance, or lost between a write and a reconcile, are picked up by
+ * the periodic reconcile, which rebuilds everything from the slot state store.
+ * Held slots are still counted as free; a hold is short and the driver may
+ * not book it.
+ */
+@Component
+@Slf4j
+public class LotIndex {
+
+    private static final int SIZES = SizeClass.values().length + 1;
+    private static final int PROFILES = 2 * 2 * SIZES;
+
+    @Autowired
+    private SlotStateStore slotStateStore;
+
+    @Autowired
+    private ParkingLotRepository parkingLotRepository;
+
+    // Zero or less sizes the cells from the spread of the lots
+    @Value("${app.lots.cell-degrees:0}")
+    private double cellDegrees;
+
+    private volatile LotGrid grid = new LotGrid(List.of(), 1.0);
+
+    private volatile Counts counts = new Counts();
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInitial() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${app.lots.reconcile-ms:30000}", initialDelayString = "${app.lots.reconcile-ms:30000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * A slot was created or saved; safe to call more than once for the same write
+     */
+    public void slotSaved(ParkingSlot slot) {
+        counts.update(slot.getId(), slot.getLot(), profile(slot), slot.getStatus() == SlotStatus.AVAILABLE);
+    }
+
+    public void slotDeleted(String slotId) {
+        counts.remove(slotId);
+    }
+
+    /**
+     * A lot was created, moved or deleted; rebuild the grid
+     */
+    public void lotsChanged() {
+        grid = new LotGrid(parkingLotRepository.findAll(), cellDegrees);
+    }
+
+    /**
+     * Up to k lots nearest the point that have at least one free slot with the
+     * given attributes, nearest first. Null attributes match any slot.
+     */
+    public List<NearestLot> nearest(double latitude, double longitude, int k, Boolean ev, SizeClass size,
+            Boolean accessible) {
+        Counts current = counts;
+        boolean[] wanted = wantedProfiles(ev, size, accessible);
+        List<LotGrid.Neighbour> neighbours = grid.nearest(latitude, longitude, k,
+                lot -> current.free(lot.getName(), wanted) > 0);
+
+        List<NearestLot> result = new ArrayList<>(neighbours.size());
+        for (LotGrid.Neighbour neighbour : neighbours) {
+            ParkingLot lot = neighbour.getLot();
+            result.add(new NearestLot(lot.getId(), lot.getName(), lot.getAddress(), lot.getLatitude(),
+                    lot.getLongitude(), neighbour.getDistanceKm(), current.free(lot.getName(), null),
+                    current.free(lot.getName(), wanted)));
+        }
+        return result;
+    }
+
+    /**
+     * Rebuild the grid from Mongo and all counts from the slot state store.
+     * Slot writes reported while this runs may be lost until the next reconcile.
+     */
+    public synchronized void reconcile() {
+        try {
+            lotsChanged();
+
+            Counts rebuilt = new Counts();
+            for (ParkingSlot slot : slotStateStore.loadSlots()) {
+                rebuilt.update(slot.getId(), slot.getLot(), profile(slot), slot.getStatus() == SlotStatus.AVAILABLE);
+            }
+            counts = rebuilt;
+        } catch (Exception e) {
+            log.warn("Failed to reconcile lot index: {}", e.getMessage());
+        }
+    }
+
+    private static int profile(ParkingSlot slot) {
+        return profile(Boolean.TRUE.equals(slot.getEvCharger()), Boolean.TRUE.equals(slot.getAccessible()),
+                slot.getSize() != null ? slot.getSize().ordinal() : SIZES - 1);
+    }
+
+    private static int profile(boolean ev, boolean accessible, int size) {
+        return ((ev ? 1 : 0) * 2 + (accessible ? 1 : 0)) * SIZES + size;
+    }
+
+    private static boolean[] wantedProfiles(Boolean ev, SizeClass size, Boolean accessible) {
+        boolean[] wanted = new boolean[PROFILES];
+        for (int e = 0; e < 2; e++) {
+            for (int a = 0; a < 2; a++) {
+                for (int s = 0; s < SIZES; s++) {
+                    wanted[profile(e == 1, a == 1, s)] = (ev == null || ev == (e == 1))
+                            && (accessible == null || accessible == (a == 1))
+                            && (size == null || size.ordinal() == s);
+                }
+            }
+        }
+        return wanted;
+    }
+
+    private static final class SlotEntry {
+        private final String lot;
+        private final int profile;
+        private final boolean free;
+
+        private SlotEntry(String lot, int profile, boolean free) {
+            this.lot = lot;
+            this.profile = profile;
+            this.free = free;
+        }
+    }
+
+    private static final class Counts {
+        private final Map<String, SlotEntry> slots = new ConcurrentHashMap<>();
+        private final Map<String, AtomicIntegerArray> lots = new ConcurrentHashMap<>();
+
+        private void update(String slotId, String lot, int profile, boolean free) {
+            SlotEntry entry = new SlotEntry(lot, profile, free);
+            // compute runs one update per slot at a time, so the counters stay balanced
+            slots.compute(slotId, (id, previous) -> {
+                adjust(previous, -1);
+                adjust(entry, 1);
+                return entry;
+            });
+        }
+
+        private void remove(String slotId) {
+            slots.computeIfPresent(slotId, (id, previous) -> {
+                adjust(previous, -1);
+                return null;
+            });
+        }
+
+        private void adjust(SlotEntry entry, int delta) {
+            if (entry != null && entry.free && entry.lot != null) {
+                lots.computeIfAbsent(entry.lot, lot -> new AtomicIntegerArray(PROFILES)).addAndGet(entry.profile, delta);
+            }
+        }
+
+        /**
+         * Free slots in the lot, only in the wanted profiles unless null
+         */
+        private int free(String lot, boolean[] wanted) {
+            AtomicIntegerArray free = lot != null ? lots.get(lot) : null;
+            if (free == null) {
+                return 0;
+            }
+            int total = 0;
+            for (int profile = 0; profile < PROFILES; profile++) {
+                if (wanted == null || wanted[profile]) {
+                    total += free.get(profile);
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -18,6 +18,7 @@ public class Booking {
     private String slotId;
     private String startTime;
     private String endTime;
+    private String licensePlate; // Normalised, matched against gate events
     private BookingStatus status = BookingStatus.ACTIVE;
     private boolean penalty = false;
     private double penaltyAmount = 0.0;
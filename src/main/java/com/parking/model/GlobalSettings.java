@@ -12,6 +12,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Document(collection = "global_settings")
 public class GlobalSettings {
+    // Fixed id so concurrent initializers on several instances create one document
+    public static final String DEFAULT_ID = "default";
+    
     @Id
     private String id;
     private double defaultPenaltyAmount = 50.0; // Default penalty amount
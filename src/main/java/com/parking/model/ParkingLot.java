@@ -0,0 +1,26 @@
+package com.parking.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A site with a location. Slots belong to the lot whose name is in their lot field.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "parking_lots")
+public class ParkingLot {
+    @Id
+    private String id;
+    private String name;
+    private String address;
+    private double latitude;
+    private double longitude;
+    private String createdAt;
+    private String updatedAt;
+}
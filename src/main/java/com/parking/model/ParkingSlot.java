@@ -15,6 +15,7 @@ public class ParkingSlot {
     @Id
     private String id;
     private String slotNumber;
+    private String lot;
     private SlotStatus status = SlotStatus.AVAILABLE;
     private String bookedBy;
     private String startTime;
@@ -23,8 +24,21 @@ public class ParkingSlot {
     private String updatedAt;
     private double hourlyRate = 0.0; // Default hourly rate
     
+    // Searchable attributes, null when not recorded for the slot
+    private Boolean evCharger;
+    private SizeClass size;
+    private Integer floor;
+    private Boolean accessible;
+    
     public enum SlotStatus {
         AVAILABLE,
         OCCUPIED
     }
+    
+    public enum SizeClass {
+        MOTORCYCLE,
+        COMPACT,
+        STANDARD,
+        LARGE
+    }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.parking.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A slot reserved for one user while they confirm the booking. The id is the
+ * slot id, so a slot has at most one hold; a TTL index on expiresAt removes
+ * holds nobody reclaimed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "slot_holds")
+public class SlotHold {
+    @Id
+    private String slotId;
+    private String userId;
+    private Date expiresAt;
+    private String createdAt;
+}
@@ -0,0 +1,130 @@
+package com.parking.occupancy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * One UTC day of occupancy: the occupied count for each of the 1440 minutes
+ * (-1 where nothing was recorded) and, per slot, the occupied minutes in each
+ * of the 24 hours.
+ *
+ * On disk the minute counts are delta encoded as zigzag varints and the whole
+ * block is deflated, so a typical day takes a few hundred bytes plus 24 bytes
+ * per slot.
+ */
+class OccupancyDayBlock {
+
+    static final int MINUTES_PER_DAY = 1440;
+    static final int HOURS_PER_DAY = 24;
+
+    private static final int MAGIC = 0x4F434331; // "OCC1"
+
+    final long epochDay;
+    final int[] minutes;
+    final Map<String, int[]> slotHours;
+
+    OccupancyDayBlock(long epochDay, int[] minutes, Map<String, int[]> slotHours) {
+        this.epochDay = epochDay;
+        this.minutes = minutes;
+        this.slotHours = slotHours;
+    }
+
+    void write(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temp);
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new DeflaterOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(epochDay);
+
+            int previous = 0;
+            for (int value : minutes) {
+                writeVarint(out, zigzag(value - previous));
+                previous = value;
+            }
+
+            out.writeInt(slotHours.size());
+            for (Map.Entry<String, int[]> entry : slotHours.entrySet()) {
+                out.writeUTF(entry.getKey());
+                for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+                    out.writeByte(entry.getValue()[hour]);
+                }
+            }
+        }
+        // Readers never see a half written block
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static OccupancyDayBlock read(Path path) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new InflaterInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an occupancy block: " + path);
+            }
+            long epochDay = in.readLong();
+
+            int[] minutes = new int[MINUTES_PER_DAY];
+            int previous = 0;
+            for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                previous += unzigzag(readVarint(in));
+                minutes[minute] = previous;
+            }
+
+            int slotCount = in.readInt();
+            Map<String, int[]> slotHours = new HashMap<>(slotCount * 2);
+            for (int i = 0; i < slotCount; i++) {
+                String slotId = in.readUTF();
+                int[] hours = new int[HOURS_PER_DAY];
+                for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+                    hours[hour] = in.readUnsignedByte();
+                }
+                slotHours.put(slotId, hours);
+            }
+            return new OccupancyDayBlock(epochDay, minutes, slotHours);
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Malformed varint in occupancy block");
+            }
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,17 @@
+package com.parking.occupancy;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of occupied slots over one bucket of the occupancy time series
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyPoint {
+    private String start;
+    private double averageOccupied;
+    private int peakOccupied;
+}
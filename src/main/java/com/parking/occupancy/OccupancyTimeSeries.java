@@ -0,0 +1,389 @@
+package com.parking.occupancy;
+
+import static com.parking.occupancy.OccupancyDayBlock.HOURS_PER_DAY;
+import static com.parking.occupancy.OccupancyDayBlock.MINUTES_PER_DAY;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.parking.model.ParkingSlot;
+import com.parking.model.ParkingSlot.SlotStatus;
+import com.parking.repository.ParkingSlotRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Occupancy time series fed by slot book and release events.
+ *
+ * The last two days are kept in a ring of per-minute peak occupied counts.
+ * Per-slot occupied minutes are kept per hour for days that are still open.
+ * When a UTC day ends it is written to app.occupancy.dir as a compressed
+ * {@link OccupancyDayBlock}. Queries read the ring for recent days and cached
+ * blocks for older ones, so a year of data is 365 small files. Buckets and
+ * their labels are both in {@link #ZONE}, whatever the host's zone.
+ */
+@Component
+@Slf4j
+public class OccupancyTimeSeries {
+
+    public static final ZoneOffset ZONE = ZoneOffset.UTC;
+
+    private static final int RING_MINUTES = 2 * MINUTES_PER_DAY;
+    private static final int NO_DATA = -1;
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private ParkingSlotRepository parkingSlotRepository;
+
+    @Value("${app.occupancy.dir:data/occupancy}")
+    private String directory;
+
+    @Value("${app.occupancy.cached-days:400}")
+    private int cachedDays;
+
+    @Value("${app.occupancy.max-points:10000}")
+    private int maxPoints;
+
+    // Peak occupied count per minute, indexed by epoch minute modulo the ring size
+    private final int[] minuteRing = new int[RING_MINUTES];
+    private long headMinute = -1;
+    private long firstOpenDay;
+    private int occupiedNow;
+
+    // Open occupancies as slot id -> epoch minute they started
+    private final Map<String, Long> occupiedSince = new HashMap<>();
+
+    // Per-slot occupied minutes per hour for days not yet written, by epoch day
+    private final TreeMap<Long, Map<String, int[]>> openSlotHours = new TreeMap<>();
+
+    private Map<Long, OccupancyDayBlock> blockCache;
+
+    @PostConstruct
+    public synchronized void init() throws IOException {
+        Files.createDirectories(Paths.get(directory));
+        blockCache = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, OccupancyDayBlock> eldest) {
+                return size() > cachedDays;
+            }
+        };
+
+        Arrays.fill(minuteRing, NO_DATA);
+        long now = currentMinute();
+        long today = now / MINUTES_PER_DAY;
+        headMinute = now;
+        firstOpenDay = today;
+
+        // Pick up what an earlier process recorded today before it shut down
+        OccupancyDayBlock block = readBlock(today);
+        if (block != null) {
+            long dayStart = today * MINUTES_PER_DAY;
+            for (int minute = 0; dayStart + minute < now; minute++) {
+                minuteRing[ringIndex(dayStart + minute)] = block.minutes[minute];
+            }
+            openSlotHours.put(today, new HashMap<>(block.slotHours));
+            blockCache.remove(today);
+        }
+        minuteRing[ringIndex(now)] = 0;
+    }
+
+    /**
+     * Seed the open occupancies from MongoDB once the application is ready
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCurrentOccupancy() {
+        List<ParkingSlot> occupied = parkingSlotRepository.findByStatus(SlotStatus.OCCUPIED);
+        for (ParkingSlot slot : occupied) {
+            slotOccupied(slot.getId());
+        }
+        log.info("Occupancy time series started with {} occupied slots", occupied.size());
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        long now = currentMinute();
+        advanceTo(now);
+
+        // Write what we have for today; a restart later today reads it back
+        for (Map.Entry<String, Long> entry : occupiedSince.entrySet()) {
+            accrue(entry.getKey(), entry.getValue(), now);
+            entry.setValue(now);
+        }
+        writeDay(now / MINUTES_PER_DAY);
+    }
+
+    @Scheduled(fixedRate = 60_000)
+    public synchronized void tick() {
+        advanceTo(currentMinute());
+    }
+
+    public synchronized void slotOccupied(String slotId) {
+        long now = currentMinute();
+        advanceTo(now);
+        if (occupiedSince.putIfAbsent(slotId, now) == null) {
+            occupiedNow++;
+            int index = ringIndex(now);
+            minuteRing[index] = Math.max(minuteRing[index], occupiedNow);
+        }
+    }
+
+    public synchronized void slotReleased(String slotId) {
+        long now = currentMinute();
+        advanceTo(now);
+        Long since = occupiedSince.remove(slotId);
+        if (since != null) {
+            occupiedNow--;
+            accrue(slotId, since, now);
+        }
+    }
+
+    /**
+     * Average and peak occupied slots per bucket between two instants (epoch millis)
+     */
+    public synchronized List<OccupancyPoint> query(long fromMillis, long toMillis, Resolution resolution) {
+        long bucketMinutes = resolution.getMinutes();
+        long first = Math.floorDiv(fromMillis / MILLIS_PER_MINUTE, bucketMinutes) * bucketMinutes;
+        long last = toMillis / MILLIS_PER_MINUTE;
+        checkPointCount(first, last, bucketMinutes);
+
+        List<OccupancyPoint> points = new ArrayList<>();
+        long loadedDay = Long.MIN_VALUE;
+        int[] dayValues = null;
+
+        for (long bucket = first; bucket <= last; bucket += bucketMinutes) {
+            long sum = 0;
+            int count = 0;
+            int peak = 0;
+            for (long minute = bucket; minute < bucket + bucketMinutes && minute <= last; minute++) {
+                long day = minute / MINUTES_PER_DAY;
+                if (day != loadedDay) {
+                    dayValues = minuteValues(day);
+                    loadedDay = day;
+                }
+                if (dayValues == null) {
+                    // Nothing recorded for this day, skip to its end
+                    minute = (day + 1) * MINUTES_PER_DAY - 1;
+                    continue;
+                }
+                int value = dayValues[(int) (minute - day * MINUTES_PER_DAY)];
+                if (value != NO_DATA) {
+                    sum += value;
+                    count++;
+                    peak = Math.max(peak, value);
+                }
+            }
+            if (count > 0) {
+                points.add(new OccupancyPoint(format(bucket), (double) sum / count, peak));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Occupied minutes of a single slot per bucket; minute resolution is served as hours
+     */
+    public synchronized List<SlotUtilizationPoint> querySlot(String slotId, long fromMillis, long toMillis, Resolution resolution) {
+        long bucketMinutes = Math.max(resolution.getMinutes(), Resolution.HOUR.getMinutes());
+        long first = Math.floorDiv(fromMillis / MILLIS_PER_MINUTE, bucketMinutes) * bucketMinutes;
+        long last = toMillis / MILLIS_PER_MINUTE;
+        checkPointCount(first, last, bucketMinutes);
+
+        long now = currentMinute();
+        Long openSince = occupiedSince.get(slotId);
+
+        List<SlotUtilizationPoint> points = new ArrayList<>();
+        for (long bucket = first; bucket <= last; bucket += bucketMinutes) {
+            int occupied = 0;
+            for (long hour = bucket; hour < bucket + bucketMinutes; hour += 60) {
+                long day = hour / MINUTES_PER_DAY;
+                int[] hours = slotHoursFor(day, slotId);
+                if (hours != null) {
+                    occupied += hours[(int) ((hour - day * MINUTES_PER_DAY) / 60)];
+                }
+            }
+            // The running occupancy has not been accrued yet
+            if (openSince != null) {
+                long overlapStart = Math.max(openSince, bucket);
+                long overlapEnd = Math.min(now, bucket + bucketMinutes);
+                occupied += (int) Math.max(0, overlapEnd - overlapStart);
+            }
+            points.add(new SlotUtilizationPoint(format(bucket), occupied, (double) occupied / bucketMinutes));
+        }
+        return points;
+    }
+
+    private void checkPointCount(long first, long last, long bucketMinutes) {
+        if (last < first) {
+            throw new RuntimeException("'to' must be after 'from'");
+        }
+        if ((last - first) / bucketMinutes + 1 > maxPoints) {
+            throw new RuntimeException("Too many points requested, use a coarser resolution");
+        }
+    }
+
+    /**
+     * Move the head of the ring forward, carrying the current count into every
+     * minute passed and writing out each day that completes on the way
+     */
+    private void advanceTo(long minute) {
+        while (headMinute < minute) {
+            long headDay = headMinute / MINUTES_PER_DAY;
+            long dayEnd = (headDay + 1) * MINUTES_PER_DAY - 1;
+            long target = Math.min(minute, dayEnd);
+
+            for (long m = headMinute + 1; m <= target; m++) {
+                minuteRing[ringIndex(m)] = occupiedNow;
+            }
+            headMinute = target;
+
+            if (target == dayEnd && minute > dayEnd) {
+                completeDay(headDay);
+                headMinute = dayEnd + 1;
+                minuteRing[ringIndex(headMinute)] = occupiedNow;
+            }
+        }
+    }
+
+    private void completeDay(long day) {
+        long nextDayStart = (day + 1) * MINUTES_PER_DAY;
+        for (Map.Entry<String, Long> entry : occupiedSince.entrySet()) {
+            if (entry.getValue() < nextDayStart) {
+                accrue(entry.getKey(), entry.getValue(), nextDayStart);
+                entry.setValue(nextDayStart);
+            }
+        }
+
+        writeDay(day);
+        openSlotHours.remove(day);
+        firstOpenDay = day + 1;
+    }
+
+    private void writeDay(long day) {
+        int[] minutes = ringValues(day);
+        Map<String, int[]> slotHours = openSlotHours.getOrDefault(day, new HashMap<>());
+        OccupancyDayBlock block = new OccupancyDayBlock(day, minutes, new HashMap<>(slotHours));
+
+        try {
+            block.write(blockPath(day));
+            blockCache.put(day, block);
+        } catch (IOException e) {
+            log.error("Failed to write occupancy block for {}: {}", LocalDate.ofEpochDay(day), e.getMessage());
+        }
+    }
+
+    /**
+     * Add the minutes in [fromMinute, toMinute) to the slot's hourly buckets
+     */
+    private void accrue(String slotId, long fromMinute, long toMinute) {
+        long minute = fromMinute;
+        while (minute < toMinute) {
+            long hourEnd = (minute / 60 + 1) * 60;
+            long end = Math.min(hourEnd, toMinute);
+            long day = minute / MINUTES_PER_DAY;
+            int hour = (int) ((minute - day * MINUTES_PER_DAY) / 60);
+
+            int[] hours = openSlotHours.computeIfAbsent(day, d -> new HashMap<>())
+                    .computeIfAbsent(slotId, id -> new int[HOURS_PER_DAY]);
+            hours[hour] += (int) (end - minute);
+            minute = end;
+        }
+    }
+
+    private int[] minuteValues(long day) {
+        if (day >= firstOpenDay) {
+            return day * MINUTES_PER_DAY <= headMinute ? ringValues(day) : null;
+        }
+        OccupancyDayBlock block = cachedBlock(day);
+        return block != null ? block.minutes : null;
+    }
+
+    private int[] slotHoursFor(long day, String slotId) {
+        if (day >= firstOpenDay) {
+            Map<String, int[]> slots = openSlotHours.get(day);
+            return slots != null ? slots.get(slotId) : null;
+        }
+        OccupancyDayBlock block = cachedBlock(day);
+        return block != null ? block.slotHours.get(slotId) : null;
+    }
+
+    private int[] ringValues(long day) {
+        int[] values = new int[MINUTES_PER_DAY];
+        long dayStart = day * MINUTES_PER_DAY;
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            long m = dayStart + minute;
+            boolean inRing = m <= headMinute && m > headMinute - RING_MINUTES;
+            values[minute] = inRing ? minuteRing[ringIndex(m)] : NO_DATA;
+        }
+        return values;
+    }
+
+    private OccupancyDayBlock cachedBlock(long day) {
+        OccupancyDayBlock block = blockCache.get(day);
+        if (block == null) {
+            block = readBlock(day);
+            if (block != null) {
+                blockCache.put(day, block);
+            }
+        }
+        return block;
+    }
+
+    private OccupancyDayBlock readBlock(long day) {
+        Path path = blockPath(day);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return OccupancyDayBlock.read(path);
+        } catch (IOException e) {
+            log.error("Failed to read occupancy block {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path blockPath(long day) {
+        return Paths.get(directory, "occupancy-" + LocalDate.ofEpochDay(day) + ".bin");
+    }
+
+    private static int ringIndex(long minute) {
+        return (int) Math.floorMod(minute, (long) RING_MINUTES);
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / MILLIS_PER_MINUTE;
+    }
+
+    private static String format(long epochMinute) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMinute * MILLIS_PER_MINUTE), ZONE)
+                .format(formatter);
+    }
+}
@@ -0,0 +1,17 @@
+package com.parking.occupancy;
+
+public enum Resolution {
+    MINUTE(1),
+    HOUR(60),
+    DAY(1440);
+
+    private final int minutes;
+
+    Resolution(int minutes) {
+        this.minutes = minutes;
+    }
+
+    public int getMinutes() {
+        return minutes;
+    }
+}
@@ -0,0 +1,17 @@
+package com.parking.occupancy;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Minutes a single slot was occupied over one bucket, and the share of the bucket that represents
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotUtilizationPoint {
+    private String start;
+    private int occupiedMinutes;
+    private double utilization;
+}
@@ -0,0 +1,215 @@
+package com.parking.reporting;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.parking.model.Booking.BookingStatus;
+
+/**
+ * Immutable column-oriented snapshot of the bookings collection.
+ *
+ * User and slot ids are dictionary encoded into int codes, times are seconds
+ * since 1970-01-01T00:00 in local wall-clock time (so weekday and hour
+ * grouping need no time zone work), amounts are doubles and the status is the
+ * enum ordinal as a byte. The columns are the builder's arrays and may be
+ * longer than size; only the first size entries are rows.
+ */
+class BookingColumns {
+
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    final int size;
+    final long builtAt;
+    final int[] userCodes;
+    final int[] slotCodes;
+    final long[] startSeconds;
+    final long[] endSeconds;
+    final double[] totalAmounts;
+    final double[] penaltyAmounts;
+    final byte[] statuses;
+    final byte[] penalties;
+    final String[] userDictionary;
+    final String[] slotDictionary;
+    final Map<String, Integer> userCodeLookup;
+    final Map<String, Integer> slotCodeLookup;
+    final int firstMonth;
+    final int monthCount;
+
+    private BookingColumns(Builder builder) {
+        size = builder.size;
+        builtAt = System.currentTimeMillis();
+        userCodes = builder.userCodes;
+        slotCodes = builder.slotCodes;
+        startSeconds = builder.startSeconds;
+        endSeconds = builder.endSeconds;
+        totalAmounts = builder.totalAmounts;
+        penaltyAmounts = builder.penaltyAmounts;
+        statuses = builder.statuses;
+        penalties = builder.penalties;
+        userDictionary = dictionary(builder.users);
+        slotDictionary = dictionary(builder.slots);
+        userCodeLookup = builder.users;
+        slotCodeLookup = builder.slots;
+
+        int minMonth = Integer.MAX_VALUE;
+        int maxMonth = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (startSeconds[i] != NO_TIME) {
+                int month = monthKey(startSeconds[i]);
+                minMonth = Math.min(minMonth, month);
+                maxMonth = Math.max(maxMonth, month);
+            }
+        }
+        firstMonth = minMonth == Integer.MAX_VALUE ? 0 : minMonth;
+        monthCount = minMonth == Integer.MAX_VALUE ? 0 : maxMonth - minMonth + 1;
+    }
+
+    private static String[] dictionary(Map<String, Integer> codes) {
+        String[] dictionary = new String[codes.size()];
+        codes.forEach((value, code) -> dictionary[code] = value);
+        return dictionary;
+    }
+
+    /**
+     * Parse yyyy-MM-dd HH:mm:ss (or the yyyy-MM-ddTHH:mm form sent by the
+     * frontend) into local epoch seconds without allocating
+     */
+    static long parseLocalSeconds(String value) {
+        if (value == null || value.length() < 16) {
+            return NO_TIME;
+        }
+        try {
+            int year = digits(value, 0, 4);
+            int month = digits(value, 5, 2);
+            int day = digits(value, 8, 2);
+            int hour = digits(value, 11, 2);
+            int minute = digits(value, 14, 2);
+            int second = value.length() >= 19 ? digits(value, 17, 2) : 0;
+            return epochDay(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second;
+        } catch (NumberFormatException e) {
+            return NO_TIME;
+        }
+    }
+
+    private static int digits(String value, int offset, int length) {
+        int result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(value);
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar
+     */
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    /**
+     * year * 12 + (month - 1) of a local epoch second
+     */
+    static int monthKey(long seconds) {
+        long z = Math.floorDiv(seconds, 86_400L) + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+
+    /**
+     * Monday = 0 ... Sunday = 6; 1970-01-01 was a Thursday
+     */
+    static int weekday(long seconds) {
+        return (int) Math.floorMod(Math.floorDiv(seconds, 86_400L) + 3, 7L);
+    }
+
+    static int hourOfDay(long seconds) {
+        return (int) (Math.floorMod(seconds, 86_400L) / 3_600);
+    }
+
+    static class Builder {
+        private int size;
+        private int[] userCodes;
+        private int[] slotCodes;
+        private long[] startSeconds;
+        private long[] endSeconds;
+        private double[] totalAmounts;
+        private double[] penaltyAmounts;
+        private byte[] statuses;
+        private byte[] penalties;
+        private final Map<String, Integer> users = new HashMap<>();
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1024);
+            userCodes = new int[capacity];
+            slotCodes = new int[capacity];
+            startSeconds = new long[capacity];
+            endSeconds = new long[capacity];
+            totalAmounts = new double[capacity];
+            penaltyAmounts = new double[capacity];
+            statuses = new byte[capacity];
+            penalties = new byte[capacity];
+        }
+
+        void add(String userId, String slotId, String startTime, String endTime,
+                BookingStatus status, boolean penalty, double penaltyAmount, double totalAmount) {
+            if (size == userCodes.length) {
+                grow();
+            }
+            userCodes[size] = code(users, userId);
+            slotCodes[size] = code(slots, slotId);
+            startSeconds[size] = parseLocalSeconds(startTime);
+            endSeconds[size] = parseLocalSeconds(endTime);
+            totalAmounts[size] = totalAmount;
+            penaltyAmounts[size] = penaltyAmount;
+            statuses[size] = (byte) status.ordinal();
+            penalties[size] = (byte) (penalty ? 1 : 0);
+            size++;
+        }
+
+        BookingColumns build() {
+            return new BookingColumns(this);
+        }
+
+        private static int code(Map<String, Integer> dictionary, String value) {
+            String key = value != null ? value : "";
+            Integer code = dictionary.get(key);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.put(key, code);
+            }
+            return code;
+        }
+
+        /**
+         * Grows by half, as the columns keep whatever slack is left at the end
+         */
+        private void grow() {
+            int capacity = userCodes.length + (userCodes.length >> 1);
+            userCodes = Arrays.copyOf(userCodes, capacity);
+            slotCodes = Arrays.copyOf(slotCodes, capacity);
+            startSeconds = Arrays.copyOf(startSeconds, capacity);
+            endSeconds = Arrays.copyOf(endSeconds, capacity);
+            totalAmounts = Arrays.copyOf(totalAmounts, capacity);
+            penaltyAmounts = Arrays.copyOf(penaltyAmounts, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            penalties = Arrays.copyOf(penalties, capacity);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.parking.reporting;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingReport {
+    private String snapshotBuiltAt;
+    private int scannedBookings;
+    private long matchedBookings;
+    private long elapsedMs;
+    private List<BookingReportRow> rows;
+}
@@ -0,0 +1,517 @@
+package com.parking.reporting;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.parking.model.Booking.BookingStatus;
+import com.parking.reporting.BookingReportQuery.GroupBy;
+import com.parking.service.BookingArchiveService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ad-hoc booking reports over an in-memory {@link BookingColumns} snapshot.
+ *
+ * The snapshot is rebuilt every app.reporting.refresh-ms from a projected scan
+ * of the bookings collection that prefers secondaries, so reports never touch
+ * the primary. Queries split the rows across a fork-join pool, aggregate each
+ * range into primitive per-group arrays and merge the partial results. With
+ * many groups, as when grouping by user or slot, each range only keeps the
+ * groups it saw, so partial results stay the size of their range.
+ */
+@Service
+@Slf4j
+public class BookingReportEngine {
+
+    private static final int SPLIT_THRESHOLD = 1 << 16;
+    private static final int TOP_ROWS = 1000;
+    // Up to this many groups a range keeps an entry for every group
+    private static final int DENSE_GROUPS = 1024;
+    private static final BookingStatus[] STATUSES = BookingStatus.values();
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.reporting.batch-size:10000}")
+    private int batchSize;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private volatile BookingColumns snapshot;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInitialSnapshot() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.reporting.refresh-ms:300000}",
+            initialDelayString = "${app.reporting.refresh-ms:300000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Rebuild the snapshot from MongoDB, hot and archived bookings alike, and swap it in
+     */
+    public synchronized void refresh() {
+        long started = System.currentTimeMillis();
+        MongoCollection<Document> hot = collection("bookings");
+        MongoCollection<Document> archive = collection(BookingArchiveService.ARCHIVE_COLLECTION);
+
+        BookingColumns.Builder builder = new BookingColumns.Builder((int) Math.min(
+                hot.estimatedDocumentCount() + archive.estimatedDocumentCount(), Integer.MAX_VALUE - 8));
+        long skipped = load(hot, builder) + load(archive, builder);
+        if (skipped > 0) {
+            log.warn("Booking report snapshot skipped {} bookings with an unknown status", skipped);
+        }
+
+        snapshot = builder.build();
+        log.info("Booking report snapshot rebuilt with {} bookings in {} ms",
+                snapshot.size, System.currentTimeMillis() - started);
+    }
+
+    private MongoCollection<Document> collection(String name) {
+        return mongoTemplate.getCollection(name).withReadPreference(ReadPreference.secondaryPreferred());
+    }
+
+    /**
+     * Add the collection's bookings to the builder. Returns how many were
+     * skipped for having a status this version does not know.
+     */
+    private long load(MongoCollection<Document> collection, BookingColumns.Builder builder) {
+        Document projection = new Document("userId", 1).append("slotId", 1)
+                .append("startTime", 1).append("endTime", 1).append("status", 1)
+                .append("penalty", 1).append("penaltyAmount", 1).append("totalAmount", 1);
+
+        long skipped = 0;
+        try (MongoCursor<Document> cursor = collection.find().projection(projection).batchSize(batchSize).iterator()) {
+            while (cursor.hasNext()) {
+                Document doc = cursor.next();
+                BookingStatus status = status(doc.get("status"));
+                if (status == null) {
+                    skipped++;
+                    continue;
+                }
+                builder.add(
+                        doc.getString("userId"),
+                        doc.getString("slotId"),
+                        doc.getString("startTime"),
+                        doc.getString("endTime"),
+                        status,
+                        Boolean.TRUE.equals(doc.getBoolean("penalty")),
+                        number(doc.get("penaltyAmount")),
+                        number(doc.get("totalAmount")));
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * The stored status, ACTIVE when missing, or null when not one we know
+     */
+    private static BookingStatus status(Object value) {
+        if (value == null) {
+            return BookingStatus.ACTIVE;
+        }
+        for (BookingStatus status : STATUSES) {
+            if (status.name().equals(value)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    public BookingReport run(BookingReportQuery query) {
+        BookingColumns columns = snapshot;
+        if (columns == null) {
+            throw new RuntimeException("Error: Booking report snapshot is still loading");
+        }
+
+        long started = System.currentTimeMillis();
+        Filter filter = new Filter(columns, query);
+        GroupBy groupBy = query.getGroupBy() != null ? query.getGroupBy() : GroupBy.NONE;
+
+        Accumulator total;
+        if (filter.matchesNothing) {
+            total = new Accumulator(0);
+        } else {
+            total = pool.invoke(new ScanTask(columns, filter, groupBy, groupCount(columns, groupBy), 0, columns.size));
+        }
+
+        List<BookingReportRow> rows = new ArrayList<>();
+        long matched = 0;
+        for (int entry = 0; entry < total.size(); entry++) {
+            long bookings = total.bookings[entry];
+            if (bookings == 0) {
+                continue;
+            }
+            matched += bookings;
+            rows.add(new BookingReportRow(
+                    groupLabel(columns, groupBy, total.groupAt(entry)),
+                    bookings,
+                    total.totalAmount[entry],
+                    total.totalAmount[entry] / bookings,
+                    total.stays[entry] > 0 ? total.stayMinutes[entry] / total.stays[entry] : 0.0,
+                    (double) total.penalties[entry] / bookings,
+                    total.penaltyAmount[entry]));
+        }
+
+        // Slots and users can have huge cardinality; return the busiest groups only
+        if (groupBy == GroupBy.SLOT || groupBy == GroupBy.USER) {
+            rows.sort((a, b) -> Long.compare(b.getBookings(), a.getBookings()));
+            if (rows.size() > TOP_ROWS) {
+                rows = new ArrayList<>(rows.subList(0, TOP_ROWS));
+            }
+        }
+
+        String builtAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(columns.builtAt), ZoneId.systemDefault()).format(formatter);
+        return new BookingReport(builtAt, columns.size, matched, System.currentTimeMillis() - started, rows);
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private static int groupCount(BookingColumns columns, GroupBy groupBy) {
+        switch (groupBy) {
+            case STATUS:
+                return STATUSES.length;
+            case WEEKDAY:
+                return 7;
+            case HOUR:
+                return 24;
+            case MONTH:
+                return columns.monthCount;
+            case SLOT:
+                return columns.slotDictionary.length;
+            case USER:
+                return columns.userDictionary.length;
+            default:
+                return 1;
+        }
+    }
+
+    private static String groupLabel(BookingColumns columns, GroupBy groupBy, int group) {
+        switch (groupBy) {
+            case STATUS:
+                return STATUSES[group].name();
+            case WEEKDAY:
+                return DayOfWeek.of(group + 1).getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+            case HOUR:
+                return String.format("%02d:00", group);
+            case MONTH:
+                int month = columns.firstMonth + group;
+                return String.format("%04d-%02d", month / 12, month % 12 + 1);
+            case SLOT:
+                return columns.slotDictionary[group];
+            case USER:
+                return columns.userDictionary[group];
+            default:
+                return "ALL";
+        }
+    }
+
+    /**
+     * Query filters translated to the snapshot's encoding
+     */
+    private static class Filter {
+        final int statusMask;
+        final long from;
+        final long to;
+        final int userCode;
+        final int slotCode;
+        final int penalty;
+        final boolean matchesNothing;
+
+        Filter(BookingColumns columns, BookingReportQuery query) {
+            int mask = 0;
+            if (query.getStatuses() == null || query.getStatuses().isEmpty()) {
+                mask = -1;
+            } else {
+                for (BookingStatus status : query.getStatuses()) {
+                    mask |= 1 << status.ordinal();
+                }
+            }
+            statusMask = mask;
+
+            from = parseBound(query.getFrom(), Long.MIN_VALUE);
+            to = parseBound(query.getTo(), Long.MAX_VALUE);
+            penalty = query.getPenalty() == null ? -1 : (query.getPenalty() ? 1 : 0);
+
+            Integer user = query.getUserId() != null ? columns.userCodeLookup.get(query.getUserId()) : null;
+            Integer slot = query.getSlotId() != null ? columns.slotCodeLookup.get(query.getSlotId()) : null;
+            userCode = user != null ? user : -1;
+            slotCode = slot != null ? slot : -1;
+
+            // An id the snapshot has never seen cannot match any row
+            matchesNothing = (query.getUserId() != null && user == null)
+                    || (query.getSlotId() != null && slot == null);
+        }
+
+        private static long parseBound(String value, long unbounded) {
+            if (value == null || value.isEmpty()) {
+                return unbounded;
+            }
+            long seconds = BookingColumns.parseLocalSeconds(value);
+            if (seconds == BookingColumns.NO_TIME) {
+                throw new RuntimeException("Error: Invalid time, expected yyyy-MM-dd HH:mm:ss");
+            }
+            return seconds;
+        }
+
+        boolean hasTimeRange() {
+            return from != Long.MIN_VALUE || to != Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Per-group partial aggregates of one row range. With few groups entry g is
+     * group g. Otherwise entries are added as groups are first seen and found
+     * through an open-addressing table, so a range over a million users only
+     * holds the users in it.
+     */
+    private static class Accumulator {
+        private final boolean dense;
+        private int size;
+        // Sparse only: the group of each entry, and entry + 1 by hash, 0 when free
+        private int[] groups;
+        private int[] table;
+
+        long[] bookings;
+        double[] totalAmount;
+        double[] stayMinutes;
+        long[] stays;
+        long[] penalties;
+        double[] penaltyAmount;
+
+        Accumulator(int groupCount) {
+            dense = groupCount <= DENSE_GROUPS;
+            int capacity = dense ? groupCount : 64;
+            allocate(capacity);
+            if (dense) {
+                size = groupCount;
+            } else {
+                groups = new int[capacity];
+                table = new int[capacity * 2];
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int groupAt(int entry) {
+            return dense ? entry : groups[entry];
+        }
+
+        /**
+         * The entry for the group, added if this range has not seen it yet
+         */
+        int entry(int group) {
+            if (dense) {
+                return group;
+            }
+            int mask = table.length - 1;
+            for (int slot = mix(group) & mask;; slot = (slot + 1) & mask) {
+                int entry = table[slot] - 1;
+                if (entry < 0) {
+                    if (size == groups.length) {
+                        grow();
+                        return entry(group);
+                    }
+                    groups[size] = group;
+                    table[slot] = size + 1;
+                    return size++;
+                }
+                if (groups[entry] == group) {
+                    return entry;
+                }
+            }
+        }
+
+        /**
+         * Fold the other range's results in, into whichever of the two holds
+         * more entries, and return that one
+         */
+        Accumulator merge(Accumulator other) {
+            if (!dense && other.size > size) {
+                return other.merge(this);
+            }
+            for (int e = 0; e < other.size; e++) {
+                if (other.bookings[e] == 0) {
+                    continue;
+                }
+                int g = entry(other.groupAt(e));
+                bookings[g] += other.bookings[e];
+                totalAmount[g] += other.totalAmount[e];
+                stayMinutes[g] += other.stayMinutes[e];
+                stays[g] += other.stays[e];
+                penalties[g] += other.penalties[e];
+                penaltyAmount[g] += other.penaltyAmount[e];
+            }
+            return this;
+        }
+
+        private void allocate(int capacity) {
+            bookings = new long[capacity];
+            totalAmount = new double[capacity];
+            stayMinutes = new double[capacity];
+            stays = new long[capacity];
+            penalties = new long[capacity];
+            penaltyAmount = new double[capacity];
+        }
+
+        private void grow() {
+            int capacity = groups.length * 2;
+            groups = Arrays.copyOf(groups, capacity);
+            bookings = Arrays.copyOf(bookings, capacity);
+            totalAmount = Arrays.copyOf(totalAmount, capacity);
+            stayMinutes = Arrays.copyOf(stayMinutes, capacity);
+            stays = Arrays.copyOf(stays, capacity);
+            penalties = Arrays.copyOf(penalties, capacity);
+            penaltyAmount = Arrays.copyOf(penaltyAmount, capacity);
+
+            table = new int[capacity * 2];
+            int mask = table.length - 1;
+            for (int e = 0; e < size; e++) {
+                int slot = mix(groups[e]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = e + 1;
+            }
+        }
+
+        private static int mix(int group) {
+            // Codes are dense small ints; spread them over the table
+            int h = group * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private static class ScanTask extends RecursiveTask<Accumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final BookingColumns columns;
+        private final Filter filter;
+        private final GroupBy groupBy;
+        private final int groups;
+        private final int from;
+        private final int to;
+
+        ScanTask(BookingColumns columns, Filter filter, GroupBy groupBy, int groups, int from, int to) {
+            this.columns = columns;
+            this.filter = filter;
+            this.groupBy = groupBy;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(columns, filter, groupBy, groups, from, middle);
+                left.fork();
+                Accumulator right = new ScanTask(columns, filter, groupBy, groups, middle, to).compute();
+                return left.join().merge(right);
+            }
+            return scan();
+        }
+
+        private Accumulator scan() {
+            Accumulator acc = new Accumulator(groups);
+            boolean timeRange = filter.hasTimeRange();
+
+            for (int i = from; i < to; i++) {
+                if ((filter.statusMask & (1 << columns.statuses[i])) == 0) {
+                    continue;
+                }
+                if (filter.userCode >= 0 && columns.userCodes[i] != filter.userCode) {
+                    continue;
+                }
+                if (filter.slotCode >= 0 && columns.slotCodes[i] != filter.slotCode) {
+                    continue;
+                }
+                if (filter.penalty >= 0 && columns.penalties[i] != filter.penalty) {
+                    continue;
+                }
+                long start = columns.startSeconds[i];
+                if (timeRange && (start == BookingColumns.NO_TIME || start < filter.from || start >= filter.to)) {
+                    continue;
+                }
+
+                int group = group(i, start);
+                if (group < 0) {
+                    continue;
+                }
+
+                int e = acc.entry(group);
+                acc.bookings[e]++;
+                acc.totalAmount[e] += columns.totalAmounts[i];
+                if (columns.penalties[i] != 0) {
+                    acc.penalties[e]++;
+                    acc.penaltyAmount[e] += columns.penaltyAmounts[i];
+                }
+                long end = columns.endSeconds[i];
+                if (start != BookingColumns.NO_TIME && end != BookingColumns.NO_TIME && end >= start) {
+                    acc.stayMinutes[e] += (end - start) / 60.0;
+                    acc.stays[e]++;
+                }
+            }
+            return acc;
+        }
+
+        private int group(int i, long start) {
+            switch (groupBy) {
+                case STATUS:
+                    return columns.statuses[i];
+                case WEEKDAY:
+                    return start == BookingColumns.NO_TIME ? -1 : BookingColumns.weekday(start);
+                case HOUR:
+                    return start == BookingColumns.NO_TIME ? -1 : BookingColumns.hourOfDay(start);
+                case MONTH:
+                    return start == BookingColumns.NO_TIME ? -1 : BookingColumns.monthKey(start) - columns.firstMonth;
+                case SLOT:
+                    return columns.slotCodes[i];
+                case USER:
+                    return columns.userCodes[i];
+                default:
+                    return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.parking.reporting;
+
+import java.util.Set;
+
+import com.parking.model.Booking.BookingStatus;
+
+import lombok.Data;
+
+/**
+ * Ad-hoc booking report: optional filters plus one grouping dimension. Times
+ * are matched against the booking start time (yyyy-MM-dd HH:mm:ss).
+ */
+@Data
+public class BookingReportQuery {
+    private Set<BookingStatus> statuses;
+    private String from;
+    private String to;
+    private String userId;
+    private String slotId;
+    private Boolean penalty;
+    private GroupBy groupBy = GroupBy.NONE;
+
+    public enum GroupBy {
+        NONE,
+        STATUS,
+        WEEKDAY,
+        HOUR,
+        MONTH,
+        SLOT,
+        USER
+    }
+}
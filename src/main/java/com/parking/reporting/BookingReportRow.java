@@ -0,0 +1,18 @@
+package com.parking.reporting;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingReportRow {
+    private String group;
+    private long bookings;
+    private double totalAmount;
+    private double averageAmount;
+    private double averageStayMinutes;
+    private double penaltyRate;
+    private double penaltyAmount;
+}
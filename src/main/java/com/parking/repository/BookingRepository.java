@@ -12,4 +12,6 @@ public interface BookingRepository extends MongoRepository<Booking, String> {
     List<Booking> findBySlotId(String slotId);
     List<Booking> findByStatus(BookingStatus status);
     List<Booking> findByUserIdAndStatus(String userId, BookingStatus status);
+    long countByStatus(BookingStatus status);
+    long countByPenaltyTrue();
 }
\ No newline at end of file
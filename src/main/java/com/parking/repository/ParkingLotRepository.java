@@ -0,0 +1,9 @@
+package com.parking.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.parking.model.ParkingLot;
+
+public interface ParkingLotRepository extends MongoRepository<ParkingLot, String> {
+    Boolean existsByName(String name);
+}
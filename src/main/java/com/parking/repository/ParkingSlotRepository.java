@@ -1,8 +1,10 @@
 package com.parking.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import com.parking.model.ParkingSlot;
 import com.parking.model.ParkingSlot.SlotStatus;
@@ -10,4 +12,8 @@ import com.parking.model.ParkingSlot.SlotStatus;
 public interface ParkingSlotRepository extends MongoRepository<ParkingSlot, String> {
     List<ParkingSlot> findByStatus(SlotStatus status);
     Boolean existsBySlotNumber(String slotNumber);
-}
\ No newline at end of file
+    
+    // Only the slot numbers are needed for duplicate detection
+    @Query(value = "{ 'slotNumber' : { $in : ?0 } }", fields = "{ 'slotNumber' : 1 }")
+    List<ParkingSlot> findSlotNumbersIn(Collection<String> slotNumbers);
+}
@@ -14,6 +14,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import com.parking.tracing.RequestTracer;
+import com.parking.tracing.TracedPasswordEncoder;
+
 @Configuration
 @EnableMethodSecurity
 public class WebSecurityConfig {
@@ -24,6 +27,9 @@ public class WebSecurityConfig {
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
 
+    @Autowired
+    private RequestTracer requestTracer;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
@@ -46,7 +52,7 @@ public class WebSecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new TracedPasswordEncoder(new BCryptPasswordEncoder(), requestTracer);
     }
 
     @Bean
@@ -57,6 +63,7 @@ public class WebSecurityConfig {
             .authorizeHttpRequests(auth -> 
                 auth.requestMatchers("/api/auth/**").permitAll()
                     .requestMatchers("/api/parking-slots/available").permitAll()
+                    .requestMatchers("/api/parking-lots/nearest").permitAll()
                     .requestMatchers("/api/admin/**").hasRole("ADMIN")
                     .anyRequest().authenticated()
             );
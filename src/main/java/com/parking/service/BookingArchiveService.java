@@ -0,0 +1,136 @@
+package com.parking.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.parking.model.Booking;
+import com.parking.model.Booking.BookingStatus;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves closed bookings out of the hot bookings collection.
+ *
+ * COMPLETED and CANCELLED bookings whose last update is older than
+ * app.archive.min-age-days are copied to bookings_archive and then removed
+ * from bookings, in batches. The copy is an upsert by id, so a run that died
+ * between the two steps just copies the same bookings again next time.
+ */
+@Service
+@Slf4j
+public class BookingArchiveService {
+
+    public static final String ARCHIVE_COLLECTION = "bookings_archive";
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Value("${app.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.archive.min-age-days:30}")
+    private long minAgeDays;
+
+    @Value("${app.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        // The archival query, and user history lookups in the archive
+        mongoTemplate.indexOps(Booking.class)
+                .ensureIndex(new Index().on("status", Sort.Direction.ASC).on("updatedAt", Sort.Direction.ASC));
+        mongoTemplate.indexOps(ARCHIVE_COLLECTION)
+                .ensureIndex(new Index().on("userId", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+    }
+
+    @Scheduled(fixedDelayString = "${app.archive.interval-ms:3600000}",
+            initialDelayString = "${app.archive.interval-ms:3600000}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveClosedBookings();
+        }
+    }
+
+    /**
+     * Archive every closed booking past the age limit and return how many were moved
+     */
+    public long archiveClosedBookings() {
+        // Times are stored as yyyy-MM-dd HH:mm:ss, which sorts chronologically as a string
+        String cutoff = LocalDateTime.now().minusDays(minAgeDays).format(formatter);
+        Query query = new Query(Criteria.where("status").in(BookingStatus.COMPLETED, BookingStatus.CANCELLED)
+                .and("updatedAt").lt(cutoff))
+                .limit(batchSize);
+
+        long started = System.currentTimeMillis();
+        long moved = 0;
+        List<Booking> batch;
+        while (!(batch = mongoTemplate.find(query, Booking.class)).isEmpty()) {
+            BulkOperations copy = mongoTemplate.bulkOps(BulkMode.UNORDERED, Booking.class, ARCHIVE_COLLECTION);
+            for (Booking booking : batch) {
+                copy.replaceOne(Query.query(Criteria.where("_id").is(booking.getId())), booking,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            copy.execute();
+
+            List<String> ids = batch.stream().map(Booking::getId).collect(Collectors.toList());
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), Booking.class);
+            moved += batch.size();
+
+            // Hot listings changed for these users even though their history did not
+            Set<String> users = new HashSet<>();
+            batch.forEach(booking -> users.add(booking.getUserId()));
+            users.forEach(dataVersionService::bumpBookingsVersion);
+        }
+
+        if (moved > 0) {
+            log.info("Archived {} closed bookings older than {} in {} ms", moved, cutoff, System.currentTimeMillis() - started);
+        }
+        return moved;
+    }
+
+    public List<Booking> getArchivedBookings() {
+        return mongoTemplate.findAll(Booking.class, ARCHIVE_COLLECTION);
+    }
+
+    public List<Booking> getArchivedBookingsByUserId(String userId) {
+        return mongoTemplate.find(Query.query(Criteria.where("userId").is(userId)), Booking.class, ARCHIVE_COLLECTION);
+    }
+
+    public List<Booking> getArchivedBookingsWithPenalty() {
+        return mongoTemplate.find(Query.query(Criteria.where("penalty").is(true)), Booking.class, ARCHIVE_COLLECTION);
+    }
+
+    public long countArchivedBookings(BookingStatus status) {
+        return mongoTemplate.count(Query.query(Criteria.where("status").is(status)), Booking.class, ARCHIVE_COLLECTION);
+    }
+
+    public long countArchivedBookingsWithPenalty() {
+        return mongoTemplate.count(Query.query(Criteria.where("penalty").is(true)), Booking.class, ARCHIVE_COLLECTION);
+    }
+}
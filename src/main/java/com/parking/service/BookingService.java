@@ -8,14 +8,32 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import com.parking.cluster.ClusterService;
+import com.parking.dto.ListOptions;
+import com.parking.dto.ListPage;
+import com.parking.gate.PlateIndex;
+import com.parking.journal.BookingJournal;
+import com.parking.journal.JournalEvent;
+import com.parking.journal.JournalEvent.EventType;
 import com.parking.model.Booking;
 import com.parking.model.Booking.BookingStatus;
 import com.parking.model.ParkingSlot;
 import com.parking.repository.BookingRepository;
 
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
 @Service
+@Slf4j
 public class BookingService {
 
     @Autowired
@@ -27,25 +45,118 @@ public class BookingService {
     @Autowired
     private GlobalSettingsService globalSettingsService;
     
+    @Autowired
+    private DataVersionService dataVersionService;
+    
+    @Autowired
+    private BookingJournal bookingJournal;
+    
+    @Autowired
+    private WaitlistService waitlistService;
+    
+    @Autowired
+    private WriteBehindService writeBehindService;
+    
+    @Autowired
+    private BookingArchiveService bookingArchiveService;
+    
+    @Autowired
+    private KeysetPager keysetPager;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private SlotHoldService slotHoldService;
+    
+    @Autowired
+    private BookingSummaryService bookingSummaryService;
+    
+    @Autowired
+    private PlateIndex plateIndex;
+    
+    @Autowired
+    private ClusterService clusterService;
+    
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
+    @PostConstruct
+    public void init() {
+        slotHoldService.addExpiryListener(this::offerToWaiter);
+        parkingSlotService.addSlotFreedListener(this::offerToWaiter);
+        waitlistService.addJoinListener(this::offerAvailableSlots);
+    }
+    
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        // Serves per-user listings, paged or not, without a collection scan
+        mongoTemplate.indexOps(Booking.class)
+                .ensureIndex(new Index().on("userId", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+    }
+    
     public List<Booking> getAllBookings() {
         return bookingRepository.findAll();
     }
     
+    /**
+     * All bookings, optionally followed by the ones moved to the archive
+     */
+    public List<Booking> getAllBookings(boolean includeArchived) {
+        List<Booking> bookings = bookingRepository.findAll();
+        if (includeArchived) {
+            bookings.addAll(bookingArchiveService.getArchivedBookings());
+        }
+        return bookings;
+    }
+    
     public List<Booking> getBookingsByUserId(String userId) {
         return bookingRepository.findByUserId(userId);
     }
     
+    public List<Booking> getBookingsByUserId(String userId, boolean includeArchived) {
+        List<Booking> bookings = bookingRepository.findByUserId(userId);
+        if (includeArchived) {
+            bookings.addAll(bookingArchiveService.getArchivedBookingsByUserId(userId));
+        }
+        return bookings;
+    }
+    
+    public ListPage getAllBookings(boolean includeArchived, ListOptions options) {
+        return keysetPager.find(Booking.class, null, options, collections(includeArchived));
+    }
+    
+    public ListPage getBookingsByUserId(String userId, boolean includeArchived, ListOptions options) {
+        return keysetPager.find(Booking.class, Criteria.where("userId").is(userId), options, collections(includeArchived));
+    }
+    
+    public ListPage getActiveBookingsByUserId(String userId, ListOptions options) {
+        Criteria criteria = Criteria.where("userId").is(userId).and("status").is(BookingStatus.ACTIVE.name());
+        return keysetPager.find(Booking.class, criteria, options);
+    }
+    
+    public ListPage getBookingsWithPenalty(boolean includeArchived, ListOptions options) {
+        return keysetPager.find(Booking.class, Criteria.where("penalty").is(true), options, collections(includeArchived));
+    }
+    
+    private String[] collections(boolean includeArchived) {
+        String hot = mongoTemplate.getCollectionName(Booking.class);
+        return includeArchived ? new String[] { hot, BookingArchiveService.ARCHIVE_COLLECTION } : new String[] { hot };
+    }
+    
     public List<Booking> getActiveBookingsByUserId(String userId) {
         return bookingRepository.findByUserIdAndStatus(userId, BookingStatus.ACTIVE);
     }
     
     public Optional<Booking> getBookingById(String id) {
-        return bookingRepository.findById(id);
+        return findBooking(id);
     }
     
     public Booking createBooking(Booking booking) {
+        return writeBehindService.atomically(() -> doCreateBooking(booking));
+    }
+    
+    private Booking doCreateBooking(Booking booking) {
         // Format dates properly if they don't include seconds
         String startTime = formatDateTimeIfNeeded(booking.getStartTime());
         String endTime = formatDateTimeIfNeeded(booking.getEndTime());
@@ -53,6 +164,7 @@ public class BookingService {
         // Update booking with properly formatted dates
         booking.setStartTime(startTime);
         booking.setEndTime(endTime);
+        booking.setLicensePlate(PlateIndex.normalize(booking.getLicensePlate()));
         
         // Get the parking slot to access its hourly rate
         ParkingSlot parkingSlot = parkingSlotService.getParkingSlotById(booking.getSlotId())
@@ -62,15 +174,7 @@ public class BookingService {
         LocalDateTime startDateTime = LocalDateTime.parse(startTime, formatter);
         LocalDateTime endDateTime = LocalDateTime.parse(endTime, formatter);
         
-        // Calculate duration in hours (rounded up to the nearest hour)
-        Duration duration = Duration.between(startDateTime, endDateTime);
-        long hours = duration.toHours();
-        if (duration.toMinutesPart() > 0) {
-            hours++; // Round up to the next hour if there are additional minutes
-        }
-        
-        // Calculate booking amount
-        double bookingAmount = hours * parkingSlot.getHourlyRate();
+        double bookingAmount = calculateBookingAmount(startDateTime, endDateTime, parkingSlot.getHourlyRate());
         booking.setBookingAmount(bookingAmount);
         booking.setTotalAmount(bookingAmount); // Initially total amount is same as booking amount
         
@@ -86,11 +190,25 @@ public class BookingService {
         booking.setUpdatedAt(now.format(formatter));
         booking.setStatus(BookingStatus.ACTIVE);
         
-        return bookingRepository.save(booking);
+        Booking savedBooking = saveAndBumpVersion(booking);
+        journal(EventType.BOOKING_CREATED, savedBooking);
+        return savedBooking;
     }
     
     public Booking completeBooking(String id) {
-        Booking booking = bookingRepository.findById(id)
+        return writeBehindService.atomically(() -> doCompleteBooking(id, LocalDateTime.now()));
+    }
+    
+    /**
+     * Complete a booking for a car seen leaving at the given time, so a late
+     * gate event is not charged for the time it spent queued
+     */
+    public Booking completeBookingAt(String id, LocalDateTime departedAt) {
+        return writeBehindService.atomically(() -> doCompleteBooking(id, departedAt));
+    }
+    
+    private Booking doCompleteBooking(String id, LocalDateTime departedAt) {
+        Booking booking = findBooking(id)
                 .orElseThrow(() -> new RuntimeException("Booking not found with id: " + id));
         
         if (booking.getStatus() != BookingStatus.ACTIVE) {
@@ -106,11 +224,11 @@ public class BookingService {
         LocalDateTime endTime = LocalDateTime.parse(formattedEndTime, formatter);
         LocalDateTime now = LocalDateTime.now();
         
-        if (now.isAfter(endTime)) {
+        if (departedAt.isAfter(endTime)) {
             booking.setPenalty(true);
             
             // Calculate penalty based on hours exceeded and hourly rate
-            Duration exceededDuration = Duration.between(endTime, now);
+            Duration exceededDuration = Duration.between(endTime, departedAt);
             long exceededHours = exceededDuration.toHours();
             if (exceededDuration.toMinutesPart() > 0) {
                 exceededHours++; // Round up to the next hour if there are additional minutes
@@ -130,42 +248,67 @@ public class BookingService {
             booking.setTotalAmount(booking.getBookingAmount());
         }
         
-        // Release the parking slot
-        parkingSlotService.releaseParkingSlot(booking.getSlotId());
+        // Release the parking slot, or pass it on to the next waiter
+        releaseOrHandOff(booking);
         
         booking.setStatus(BookingStatus.COMPLETED);
         booking.setUpdatedAt(now.format(formatter));
         
-        return bookingRepository.save(booking);
+        Booking savedBooking = saveAndBumpVersion(booking);
+        journal(EventType.BOOKING_COMPLETED, savedBooking);
+        return savedBooking;
     }
     
     public Booking cancelBooking(String id) {
-        Booking booking = bookingRepository.findById(id)
+        return writeBehindService.atomically(() -> doCancelBooking(id));
+    }
+    
+    private Booking doCancelBooking(String id) {
+        Booking booking = findBooking(id)
                 .orElseThrow(() -> new RuntimeException("Booking not found with id: " + id));
         
         if (booking.getStatus() != BookingStatus.ACTIVE) {
             throw new RuntimeException("Booking is not active");
         }
         
-        // Release the parking slot
-        parkingSlotService.releaseParkingSlot(booking.getSlotId());
+        // Release the parking slot, or pass it on to the next waiter
+        releaseOrHandOff(booking);
         
         booking.setStatus(BookingStatus.CANCELLED);
         booking.setUpdatedAt(LocalDateTime.now().format(formatter));
         
-        return bookingRepository.save(booking);
+        Booking savedBooking = saveAndBumpVersion(booking);
+        journal(EventType.BOOKING_CANCELLED, savedBooking);
+        return savedBooking;
     }
     
     public void deleteBooking(String id) {
-        Booking booking = bookingRepository.findById(id)
+        writeBehindService.atomically(() -> {
+            doDeleteBooking(id);
+            return null;
+        });
+    }
+    
+    private void doDeleteBooking(String id) {
+        Booking booking = findBooking(id)
                 .orElseThrow(() -> new RuntimeException("Booking not found with id: " + id));
         
         if (booking.getStatus() == BookingStatus.ACTIVE) {
             // Release the parking slot if booking is active
-            parkingSlotService.releaseParkingSlot(booking.getSlotId());
+            releaseOrHandOff(booking);
         }
         
-        bookingRepository.delete(booking);
+        if (writeBehindService.inUnit()) {
+            writeBehindService.deleteBooking(booking);
+        } else {
+            bookingRepository.delete(booking);
+            dataVersionService.bumpBookingsVersion(booking.getUserId());
+        }
+        writeBehindService.afterCommit(() -> {
+            bookingSummaryService.invalidate(booking.getUserId());
+            plateIndex.remove(booking.getId());
+        });
+        journal(EventType.BOOKING_DELETED, booking);
     }
     
     public List<Booking> getBookingsWithPenalty() {
@@ -175,6 +318,176 @@ public class BookingService {
                 .collect(Collectors.toList());
     }
     
+    public List<Booking> getBookingsWithPenalty(boolean includeArchived) {
+        List<Booking> bookings = getBookingsWithPenalty();
+        if (includeArchived) {
+            bookings.addAll(bookingArchiveService.getArchivedBookingsWithPenalty());
+        }
+        return bookings;
+    }
+    
+    /**
+     * Free the slot held by an ending booking. When someone is on the waitlist the
+     * slot is moved straight to them and booked from now for the duration they
+     * asked for, so it is never visible as available in between.
+     */
+    private void releaseOrHandOff(Booking ending) {
+        WaitlistService.Entry waiter = waitlistService.claimNext();
+        if (waiter == null) {
+            parkingSlotService.releaseParkingSlot(ending.getSlotId());
+            return;
+        }
+        writeBehindService.onRollback(() -> waitlistService.requeue(waiter));
+        
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime end = now.plusMinutes(waiter.getDurationMinutes());
+        ParkingSlot parkingSlot;
+        try {
+            parkingSlot = parkingSlotService.transferParkingSlot(ending.getSlotId(), ending.getUserId(),
+                    waiter.getUserId(), now.format(formatter), end.format(formatter));
+        } catch (RuntimeException e) {
+            // The slot was changed behind our back; the waiter keeps waiting for another one
+            waitlistService.requeue(waiter);
+            parkingSlotService.releaseParkingSlot(ending.getSlotId());
+            return;
+        }
+        
+        handOff(waiter, parkingSlot, now, end);
+    }
+    
+    /**
+     * Give a freed slot to the longest waiter, if any. Runs after a release,
+     * a hold running out unused or a new slot, on the thread that freed it.
+     * With clustering on, only the slot's owner books it, under the same lock
+     * as routed requests; holds are tracked by every instance, so the others
+     * let theirs expire quietly.
+     */
+    private void offerToWaiter(String slotId) {
+        if (!waitlistService.hasWaiters() || !clusterService.owns(slotId)) {
+            return;
+        }
+        try {
+            clusterService.withSlotLocks(List.of(slotId), () -> writeBehindService.atomically(() -> {
+                WaitlistService.Entry waiter = waitlistService.claimNext();
+                if (waiter == null) {
+                    return null;
+                }
+                writeBehindService.onRollback(() -> waitlistService.requeue(waiter));
+                
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime end = now.plusMinutes(waiter.getDurationMinutes());
+                ParkingSlot parkingSlot;
+                try {
+                    parkingSlot = parkingSlotService.bookParkingSlot(slotId, waiter.getUserId(),
+                            now.format(formatter), end.format(formatter));
+                } catch (RuntimeException e) {
+                    // Booked or held again in the meantime
+                    waitlistService.requeue(waiter);
+                    return null;
+                }
+                handOff(waiter, parkingSlot, now, end);
+                return null;
+            }));
+        } catch (RuntimeException e) {
+            // Whatever freed the slot has succeeded; the waiter gets the next one
+            log.warn("Failed to offer slot {} to the waitlist: {}", slotId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Offer available slots to waiters until either runs out. A slot freed
+     * while someone was joining the waitlist would otherwise wait for the next
+     * release.
+     */
+    private void offerAvailableSlots() {
+        // Availability is read from Mongo, so let committed releases reach it
+        writeBehindService.flush();
+        for (ParkingSlot slot : parkingSlotService.getAvailableParkingSlots()) {
+            if (!waitlistService.hasWaiters()) {
+                return;
+            }
+            offerToWaiter(slot.getId());
+        }
+    }
+    
+    /**
+     * Book the slot just moved to the waiter. If that fails, the waiter is told
+     * and the slot freed, rather than the entry staying claimed forever and the
+     * slot taken with no booking.
+     */
+    private void handOff(WaitlistService.Entry waiter, ParkingSlot parkingSlot, LocalDateTime now, LocalDateTime end) {
+        try {
+            writeBehindService.atomically(() -> {
+                bookForWaiter(waiter, parkingSlot, now, end);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to book slot {} for waitlist entry of user {}: {}", parkingSlot.getId(),
+                    waiter.getUserId(), e.getMessage());
+            waitlistService.fail(waiter);
+            parkingSlotService.releaseParkingSlot(parkingSlot.getId());
+        }
+    }
+    
+    private void bookForWaiter(WaitlistService.Entry waiter, ParkingSlot parkingSlot, LocalDateTime now, LocalDateTime end) {
+        Booking booking = new Booking();
+        booking.setUserId(waiter.getUserId());
+        booking.setSlotId(parkingSlot.getId());
+        booking.setStartTime(now.format(formatter));
+        booking.setEndTime(end.format(formatter));
+        double bookingAmount = calculateBookingAmount(now, end, parkingSlot.getHourlyRate());
+        booking.setBookingAmount(bookingAmount);
+        booking.setTotalAmount(bookingAmount);
+        booking.setCreatedAt(now.format(formatter));
+        booking.setUpdatedAt(now.format(formatter));
+        booking.setStatus(BookingStatus.ACTIVE);
+        
+        Booking savedBooking = saveAndBumpVersion(booking);
+        journal(EventType.BOOKING_CREATED, savedBooking);
+        writeBehindService.afterCommit(() -> waitlistService.fulfil(waiter, savedBooking));
+    }
+    
+    /**
+     * Booking amount for the given period, charging each started hour in full
+     */
+    private double calculateBookingAmount(LocalDateTime start, LocalDateTime end, double hourlyRate) {
+        // Calculate duration in hours (rounded up to the nearest hour)
+        Duration duration = Duration.between(start, end);
+        long hours = duration.toHours();
+        if (duration.toMinutesPart() > 0) {
+            hours++; // Round up to the next hour if there are additional minutes
+        }
+        return hours * hourlyRate;
+    }
+    
+    /**
+     * Save the booking and then bump the booking versions of its user. As with
+     * slots, the bump comes after the write so an ETag never runs ahead of the data.
+     */
+    private Booking saveAndBumpVersion(Booking booking) {
+        Booking saved;
+        if (writeBehindService.inUnit()) {
+            saved = writeBehindService.saveBooking(booking);
+        } else {
+            saved = bookingRepository.save(booking);
+            dataVersionService.bumpBookingsVersion(saved.getUserId());
+        }
+        writeBehindService.afterCommit(() -> {
+            bookingSummaryService.invalidate(saved.getUserId());
+            plateIndex.bookingSaved(saved);
+        });
+        return saved;
+    }
+    
+    private Optional<Booking> findBooking(String id) {
+        return writeBehindService.findBooking(id, () -> bookingRepository.findById(id));
+    }
+    
+    private void journal(EventType type, Booking booking) {
+        JournalEvent event = JournalEvent.of(type, booking.getSlotId(), booking.getUserId(), booking.getId());
+        writeBehindService.afterCommit(() -> bookingJournal.append(event));
+    }
+    
     /**
      * Helper method to format datetime strings if they don't include seconds
      * Handles the format from frontend (yyyy-MM-ddTHH:mm) and converts to backend format (yyyy-MM-dd HH:mm:ss)
@@ -0,0 +1,145 @@
+package com.parking.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import com.parking.dto.UserBookingSummary;
+import com.parking.model.Booking;
+import com.parking.model.Booking.BookingStatus;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Per-user booking summary for the dashboard, computed by a single $facet
+ * aggregation over the user's bookings and their archived ones.
+ *
+ * Summaries are kept in a bounded LRU. Each entry remembers the user's booking
+ * version it was computed at and is only served while that still matches, so
+ * a write-behind commit that reaches Mongo after the eviction cannot leave a
+ * stale summary behind. BookingService also evicts on every mutation.
+ */
+@Service
+public class BookingSummaryService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Value("${app.summary.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${app.summary.recent-count:5}")
+    private int recentCount;
+
+    private Map<String, CachedSummary> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSummary> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public UserBookingSummary getSummary(String userId) {
+        // Read before the aggregation, so an entry is never newer than its data
+        long version = dataVersionService.getUserBookingsVersion(userId);
+        synchronized (cache) {
+            CachedSummary cached = cache.get(userId);
+            if (cached != null && cached.version == version) {
+                return cached.summary;
+            }
+        }
+
+        UserBookingSummary summary = load(userId);
+        synchronized (cache) {
+            cache.put(userId, new CachedSummary(version, summary));
+        }
+        return summary;
+    }
+
+    public void invalidate(String userId) {
+        synchronized (cache) {
+            cache.remove(userId);
+        }
+    }
+
+    private UserBookingSummary load(String userId) {
+        Criteria forUser = Criteria.where("userId").is(userId);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(forUser),
+                UnionWithOperation.unionWith(BookingArchiveService.ARCHIVE_COLLECTION).pipeline(Aggregation.match(forUser)),
+                Aggregation.facet(Aggregation.match(Criteria.where("status").is(BookingStatus.ACTIVE.name()))).as("active")
+                        .and(Aggregation.group("status").count().as("count")).as("counts")
+                        .and(Aggregation.group()
+                                .sum(ConditionalOperators.when(ComparisonOperators.valueOf("status").equalToValue(BookingStatus.COMPLETED.name()))
+                                        .thenValueOf("totalAmount")
+                                        .otherwise(0))
+                                .as("spent")
+                                .sum("penaltyAmount").as("penalties")).as("totals")
+                        .and(Aggregation.sort(Sort.Direction.DESC, "_id"), Aggregation.limit(recentCount)).as("recent"));
+
+        Document result = mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(Booking.class), Document.class)
+                .getUniqueMappedResult();
+
+        Map<String, Long> countsByStatus = new LinkedHashMap<>();
+        for (BookingStatus status : BookingStatus.values()) {
+            countsByStatus.put(status.name(), 0L);
+        }
+        long totalBookings = 0;
+        for (Document count : result.getList("counts", Document.class)) {
+            long value = count.get("count", Number.class).longValue();
+            if (count.getString("_id") != null) {
+                countsByStatus.put(count.getString("_id"), value);
+            }
+            totalBookings += value;
+        }
+
+        double spent = 0.0;
+        double penalties = 0.0;
+        List<Document> totals = result.getList("totals", Document.class);
+        if (!totals.isEmpty()) {
+            spent = totals.get(0).get("spent", Number.class).doubleValue();
+            penalties = totals.get(0).get("penalties", Number.class).doubleValue();
+        }
+
+        return new UserBookingSummary(userId, toBookings(result.getList("active", Document.class)), countsByStatus,
+                totalBookings, spent, penalties, toBookings(result.getList("recent", Document.class)));
+    }
+
+    private List<Booking> toBookings(List<Document> documents) {
+        List<Booking> bookings = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            bookings.add(mongoTemplate.getConverter().read(Booking.class, document));
+        }
+        return bookings;
+    }
+
+    private static final class CachedSummary {
+        private final long version;
+        private final UserBookingSummary summary;
+
+        private CachedSummary(long version, UserBookingSummary summary) {
+            this.version = version;
+            this.summary = summary;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.parking.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.parking.model.Booking.BookingStatus;
+import com.parking.repository.BookingRepository;
+import com.parking.repository.ParkingSlotRepository;
+import com.parking.repository.UserRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Admin dashboard statistics. Everything is a count query, the counts run in
+ * parallel, and concurrent dashboard loads share one set of queries through a
+ * single-flight group.
+ */
+@Service
+public class DashboardService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ParkingSlotRepository parkingSlotRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingArchiveService bookingArchiveService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private SingleFlightRegistry singleFlightRegistry;
+
+    @Autowired
+    private FanOutService fanOutService;
+
+    private SingleFlight<Map<String, Object>> statsFlight;
+
+    @PostConstruct
+    public void init() {
+        statsFlight = singleFlightRegistry.create("dashboard-stats");
+    }
+
+    /**
+     * Dashboard counts; the returned map is shared and read-only. Slot and booking
+     * writes start a fresh load, user changes show up once the TTL has passed.
+     */
+    public Map<String, Object> getDashboardStats() {
+        String key = dataVersionService.getSlotsVersion() + ":" + dataVersionService.getBookingsVersion();
+        return statsFlight.get(key, this::loadDashboardStats);
+    }
+
+    private Map<String, Object> loadDashboardStats() {
+        // Archived bookings are all completed or cancelled
+        FanOut.Result result = fanOutService.fanOut()
+                .add("totalUsers", userRepository::count)
+                .add("totalSlots", parkingSlotRepository::count)
+                .add("activeBookings", () -> bookingRepository.countByStatus(BookingStatus.ACTIVE))
+                .add("completedBookings", () -> bookingRepository.countByStatus(BookingStatus.COMPLETED))
+                .add("archivedCompletedBookings", () -> bookingArchiveService.countArchivedBookings(BookingStatus.COMPLETED))
+                .add("cancelledBookings", () -> bookingRepository.countByStatus(BookingStatus.CANCELLED))
+                .add("archivedCancelledBookings", () -> bookingArchiveService.countArchivedBookings(BookingStatus.CANCELLED))
+                .add("bookingsWithPenalty", bookingRepository::countByPenaltyTrue)
+                .add("archivedBookingsWithPenalty", bookingArchiveService::countArchivedBookingsWithPenalty)
+                .run();
+
+        Map<String, Object> stats = new HashMap<>();
+        copy(result, stats, "totalUsers");
+        copy(result, stats, "totalSlots");
+        copy(result, stats, "activeBookings");
+        Long completed = sum(result, stats, "completedBookings", "archivedCompletedBookings");
+        Long cancelled = sum(result, stats, "cancelledBookings", "archivedCancelledBookings");
+        sum(result, stats, "bookingsWithPenalty", "archivedBookingsWithPenalty");
+        if (result.has("activeBookings") && completed != null && cancelled != null) {
+            stats.put("totalBookings", result.<Long>get("activeBookings") + completed + cancelled);
+        }
+
+        // Whatever failed or timed out is left out and named here, the rest is still served
+        stats.put("partial", !result.isComplete());
+        stats.put("failures", result.getFailures());
+        stats.put("elapsedMs", result.getElapsedMs());
+        return Collections.unmodifiableMap(stats);
+    }
+
+    private static void copy(FanOut.Result result, Map<String, Object> stats, String name) {
+        if (result.has(name)) {
+            stats.put(name, result.get(name));
+        }
+    }
+
+    /**
+     * Put hot plus archived under the hot name, if both parts came back
+     */
+    private static Long sum(FanOut.Result result, Map<String, Object> stats, String hot, String archived) {
+        if (!result.has(hot) || !result.has(archived)) {
+            return null;
+        }
+        long total = result.<Long>get(hot) + result.<Long>get(archived);
+        stats.put(hot, total);
+        return total;
+    }
+}
@@ -0,0 +1,115 @@
+package com.parking.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.parking.invalidation.CacheTopic;
+import com.parking.invalidation.InvalidationBus;
+import com.parking.invalidation.InvalidationEvent;
+import com.parking.invalidation.InvalidationEvent.Operation;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps monotonically increasing version counters for the slot collection and
+ * for each user's bookings. Read endpoints derive their ETags from these
+ * counters, so a conditional GET can be answered without touching MongoDB.
+ * With the invalidation bus on, writes made by other instances bump them too.
+ */
+@Service
+public class DataVersionService {
+
+    // Counters restart from zero on every boot, so the epoch keeps ETags from
+    // an earlier process from matching the new counters by accident
+    private final long epoch = System.currentTimeMillis();
+
+    private final AtomicLong slotsVersion = new AtomicLong();
+
+    private final AtomicLong bookingsVersion = new AtomicLong();
+
+    private final Map<String, AtomicLong> userBookingsVersions = new ConcurrentHashMap<>();
+
+    private final List<Runnable> slotsListeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @PostConstruct
+    public void init() {
+        invalidationBus.register(CacheTopic.SLOTS, event -> bumpSlotsVersion());
+        invalidationBus.register(CacheTopic.BOOKINGS, this::bookingChanged);
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getSlotsVersion() {
+        return slotsVersion.get();
+    }
+
+    public long bumpSlotsVersion() {
+        long version = slotsVersion.incrementAndGet();
+        slotsListeners.forEach(Runnable::run);
+        return version;
+    }
+
+    /**
+     * Register a callback run after every slot version bump. Callbacks run on the
+     * mutating thread, so they must only hand work off and return.
+     */
+    public void addSlotsListener(Runnable listener) {
+        slotsListeners.add(listener);
+    }
+
+    /**
+     * Version of the whole booking collection, used by the admin list endpoints
+     */
+    public long getBookingsVersion() {
+        return bookingsVersion.get();
+    }
+
+    public long getUserBookingsVersion(String userId) {
+        AtomicLong version = userBookingsVersions.get(userId);
+        return version != null ? version.get() : 0L;
+    }
+
+    /**
+     * Bump the global booking version and the version of the given user's bookings
+     */
+    public void bumpBookingsVersion(String userId) {
+        bookingsVersion.incrementAndGet();
+        if (userId != null) {
+            userBookingsVersions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    private void bookingChanged(InvalidationEvent event) {
+        if (event.getOperation() == Operation.ALL) {
+            bookingsVersion.incrementAndGet();
+            userBookingsVersions.values().forEach(AtomicLong::incrementAndGet);
+        } else {
+            // Deletes carry no owner; bookings are only deleted when archived,
+            // and the per-user views read the archive too
+            bumpBookingsVersion(event.getUserId());
+        }
+    }
+
+    public String slotsETag() {
+        return "\"slots-" + epoch + "-" + slotsVersion.get() + "\"";
+    }
+
+    public String bookingsETag() {
+        return "\"bookings-" + epoch + "-" + bookingsVersion.get() + "\"";
+    }
+
+    public String userBookingsETag(String userId) {
+        return "\"bookings-" + userId + "-" + epoch + "-" + getUserBookingsVersion(userId) + "\"";
+    }
+}
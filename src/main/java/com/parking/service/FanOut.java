@@ -0,0 +1,118 @@
+package com.parking.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Independent queries run side by side, one virtual thread each, so a
+ * composite endpoint takes as long as its slowest part instead of the sum.
+ *
+ * Every query has its own timeout, counted from the moment they all start.
+ * One that fails or runs out of time is reported in the result instead of
+ * failing the others, and is interrupted if still running. Get one from
+ * {@link FanOutService#fanOut()}.
+ */
+public class FanOut {
+
+    private final ExecutorService executor;
+    private final long defaultTimeoutMs;
+    private final List<Task> tasks = new ArrayList<>();
+
+    FanOut(ExecutorService executor, long defaultTimeoutMs) {
+        this.executor = executor;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    public FanOut add(String name, Supplier<?> query) {
+        return add(name, defaultTimeoutMs, query);
+    }
+
+    public FanOut add(String name, long timeoutMs, Supplier<?> query) {
+        tasks.add(new Task(name, timeoutMs, query));
+        return this;
+    }
+
+    /**
+     * Start every query and wait until each has finished or hit its timeout
+     */
+    public Result run() {
+        long started = System.nanoTime();
+        for (Task task : tasks) {
+            task.future = executor.submit(task.query::get);
+        }
+
+        Result result = new Result();
+        for (Task task : tasks) {
+            long remainingNanos = started + TimeUnit.MILLISECONDS.toNanos(task.timeoutMs) - System.nanoTime();
+            try {
+                result.values.put(task.name, task.future.get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                task.future.cancel(true);
+                result.failures.put(task.name, "Timed out after " + task.timeoutMs + " ms");
+            } catch (ExecutionException e) {
+                result.failures.put(task.name, String.valueOf(e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.future.cancel(true);
+                result.failures.put(task.name, "Interrupted");
+            }
+        }
+        result.elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        return result;
+    }
+
+    private static final class Task {
+        private final String name;
+        private final long timeoutMs;
+        private final Supplier<?> query;
+        private Future<?> future;
+
+        private Task(String name, long timeoutMs, Supplier<?> query) {
+            this.name = name;
+            this.timeoutMs = timeoutMs;
+            this.query = query;
+        }
+    }
+
+    public static final class Result {
+        private final Map<String, Object> values = new LinkedHashMap<>();
+        private final Map<String, String> failures = new LinkedHashMap<>();
+        private long elapsedMs;
+
+        public boolean isComplete() {
+            return failures.isEmpty();
+        }
+
+        public boolean has(String name) {
+            return values.containsKey(name);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T get(String name) {
+            return (T) values.get(name);
+        }
+
+        public Map<String, Object> getValues() {
+            return values;
+        }
+
+        /**
+         * Why each missing query has no value, by name
+         */
+        public Map<String, String> getFailures() {
+            return failures;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+    }
+}
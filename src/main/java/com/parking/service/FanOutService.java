@@ -0,0 +1,35 @@
+package com.parking.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Hands out {@link FanOut}s for composite endpoints. Queries run on virtual
+ * threads, so a blocked Mongo call costs no platform thread and there is no
+ * pool size to tune.
+ */
+@Service
+public class FanOutService {
+
+    @Value("${app.fan-out.timeout-ms:2000}")
+    private long timeoutMs;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A new set of queries, each with the configured timeout unless given its own
+     */
+    public FanOut fanOut() {
+        return new FanOut(executor, timeoutMs);
+    }
+}
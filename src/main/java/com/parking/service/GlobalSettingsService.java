@@ -2,47 +2,107 @@ package com.parking.service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import com.parking.invalidation.CacheTopic;
+import com.parking.invalidation.InvalidationBus;
 import com.parking.model.GlobalSettings;
 import com.parking.repository.GlobalSettingsRepository;
 
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Global settings, read on every booking and slot creation. They are cached
+ * only while the invalidation bus is active, since nothing else would tell
+ * this instance about an update made on another one.
+ */
 @Service
 public class GlobalSettingsService {
 
     @Autowired
     private GlobalSettingsRepository globalSettingsRepository;
     
+    @Autowired
+    private InvalidationBus invalidationBus;
+    
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
+    // Bumped on every invalidation, so a read that raced one is not cached
+    private final AtomicLong generation = new AtomicLong();
+    
+    private volatile GlobalSettings cached;
+    
+    @PostConstruct
+    public void init() {
+        invalidationBus.register(CacheTopic.SETTINGS, event -> invalidate());
+    }
+    
     /**
      * Get the global settings. If none exist, create default settings.
+     * The cached instance is shared, callers must not modify it.
      */
     public GlobalSettings getGlobalSettings() {
-        GlobalSettings settings = globalSettingsRepository.findFirstBy();
+        GlobalSettings settings = cached;
+        if (settings != null && invalidationBus.isActive()) {
+            return settings;
+        }
+        
+        long readGeneration = generation.get();
+        settings = globalSettingsRepository.findFirstBy();
         
         if (settings == null) {
             // Create default settings if none exist
-            settings = new GlobalSettings();
-            settings.setUpdatedAt(LocalDateTime.now().format(formatter));
-            settings = globalSettingsRepository.save(settings);
+            settings = createDefaultSettings();
         }
         
+        if (invalidationBus.isActive() && generation.get() == readGeneration) {
+            cached = settings;
+        }
         return settings;
     }
     
+    private void invalidate() {
+        generation.incrementAndGet();
+        cached = null;
+    }
+    
+    /**
+     * Insert the default settings document. The fixed id makes this safe to race
+     * with the startup initializer or another instance: the loser reads the winner's document.
+     */
+    public GlobalSettings createDefaultSettings() {
+        GlobalSettings settings = new GlobalSettings();
+        settings.setId(GlobalSettings.DEFAULT_ID);
+        settings.setUpdatedAt(LocalDateTime.now().format(formatter));
+        
+        try {
+            return globalSettingsRepository.insert(settings);
+        } catch (DuplicateKeyException e) {
+            return globalSettingsRepository.findFirstBy();
+        }
+    }
+    
     /**
      * Update the global settings
      */
     public GlobalSettings updateGlobalSettings(GlobalSettings settingsDetails) {
-        GlobalSettings settings = getGlobalSettings(); // Get existing or create new
+        // Read fresh rather than modify the cached instance
+        GlobalSettings settings = globalSettingsRepository.findFirstBy();
+        if (settings == null) {
+            settings = createDefaultSettings();
+        }
         
         settings.setDefaultPenaltyAmount(settingsDetails.getDefaultPenaltyAmount());
         settings.setDefaultHourlyRate(settingsDetails.getDefaultHourlyRate());
         settings.setUpdatedAt(LocalDateTime.now().format(formatter));
         
-        return globalSettingsRepository.save(settings);
+        GlobalSettings savedSettings = globalSettingsRepository.save(settings);
+        // This instance sees its own update at once, the others through the bus
+        invalidate();
+        return savedSettings;
     }
 }
\ No newline at end of file
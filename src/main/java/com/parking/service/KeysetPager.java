@@ -0,0 +1,195 @@
+package com.parking.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.parking.dto.ListOptions;
+import com.parking.dto.ListPage;
+
+/**
+ * Keyset pagination and field projection for the list endpoints.
+ *
+ * Pages are ordered by _id and each query starts after the last id of the
+ * previous page, so a page costs the same however deep it is. A listing can
+ * span several collections (bookings, then the archive); the cursor records
+ * which one it is in. Cursors are base64url of "collection index|id type|id",
+ * where the type keeps string ids such as "default-admin" apart from
+ * ObjectIds, since Mongo only compares _id values of the same type.
+ */
+@Service
+public class KeysetPager {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.paging.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${app.paging.max-limit:1000}")
+    private int maxLimit;
+
+    /**
+     * One page of the entity's documents matching criteria (null for all), read
+     * from the given collections in turn, or the entity's own collection
+     */
+    public ListPage find(Class<?> entityClass, Criteria criteria, ListOptions options, String... collections) {
+        if (collections.length == 0) {
+            collections = new String[] { mongoTemplate.getCollectionName(entityClass) };
+        }
+
+        int limit = options.getLimit() != null ? options.getLimit() : defaultLimit;
+        if (limit < 1 || limit > maxLimit) {
+            throw new RuntimeException("Limit must be between 1 and " + maxLimit);
+        }
+
+        Set<String> fields = options.getFieldSet();
+        Set<String> allowed = visibleFields(entityClass);
+        for (String field : fields) {
+            if (!allowed.contains(field)) {
+                throw new RuntimeException("Unknown field: " + field);
+            }
+        }
+
+        Cursor cursor = Cursor.decode(options.getCursor(), collections.length);
+        List<Object> items = new ArrayList<>();
+        String nextCursor = null;
+
+        for (int index = cursor.collection; index < collections.length; index++) {
+            int remaining = limit - items.size();
+            Query query = new Query();
+            if (criteria != null) {
+                query.addCriteria(criteria);
+            }
+            if (index == cursor.collection && cursor.id != null) {
+                query.addCriteria(cursor.after());
+            }
+            // One extra document tells us whether another page follows
+            query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(remaining + 1);
+            if (!fields.isEmpty()) {
+                query.fields().include(fields.toArray(new String[0]));
+            }
+
+            List<Document> documents = mongoTemplate.find(query, Document.class, collections[index]);
+            boolean more = documents.size() > remaining;
+            if (more) {
+                documents = documents.subList(0, remaining);
+            }
+            for (Document document : documents) {
+                items.add(fields.isEmpty() ? mongoTemplate.getConverter().read(entityClass, document) : toItem(document));
+            }
+
+            if (more) {
+                nextCursor = Cursor.encode(index, documents.get(documents.size() - 1).get("_id"));
+                break;
+            }
+            if (items.size() == limit) {
+                // This collection is done; the next page starts at the following one, if any
+                nextCursor = index + 1 < collections.length ? Cursor.encode(index + 1, null) : null;
+                break;
+            }
+        }
+        return new ListPage(items, nextCursor);
+    }
+
+    /**
+     * Mapped properties that may be projected; write-only ones such as password are left out
+     */
+    private Set<String> visibleFields(Class<?> entityClass) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(entityClass);
+        Set<String> fields = new HashSet<>();
+        entity.doWithProperties((PropertyHandler<MongoPersistentProperty>) property -> {
+            JsonProperty json = property.findAnnotation(JsonProperty.class);
+            if (json == null || json.access() != JsonProperty.Access.WRITE_ONLY) {
+                fields.add(property.getName());
+            }
+        });
+        return fields;
+    }
+
+    /**
+     * Projected document shaped like the entity JSON: id instead of _id, no type hint
+     */
+    private static Document toItem(Document document) {
+        Document item = new Document();
+        Object id = document.get("_id");
+        item.put("id", id instanceof ObjectId ? ((ObjectId) id).toHexString() : id);
+        document.forEach((key, value) -> {
+            if (!key.equals("_id") && !key.equals("_class")) {
+                item.put(key, value);
+            }
+        });
+        return item;
+    }
+
+    private static class Cursor {
+        final int collection;
+        final Object id;
+
+        Cursor(int collection, Object id) {
+            this.collection = collection;
+            this.id = id;
+        }
+
+        Criteria after() {
+            if (id instanceof ObjectId) {
+                return Criteria.where("_id").gt(id);
+            }
+            // Strings sort before ObjectIds, so every ObjectId is still ahead of us
+            return new Criteria().orOperator(
+                    Criteria.where("_id").gt(id),
+                    Criteria.where("_id").type(7));
+        }
+
+        static String encode(int collection, Object id) {
+            String value;
+            if (id == null) {
+                value = collection + "|";
+            } else if (id instanceof ObjectId) {
+                value = collection + "|o|" + ((ObjectId) id).toHexString();
+            } else {
+                value = collection + "|s|" + id;
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor, int collections) {
+            if (cursor == null || cursor.isEmpty()) {
+                return new Cursor(0, null);
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+                int collection = Integer.parseInt(parts[0]);
+                if (collection < 0 || collection >= collections) {
+                    throw new IllegalArgumentException();
+                }
+                if (parts.length < 3) {
+                    return new Cursor(collection, null);
+                }
+                Object id = parts[1].equals("o") ? new ObjectId(parts[2]) : parts[2];
+                return new Cursor(collection, id);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+    }
+}
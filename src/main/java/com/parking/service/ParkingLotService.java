@@ -0,0 +1,126 @@
+package com.parking.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.parking.dto.NearestLot;
+import com.parking.lots.LotIndex;
+import com.parking.model.ParkingLot;
+import com.parking.model.ParkingSlot;
+import com.parking.model.ParkingSlot.SizeClass;
+import com.parking.repository.ParkingLotRepository;
+
+@Service
+public class ParkingLotService {
+
+    @Autowired
+    private ParkingLotRepository parkingLotRepository;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private LotIndex lotIndex;
+    
+    @Value("${app.lots.max-results:50}")
+    private int maxResults;
+    
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    public List<ParkingLot> getAllParkingLots() {
+        return parkingLotRepository.findAll();
+    }
+    
+    public Optional<ParkingLot> getParkingLotById(String id) {
+        return parkingLotRepository.findById(id);
+    }
+    
+    public ParkingLot createParkingLot(ParkingLot parkingLot) {
+        if (parkingLot.getName() == null || parkingLot.getName().isBlank()) {
+            throw new RuntimeException("Lot name is required");
+        }
+        if (parkingLotRepository.existsByName(parkingLot.getName())) {
+            throw new RuntimeException("Lot name already exists");
+        }
+        validateLocation(parkingLot.getLatitude(), parkingLot.getLongitude());
+        
+        LocalDateTime now = LocalDateTime.now();
+        parkingLot.setId(null);
+        parkingLot.setCreatedAt(now.format(formatter));
+        parkingLot.setUpdatedAt(now.format(formatter));
+        
+        ParkingLot savedLot = parkingLotRepository.save(parkingLot);
+        lotIndex.lotsChanged();
+        return savedLot;
+    }
+    
+    /**
+     * Update the lot's address and location. Slots refer to the lot by name, so
+     * a lot that still has slots cannot be renamed.
+     */
+    public ParkingLot updateParkingLot(String id, ParkingLot lotDetails) {
+        ParkingLot parkingLot = parkingLotRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Parking lot not found with id: " + id));
+        
+        if (lotDetails.getName() != null && !lotDetails.getName().equals(parkingLot.getName())) {
+            if (parkingLotRepository.existsByName(lotDetails.getName())) {
+                throw new RuntimeException("Lot name already exists");
+            }
+            if (hasSlots(parkingLot.getName())) {
+                throw new RuntimeException("Lot still has slots, move them before renaming it");
+            }
+            parkingLot.setName(lotDetails.getName());
+        }
+        validateLocation(lotDetails.getLatitude(), lotDetails.getLongitude());
+        parkingLot.setAddress(lotDetails.getAddress());
+        parkingLot.setLatitude(lotDetails.getLatitude());
+        parkingLot.setLongitude(lotDetails.getLongitude());
+        parkingLot.setUpdatedAt(LocalDateTime.now().format(formatter));
+        
+        ParkingLot savedLot = parkingLotRepository.save(parkingLot);
+        lotIndex.lotsChanged();
+        return savedLot;
+    }
+    
+    public void deleteParkingLot(String id) {
+        ParkingLot parkingLot = parkingLotRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Parking lot not found with id: " + id));
+        if (hasSlots(parkingLot.getName())) {
+            throw new RuntimeException("Lot still has slots, delete or move them first");
+        }
+        
+        parkingLotRepository.delete(parkingLot);
+        lotIndex.lotsChanged();
+    }
+    
+    /**
+     * Up to k lots nearest the point with a free slot matching the attributes
+     */
+    public List<NearestLot> findNearestParkingLots(double latitude, double longitude, int k, Boolean ev,
+            SizeClass size, Boolean accessible) {
+        validateLocation(latitude, longitude);
+        if (k < 1 || k > maxResults) {
+            throw new RuntimeException("k must be between 1 and " + maxResults);
+        }
+        return lotIndex.nearest(latitude, longitude, k, ev, size, accessible);
+    }
+    
+    private boolean hasSlots(String lotName) {
+        return mongoTemplate.exists(Query.query(Criteria.where("lot").is(lotName)), ParkingSlot.class);
+    }
+    
+    private static void validateLocation(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new RuntimeException("Latitude must be within -90..90 and longitude within -180..180");
+        }
+    }
+}
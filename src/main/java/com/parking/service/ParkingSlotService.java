@@ -2,87 +2,491 @@ package com.parking.service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.UpdateResult;
+import com.parking.dto.BulkRateUpdateRequest;
+import com.parking.dto.BulkRateUpdateResult;
+import com.parking.dto.BulkSlotRequest;
+import com.parking.dto.BulkSlotResult;
+import com.parking.dto.BulkSlotResult.RowStatus;
+import com.parking.dto.ListOptions;
+import com.parking.dto.ListPage;
+import com.parking.journal.BookingJournal;
+import com.parking.journal.JournalEvent;
+import com.parking.journal.JournalEvent.EventType;
+import com.parking.lots.LotIndex;
 import com.parking.model.ParkingSlot;
 import com.parking.model.ParkingSlot.SlotStatus;
+import com.parking.model.SlotHold;
+import com.parking.occupancy.OccupancyTimeSeries;
 import com.parking.repository.ParkingSlotRepository;
+import com.parking.snapshot.SlotStateStore;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 
 @Service
+@Slf4j
 public class ParkingSlotService {
 
     @Autowired
     private ParkingSlotRepository parkingSlotRepository;
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
     @Autowired
     private GlobalSettingsService globalSettingsService;
     
+    @Autowired
+    private DataVersionService dataVersionService;
+    
+    @Autowired
+    private BookingJournal bookingJournal;
+    
+    @Autowired
+    private OccupancyTimeSeries occupancyTimeSeries;
+    
+    @Autowired
+    private WriteBehindService writeBehindService;
+    
+    @Autowired
+    private KeysetPager keysetPager;
+    
+    @Autowired
+    private SingleFlightRegistry singleFlightRegistry;
+    
+    @Autowired
+    private SlotHoldService slotHoldService;
+    
+    @Autowired
+    private SlotSearchIndex slotSearchIndex;
+    
+    @Autowired
+    private LotIndex lotIndex;
+    
+    @Autowired
+    private SlotStateStore slotStateStore;
+    
+    @Value("${app.bulk.max-slots:20000}")
+    private int maxBulkSlots;
+    
+    @Value("${app.bulk.insert-chunk-size:1000}")
+    private int insertChunkSize;
+    
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+    
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
+    private SingleFlight<List<ParkingSlot>> allSlotsFlight;
+    
+    private SingleFlight<List<ParkingSlot>> availableSlotsFlight;
+    
+    private final List<Consumer<String>> slotFreedListeners = new CopyOnWriteArrayList<>();
+    
+    @PostConstruct
+    public void init() {
+        allSlotsFlight = singleFlightRegistry.create("parking-slots");
+        availableSlotsFlight = singleFlightRegistry.create("available-parking-slots");
+    }
+    
+    /**
+     * Slot numbers are unique in the database too, so concurrent bulk requests
+     * cannot both insert a number the duplicate check has not seen yet
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        try {
+            mongoTemplate.indexOps(ParkingSlot.class)
+                    .ensureIndex(new Index().on("slotNumber", Sort.Direction.ASC).unique());
+        } catch (RuntimeException e) {
+            log.warn("Could not create unique index on parking_slots.slotNumber, remove duplicate values first: {}",
+                    e.getMessage());
+        }
+    }
+    
+    /**
+     * All slots. Concurrent callers share one query, keyed by the slot version
+     * read before it, so the returned list is shared and read-only.
+     */
     public List<ParkingSlot> getAllParkingSlots() {
-        return parkingSlotRepository.findAll();
+        return allSlotsFlight.get(dataVersionService.getSlotsVersion(),
+                () -> Collections.unmodifiableList(parkingSlotRepository.findAll()));
     }
     
+    /**
+     * Available slots that nobody holds, coalesced like {@link #getAllParkingSlots()}.
+     * Placing or expiring a hold bumps the slot version, so the key covers holds too.
+     */
     public List<ParkingSlot> getAvailableParkingSlots() {
-        return parkingSlotRepository.findByStatus(SlotStatus.AVAILABLE);
+        return availableSlotsFlight.get(dataVersionService.getSlotsVersion(), () -> {
+            Set<String> held = slotHoldService.getHeldSlotIds();
+            return Collections.unmodifiableList(parkingSlotRepository.findByStatus(SlotStatus.AVAILABLE).stream()
+                    .filter(slot -> !held.contains(slot.getId()))
+                    .collect(Collectors.toList()));
+        });
+    }
+    
+    public ListPage getParkingSlots(ListOptions options) {
+        return keysetPager.find(ParkingSlot.class, null, options);
+    }
+    
+    public ListPage getAvailableParkingSlots(ListOptions options) {
+        return keysetPager.find(ParkingSlot.class, availableCriteria(), options);
+    }
+    
+    /**
+     * Available and not held. The pager and exists() query raw documents, so
+     * held ids are converted to the ObjectIds they are stored as.
+     */
+    private Criteria availableCriteria() {
+        Criteria criteria = Criteria.where("status").is(SlotStatus.AVAILABLE.name());
+        Set<String> held = slotHoldService.getHeldSlotIds();
+        if (!held.isEmpty()) {
+            List<Object> heldIds = held.stream()
+                    .map(id -> ObjectId.isValid(id) ? (Object) new ObjectId(id) : id)
+                    .collect(Collectors.toList());
+            criteria = criteria.and("_id").nin(heldIds);
+        }
+        return criteria;
     }
     
     public Optional<ParkingSlot> getParkingSlotById(String id) {
-        return parkingSlotRepository.findById(id);
+        return findSlot(id);
+    }
+    
+    /**
+     * Register a callback run with the slot id whenever a slot becomes free to
+     * book: released, created, set available or let go of by its holder. Inside
+     * a write-behind unit it runs once the unit is committed.
+     */
+    public void addSlotFreedListener(Consumer<String> listener) {
+        slotFreedListeners.add(listener);
     }
     
     public ParkingSlot createParkingSlot(ParkingSlot parkingSlot) {
-        if (parkingSlotRepository.existsBySlotNumber(parkingSlot.getSlotNumber())) {
-            throw new RuntimeException("Slot number already exists");
+        ParkingSlot created = writeBehindService.exclusively(() -> {
+            if (parkingSlotRepository.existsBySlotNumber(parkingSlot.getSlotNumber())) {
+                throw new RuntimeException("Slot number already exists");
+            }
+            
+            // If hourly rate is not set, use the default rate from global settings
+            if (parkingSlot.getHourlyRate() == 0.0) {
+                double defaultHourlyRate = globalSettingsService.getGlobalSettings().getDefaultHourlyRate();
+                parkingSlot.setHourlyRate(defaultHourlyRate);
+            }
+            
+            LocalDateTime now = LocalDateTime.now();
+            parkingSlot.setCreatedAt(now.format(formatter));
+            parkingSlot.setUpdatedAt(now.format(formatter));
+            
+            ParkingSlot savedSlot = saveAndBumpVersion(parkingSlot);
+            slotSearchIndex.layoutChanged();
+            bookingJournal.append(JournalEvent.of(EventType.SLOT_CREATED, savedSlot.getId(), null, null));
+            return savedSlot;
+        });
+        // Outside the exclusive write: offering the slot takes its cluster lock,
+        // which routed requests take before the commit lock
+        if (created.getStatus() == SlotStatus.AVAILABLE) {
+            slotFreed(created.getId());
+        }
+        return created;
+    }
+    
+    /**
+     * Create many slots at once. Duplicates are detected with a single $in query,
+     * default rates come from a single settings read, and the new slots are
+     * inserted with unordered bulk inserts in chunks. Every requested slot gets a
+     * row in the result, in request order.
+     */
+    public BulkSlotResult createParkingSlotsBulk(BulkSlotRequest request) {
+        List<ParkingSlot> slots = expandBulkRequest(request);
+        if (slots.size() > maxBulkSlots) {
+            throw new RuntimeException("Too many slots in one request, the limit is " + maxBulkSlots);
+        }
+        
+        BulkSlotResult result = new BulkSlotResult();
+        result.setRequested(slots.size());
+        
+        // Validate and drop duplicates within the request itself
+        List<BulkSlotResult.Row> rows = result.getRows();
+        Set<String> requestedNumbers = new HashSet<>();
+        List<Integer> candidates = new ArrayList<>();
+        for (ParkingSlot slot : slots) {
+            String slotNumber = slot.getSlotNumber();
+            if (slotNumber == null || slotNumber.isBlank()) {
+                rows.add(new BulkSlotResult.Row(slotNumber, RowStatus.INVALID, null, "Slot number is required"));
+            } else if (!requestedNumbers.add(slotNumber)) {
+                rows.add(new BulkSlotResult.Row(slotNumber, RowStatus.DUPLICATE, null, "Slot number repeated in request"));
+            } else {
+                rows.add(null);
+                candidates.add(rows.size() - 1);
+            }
+        }
+        
+        // Units only update existing slots and never change slot numbers, so
+        // the inserts and the duplicate check need no flush or exclusive write
+        Set<String> existingNumbers = new HashSet<>();
+        if (!requestedNumbers.isEmpty()) {
+            parkingSlotRepository.findSlotNumbersIn(requestedNumbers)
+                    .forEach(existing -> existingNumbers.add(existing.getSlotNumber()));
         }
         
-        // If hourly rate is not set, use the default rate from global settings
-        if (parkingSlot.getHourlyRate() == 0.0) {
-            double defaultHourlyRate = globalSettingsService.getGlobalSettings().getDefaultHourlyRate();
-            parkingSlot.setHourlyRate(defaultHourlyRate);
+        double defaultHourlyRate = globalSettingsService.getGlobalSettings().getDefaultHourlyRate();
+        String now = LocalDateTime.now().format(formatter);
+        
+        List<ParkingSlot> toInsert = new ArrayList<>();
+        List<Integer> insertRows = new ArrayList<>();
+        for (int index : candidates) {
+            ParkingSlot slot = slots.get(index);
+            if (existingNumbers.contains(slot.getSlotNumber())) {
+                rows.set(index, new BulkSlotResult.Row(slot.getSlotNumber(), RowStatus.DUPLICATE, null, "Slot number already exists"));
+                continue;
+            }
+            
+            // Assign ids up front so the report can return them without reading back
+            slot.setId(new ObjectId().toHexString());
+            // New slots start free; occupying one takes a booking
+            slot.setStatus(SlotStatus.AVAILABLE);
+            slot.setBookedBy(null);
+            slot.setStartTime(null);
+            slot.setEndTime(null);
+            if (slot.getHourlyRate() == 0.0) {
+                slot.setHourlyRate(defaultHourlyRate);
+            }
+            slot.setCreatedAt(now);
+            slot.setUpdatedAt(now);
+            
+            rows.set(index, new BulkSlotResult.Row(slot.getSlotNumber(), RowStatus.CREATED, slot.getId(), null));
+            toInsert.add(slot);
+            insertRows.add(index);
+        }
+        
+        for (int start = 0; start < toInsert.size(); start += insertChunkSize) {
+            int end = Math.min(start + insertChunkSize, toInsert.size());
+            insertChunk(toInsert.subList(start, end), insertRows.subList(start, end), rows);
+        }
+        
+        for (int i = 0; i < toInsert.size(); i++) {
+            if (rows.get(insertRows.get(i)).getStatus() == RowStatus.CREATED) {
+                lotIndex.slotSaved(toInsert.get(i));
+            }
         }
         
-        LocalDateTime now = LocalDateTime.now();
-        parkingSlot.setCreatedAt(now.format(formatter));
-        parkingSlot.setUpdatedAt(now.format(formatter));
-        return parkingSlotRepository.save(parkingSlot);
+        for (BulkSlotResult.Row row : rows) {
+            switch (row.getStatus()) {
+            case CREATED:
+                result.setCreated(result.getCreated() + 1);
+                bookingJournal.append(JournalEvent.of(EventType.SLOT_CREATED, row.getId(), null, null));
+                break;
+            case DUPLICATE:
+                result.setDuplicates(result.getDuplicates() + 1);
+                break;
+            case INVALID:
+                result.setInvalid(result.getInvalid() + 1);
+                break;
+            default:
+                result.setFailed(result.getFailed() + 1);
+            }
+        }
+        
+        if (result.getCreated() > 0) {
+            dataVersionService.bumpSlotsVersion();
+            slotSearchIndex.layoutChanged();
+            for (BulkSlotResult.Row row : rows) {
+                if (row.getStatus() == RowStatus.CREATED) {
+                    slotFreed(row.getId());
+                }
+            }
+        }
+        return result;
     }
     
-    public ParkingSlot updateParkingSlot(String id, ParkingSlot parkingSlotDetails) {
-        ParkingSlot parkingSlot = parkingSlotRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Parking slot not found with id: " + id));
-        
-        parkingSlot.setSlotNumber(parkingSlotDetails.getSlotNumber());
-        parkingSlot.setStatus(parkingSlotDetails.getStatus());
+    private void insertChunk(List<ParkingSlot> chunk, List<Integer> chunkRows, List<BulkSlotResult.Row> rows) {
+        try {
+            mongoTemplate.bulkOps(BulkMode.UNORDERED, ParkingSlot.class).insert(chunk).execute();
+        } catch (BulkOperationException e) {
+            // Unordered, so only the reported documents failed; a unique index on
+            // slotNumber turns a concurrent duplicate into error 11000 here
+            for (BulkWriteError error : e.getErrors()) {
+                BulkSlotResult.Row row = rows.get(chunkRows.get(error.getIndex()));
+                boolean duplicate = error.getCode() == DUPLICATE_KEY_ERROR;
+                row.setStatus(duplicate ? RowStatus.DUPLICATE : RowStatus.FAILED);
+                row.setMessage(duplicate ? "Slot number already exists" : error.getMessage());
+                row.setId(null);
+            }
+        } catch (RuntimeException e) {
+            for (int index : chunkRows) {
+                BulkSlotResult.Row row = rows.get(index);
+                row.setStatus(RowStatus.FAILED);
+                row.setMessage(e.getMessage());
+                row.setId(null);
+            }
+        }
+    }
+    
+    private List<ParkingSlot> expandBulkRequest(BulkSlotRequest request) {
+        if (request.getSlots() != null && !request.getSlots().isEmpty()) {
+            return request.getSlots();
+        }
         
-        // Update hourly rate if provided
-        if (parkingSlotDetails.getHourlyRate() > 0) {
-            parkingSlot.setHourlyRate(parkingSlotDetails.getHourlyRate());
+        if (request.getRangeStart() == null || request.getRangeEnd() == null) {
+            throw new RuntimeException("Either slots or rangeStart and rangeEnd are required");
+        }
+        if (request.getRangeEnd() < request.getRangeStart()) {
+            throw new RuntimeException("rangeEnd must not be less than rangeStart");
+        }
+        if ((long) request.getRangeEnd() - request.getRangeStart() + 1 > maxBulkSlots) {
+            throw new RuntimeException("Too many slots in one request, the limit is " + maxBulkSlots);
         }
         
-        parkingSlot.setUpdatedAt(LocalDateTime.now().format(formatter));
+        String prefix = request.getPrefix() != null ? request.getPrefix() : "";
+        String numberFormat = request.getPadding() > 0 ? "%0" + request.getPadding() + "d" : "%d";
         
-        return parkingSlotRepository.save(parkingSlot);
+        List<ParkingSlot> slots = new ArrayList<>();
+        for (int number = request.getRangeStart(); number <= request.getRangeEnd(); number++) {
+            ParkingSlot slot = new ParkingSlot();
+            slot.setSlotNumber(prefix + String.format(numberFormat, number));
+            slot.setLot(request.getLot());
+            slot.setHourlyRate(request.getHourlyRate());
+            slot.setEvCharger(request.getEvCharger());
+            slot.setSize(request.getSize());
+            slot.setFloor(request.getFloor());
+            slot.setAccessible(request.getAccessible());
+            slots.add(slot);
+        }
+        return slots;
+    }
+    
+    public ParkingSlot updateParkingSlot(String id, ParkingSlot parkingSlotDetails) {
+        return writeBehindService.exclusively(() -> {
+            ParkingSlot parkingSlot = findSlot(id)
+                    .orElseThrow(() -> new RuntimeException("Parking slot not found with id: " + id));
+            
+            SlotStatus previousStatus = parkingSlot.getStatus();
+            parkingSlot.setSlotNumber(parkingSlotDetails.getSlotNumber());
+            if (parkingSlotDetails.getLot() != null) {
+                parkingSlot.setLot(parkingSlotDetails.getLot());
+            }
+            parkingSlot.setStatus(parkingSlotDetails.getStatus());
+            
+            // Update hourly rate if provided
+            if (parkingSlotDetails.getHourlyRate() > 0) {
+                parkingSlot.setHourlyRate(parkingSlotDetails.getHourlyRate());
+            }
+            
+            // Attributes are only changed when given, the admin form does not send them
+            if (parkingSlotDetails.getEvCharger() != null) {
+                parkingSlot.setEvCharger(parkingSlotDetails.getEvCharger());
+            }
+            if (parkingSlotDetails.getSize() != null) {
+                parkingSlot.setSize(parkingSlotDetails.getSize());
+            }
+            if (parkingSlotDetails.getFloor() != null) {
+                parkingSlot.setFloor(parkingSlotDetails.getFloor());
+            }
+            if (parkingSlotDetails.getAccessible() != null) {
+                parkingSlot.setAccessible(parkingSlotDetails.getAccessible());
+            }
+            
+            parkingSlot.setUpdatedAt(LocalDateTime.now().format(formatter));
+            
+            ParkingSlot savedSlot = saveAndBumpVersion(parkingSlot);
+            slotSearchIndex.layoutChanged();
+            
+            // An admin can flip the status directly, journal it as the matching transition
+            if (previousStatus != savedSlot.getStatus()) {
+                boolean occupied = savedSlot.getStatus() == SlotStatus.OCCUPIED;
+                EventType type = occupied ? EventType.SLOT_BOOKED : EventType.SLOT_RELEASED;
+                bookingJournal.append(JournalEvent.of(type, savedSlot.getId(), savedSlot.getBookedBy(), null));
+                if (occupied) {
+                    occupancyTimeSeries.slotOccupied(savedSlot.getId());
+                } else {
+                    occupancyTimeSeries.slotReleased(savedSlot.getId());
+                    slotFreed(savedSlot.getId());
+                }
+            }
+            return savedSlot;
+        });
     }
     
     public void deleteParkingSlot(String id) {
-        ParkingSlot parkingSlot = parkingSlotRepository.findById(id)
+        writeBehindService.exclusively(() -> {
+            ParkingSlot parkingSlot = findSlot(id)
+                    .orElseThrow(() -> new RuntimeException("Parking slot not found with id: " + id));
+            
+            parkingSlotRepository.delete(parkingSlot);
+            dataVersionService.bumpSlotsVersion();
+            lotIndex.slotDeleted(id);
+            slotStateStore.slotDeleted(id);
+            slotSearchIndex.layoutChanged();
+            bookingJournal.append(JournalEvent.of(EventType.SLOT_DELETED, id, null, null));
+            occupancyTimeSeries.slotReleased(id);
+            return null;
+        });
+    }
+    
+    /**
+     * Hold an available slot for the user while they confirm the booking
+     */
+    public SlotHold holdParkingSlot(String id, String userId, Long seconds) {
+        ParkingSlot parkingSlot = findSlot(id)
                 .orElseThrow(() -> new RuntimeException("Parking slot not found with id: " + id));
         
-        parkingSlotRepository.delete(parkingSlot);
+        if (parkingSlot.getStatus() == SlotStatus.OCCUPIED) {
+            throw new RuntimeException("Parking slot is already occupied");
+        }
+        
+        return slotHoldService.hold(id, userId, seconds);
     }
     
+    public void releaseParkingSlotHold(String id, String userId) {
+        if (!slotHoldService.release(id, userId)) {
+            throw new RuntimeException("Parking slot is not held by this user");
+        }
+        slotFreed(id);
+    }
+    
+    /**
+     * Book the slot for the user, consuming their hold on it. Slots held by
+     * someone else cannot be booked.
+     */
     public ParkingSlot bookParkingSlot(String id, String userId, String startTime, String endTime) {
-        ParkingSlot parkingSlot = parkingSlotRepository.findById(id)
+        ParkingSlot parkingSlot = findSlot(id)
                 .orElseThrow(() -> new RuntimeException("Parking slot not found with id: " + id));
         
         if (parkingSlot.getStatus() == SlotStatus.OCCUPIED) {
             throw new RuntimeException("Parking slot is already occupied");
         }
+        slotHoldService.checkBookable(id, userId);
         
         parkingSlot.setStatus(SlotStatus.OCCUPIED);
         parkingSlot.setBookedBy(userId);
@@ -90,11 +494,17 @@ public class ParkingSlotService {
         parkingSlot.setEndTime(endTime);
         parkingSlot.setUpdatedAt(LocalDateTime.now().format(formatter));
         
-        return parkingSlotRepository.save(parkingSlot);
+        ParkingSlot savedSlot = saveAndBumpVersion(parkingSlot);
+        writeBehindService.afterCommit(() -> {
+            slotHoldService.release(id, userId);
+            bookingJournal.append(JournalEvent.of(EventType.SLOT_BOOKED, id, userId, null));
+            occupancyTimeSeries.slotOccupied(id);
+        });
+        return savedSlot;
     }
     
     public ParkingSlot releaseParkingSlot(String id) {
-        ParkingSlot parkingSlot = parkingSlotRepository.findById(id)
+        ParkingSlot parkingSlot = findSlot(id)
                 .orElseThrow(() -> new RuntimeException("Parking slot not found with id: " + id));
         
         parkingSlot.setStatus(SlotStatus.AVAILABLE);
@@ -103,19 +513,174 @@ public class ParkingSlotService {
         parkingSlot.setEndTime(null);
         parkingSlot.setUpdatedAt(LocalDateTime.now().format(formatter));
         
-        return parkingSlotRepository.save(parkingSlot);
+        ParkingSlot savedSlot = saveAndBumpVersion(parkingSlot);
+        writeBehindService.afterCommit(() -> {
+            bookingJournal.append(JournalEvent.of(EventType.SLOT_RELEASED, id, null, null));
+            occupancyTimeSeries.slotReleased(id);
+        });
+        slotFreed(id);
+        return savedSlot;
+    }
+    
+    /**
+     * Hand an occupied slot straight to another user in one findAndModify, so it
+     * never shows up as available in between. Fails if the slot is no longer
+     * held by fromUserId.
+     */
+    public ParkingSlot transferParkingSlot(String id, String fromUserId, String toUserId, String startTime, String endTime) {
+        if (writeBehindService.inUnit()) {
+            return transferPendingParkingSlot(id, fromUserId, toUserId, startTime, endTime);
+        }
+        
+        Query query = new Query(Criteria.where("_id").is(id)
+                .and("status").is(SlotStatus.OCCUPIED)
+                .and("bookedBy").is(fromUserId));
+        Update update = new Update()
+                .set("bookedBy", toUserId)
+                .set("startTime", startTime)
+                .set("endTime", endTime)
+                .set("updatedAt", LocalDateTime.now().format(formatter));
+        
+        ParkingSlot savedSlot = writeBehindService.exclusively(() -> mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), ParkingSlot.class));
+        if (savedSlot == null) {
+            throw new RuntimeException("Parking slot is no longer held by the releasing booking: " + id);
+        }
+        
+        dataVersionService.bumpSlotsVersion();
+        // A booked event for an occupied slot replaces its occupant in the journal
+        bookingJournal.append(JournalEvent.of(EventType.SLOT_BOOKED, id, toUserId, null));
+        return savedSlot;
+    }
+    
+    /**
+     * Transfer inside a write-behind unit, where Mongo may not have the latest
+     * slot yet. The check and the write land in the same commit.
+     */
+    private ParkingSlot transferPendingParkingSlot(String id, String fromUserId, String toUserId, String startTime, String endTime) {
+        ParkingSlot parkingSlot = findSlot(id)
+                .filter(slot -> slot.getStatus() == SlotStatus.OCCUPIED && fromUserId.equals(slot.getBookedBy()))
+                .orElseThrow(() -> new RuntimeException("Parking slot is no longer held by the releasing booking: " + id));
+        
+        parkingSlot.setBookedBy(toUserId);
+        parkingSlot.setStartTime(startTime);
+        parkingSlot.setEndTime(endTime);
+        parkingSlot.setUpdatedAt(LocalDateTime.now().format(formatter));
+        
+        ParkingSlot savedSlot = saveAndBumpVersion(parkingSlot);
+        writeBehindService.afterCommit(
+                () -> bookingJournal.append(JournalEvent.of(EventType.SLOT_BOOKED, id, toUserId, null)));
+        return savedSlot;
+    }
+    
+    /**
+     * Whether any slot is available and not held
+     */
+    public boolean hasAvailableSlot() {
+        return mongoTemplate.exists(new Query(availableCriteria()), ParkingSlot.class);
     }
     
     /**
      * Update only the hourly rate of a parking slot
      */
     public ParkingSlot updateParkingSlotRate(String id, double hourlyRate) {
-        ParkingSlot parkingSlot = parkingSlotRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Parking slot not found with id: " + id));
+        return writeBehindService.exclusively(() -> {
+            ParkingSlot parkingSlot = findSlot(id)
+                    .orElseThrow(() -> new RuntimeException("Parking slot not found with id: " + id));
+            
+            parkingSlot.setHourlyRate(hourlyRate);
+            parkingSlot.setUpdatedAt(LocalDateTime.now().format(formatter));
+            
+            ParkingSlot savedSlot = saveAndBumpVersion(parkingSlot);
+            slotSearchIndex.layoutChanged();
+            return savedSlot;
+        });
+    }
+    
+    /**
+     * Reprice every slot matching the filter with a single updateMulti. The slot
+     * version is bumped once afterwards, so version-keyed caches and ETags switch
+     * from the old prices to the new ones in one step.
+     */
+    public BulkRateUpdateResult updateParkingSlotRates(BulkRateUpdateRequest request) {
+        if (request.getHourlyRate() <= 0) {
+            throw new RuntimeException("Hourly rate must be greater than zero");
+        }
+        boolean filtered = request.getFromSlotNumber() != null || request.getToSlotNumber() != null
+                || request.getStatus() != null || request.getLot() != null;
+        if (!filtered && !request.isAll()) {
+            throw new RuntimeException("Give at least one filter, or set all to reprice every slot");
+        }
         
-        parkingSlot.setHourlyRate(hourlyRate);
-        parkingSlot.setUpdatedAt(LocalDateTime.now().format(formatter));
+        Criteria criteria = new Criteria();
+        if (request.getFromSlotNumber() != null || request.getToSlotNumber() != null) {
+            // Slot numbers are compared as strings, so ranges need zero padded numbering
+            Criteria range = Criteria.where("slotNumber");
+            if (request.getFromSlotNumber() != null) {
+                range = range.gte(request.getFromSlotNumber());
+            }
+            if (request.getToSlotNumber() != null) {
+                range = range.lte(request.getToSlotNumber());
+            }
+            criteria = range;
+        }
+        
+        List<Criteria> filters = new ArrayList<>();
+        filters.add(criteria);
+        if (request.getStatus() != null) {
+            filters.add(Criteria.where("status").is(request.getStatus()));
+        }
+        if (request.getLot() != null) {
+            filters.add(Criteria.where("lot").is(request.getLot()));
+        }
+        
+        Query query = new Query(new Criteria().andOperator(filters));
+        Update update = new Update()
+                .set("hourlyRate", request.getHourlyRate())
+                .set("updatedAt", LocalDateTime.now().format(formatter));
+        
+        // No unit commits during the update, and units only write the fields they change
+        UpdateResult updateResult = writeBehindService.exclusively(
+                () -> mongoTemplate.updateMulti(query, update, ParkingSlot.class));
+        long version = dataVersionService.bumpSlotsVersion();
+        slotSearchIndex.layoutChanged();
+        
+        return new BulkRateUpdateResult(updateResult.getMatchedCount(), updateResult.getModifiedCount(), version);
+    }
+    
+    /**
+     * Save the slot and then bump the slot collection version. The bump must come
+     * after the write, otherwise a concurrent reader could pair the new ETag with
+     * the old data and keep serving it from its cache.
+     */
+    private ParkingSlot saveAndBumpVersion(ParkingSlot parkingSlot) {
+        if (writeBehindService.inUnit()) {
+            // Committed with the rest of the unit; the version is bumped once it reaches Mongo
+            ParkingSlot saved = writeBehindService.saveSlot(parkingSlot);
+            writeBehindService.afterCommit(() -> {
+                lotIndex.slotSaved(saved);
+                slotSearchIndex.slotSaved(saved);
+            });
+            return saved;
+        }
         
-        return parkingSlotRepository.save(parkingSlot);
+        // Outside a unit, write-behind writes come through exclusively(), after the flush
+        ParkingSlot saved = parkingSlotRepository.save(parkingSlot);
+        dataVersionService.bumpSlotsVersion();
+        lotIndex.slotSaved(saved);
+        slotSearchIndex.slotSaved(saved);
+        return saved;
+    }
+    
+    private void slotFreed(String id) {
+        writeBehindService.afterCommit(() -> {
+            for (Consumer<String> listener : slotFreedListeners) {
+                listener.accept(id);
+            }
+        });
+    }
+    
+    private Optional<ParkingSlot> findSlot(String id) {
+        return writeBehindService.findSlot(id, () -> parkingSlotRepository.findById(id));
     }
-}
\ No newline at end of file
+}
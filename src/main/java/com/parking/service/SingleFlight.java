@@ -0,0 +1,109 @@
+package com.parking.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.parking.dto.SingleFlightStats;
+
+/**
+ * Coalesces concurrent identical reads. The first caller for a key runs the
+ * loader; callers arriving while it runs wait for the same result, and so do
+ * callers within ttlMs after it finished. A failed load is shared with the
+ * callers already waiting on it but not cached.
+ *
+ * Keys should carry whatever version the result depends on, so a write makes
+ * the next read start a fresh load instead of getting the cached result.
+ * Results are shared between callers and must not be modified.
+ */
+public class SingleFlight<V> {
+
+    private final String name;
+    private final long ttlMs;
+
+    private final Map<Object, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder joinedInFlight = new LongAdder();
+    private final LongAdder servedFromTtl = new LongAdder();
+
+    SingleFlight(String name, long ttlMs) {
+        this.name = name;
+        this.ttlMs = ttlMs;
+    }
+
+    public V get(Object key, Supplier<V> loader) {
+        requests.increment();
+        while (true) {
+            long now = System.currentTimeMillis();
+            Flight<V> flight = flights.get(key);
+            if (flight != null && !flight.isExpired(now, ttlMs)) {
+                if (flight.future.isDone()) {
+                    servedFromTtl.increment();
+                } else {
+                    joinedInFlight.increment();
+                }
+                return flight.await();
+            }
+
+            Flight<V> mine = new Flight<>();
+            boolean started = flight == null ? flights.putIfAbsent(key, mine) == null : flights.replace(key, flight, mine);
+            if (started) {
+                return load(key, mine, loader, now);
+            }
+            // Someone else started a load for this key first, go round and join it
+        }
+    }
+
+    private V load(Object key, Flight<V> flight, Supplier<V> loader, long now) {
+        loads.increment();
+        // Keys are usually versions, so drop the results of old ones while we are here
+        flights.values().removeIf(other -> other.isExpired(now, ttlMs));
+        try {
+            V value = loader.get();
+            flight.completedAt = System.currentTimeMillis();
+            flight.future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public SingleFlightStats getStats() {
+        long requestCount = requests.sum();
+        long loadCount = loads.sum();
+        double ratio = requestCount > 0 ? (double) (requestCount - loadCount) / requestCount : 0.0;
+        return new SingleFlightStats(name, ttlMs, requestCount, loadCount, joinedInFlight.sum(), servedFromTtl.sum(), ratio);
+    }
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        // Zero while the load is running
+        private volatile long completedAt;
+
+        boolean isExpired(long now, long ttlMs) {
+            long completed = completedAt;
+            return completed != 0 && now - completed > ttlMs;
+        }
+
+        V await() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
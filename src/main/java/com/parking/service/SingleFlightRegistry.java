@@ -0,0 +1,33 @@
+package com.parking.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.parking.dto.SingleFlightStats;
+
+/**
+ * Creates the {@link SingleFlight} groups used by the hot read paths, with the
+ * configured micro-TTL, and collects their coalescing metrics
+ */
+@Service
+public class SingleFlightRegistry {
+
+    @Value("${app.single-flight.ttl-ms:100}")
+    private long ttlMs;
+
+    private final List<SingleFlight<?>> groups = new CopyOnWriteArrayList<>();
+
+    public <V> SingleFlight<V> create(String name) {
+        SingleFlight<V> group = new SingleFlight<>(name, ttlMs);
+        groups.add(group);
+        return group;
+    }
+
+    public List<SingleFlightStats> getStats() {
+        return groups.stream().map(SingleFlight::getStats).collect(Collectors.toList());
+    }
+}
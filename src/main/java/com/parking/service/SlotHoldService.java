@@ -0,0 +1,285 @@
+package com.parking.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import com.parking.cluster.ClusterService;
+import com.parking.model.SlotHold;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Short-lived holds on available slots, taken while a user confirms a booking.
+ *
+ * Holds live in slot_holds, keyed by slot id, so two users racing for a slot
+ * are decided by Mongo's unique _id. Expiry is driven by a DelayQueue drained
+ * by a single reaper thread, which frees the slot on time and offers it to the
+ * waitlist; the TTL index on expiresAt only cleans up after instances that
+ * died with holds outstanding. A user holds at most one slot at a time.
+ */
+@Service
+@Slf4j
+public class SlotHoldService {
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Value("${app.hold.default-seconds:120}")
+    private long defaultSeconds;
+
+    @Value("${app.hold.max-seconds:600}")
+    private long maxSeconds;
+
+    private final Map<String, SlotHold> holds = new ConcurrentHashMap<>();
+
+    private final DelayQueue<Expiry> expiries = new DelayQueue<>();
+
+    private final List<Consumer<String>> expiryListeners = new CopyOnWriteArrayList<>();
+
+    private Thread reaper;
+
+    // Until holds from before a restart are loaded, lookups go to Mongo
+    private volatile boolean recovered;
+
+    @PostConstruct
+    public void start() {
+        reaper = new Thread(this::reap, "slot-hold-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    /**
+     * Create the indexes and pick up holds from before a restart so they still
+     * expire on time. Runs once the application is ready; holds taken or
+     * released meanwhile are already tracked or gone.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        mongoTemplate.indexOps(SlotHold.class)
+                .ensureIndex(new Index().on("expiresAt", Sort.Direction.ASC).expire(0, TimeUnit.SECONDS));
+        mongoTemplate.indexOps(SlotHold.class)
+                .ensureIndex(new Index().on("userId", Sort.Direction.ASC));
+
+        List<SlotHold> outstanding = mongoTemplate.find(
+                Query.query(Criteria.where("expiresAt").gt(new Date())), SlotHold.class);
+        Set<String> slotIds = new HashSet<>();
+        for (SlotHold hold : outstanding) {
+            if (holds.putIfAbsent(hold.getSlotId(), hold) == null) {
+                expiries.offer(new Expiry(hold.getSlotId(), hold.getExpiresAt().getTime()));
+            }
+            slotIds.add(hold.getSlotId());
+        }
+
+        // A hold released after the read above did not find itself in memory to remove
+        Query query = Query.query(Criteria.where("_id").in(slotIds));
+        query.fields().include("_id");
+        Set<String> live = new HashSet<>();
+        mongoTemplate.find(query, SlotHold.class).forEach(hold -> live.add(hold.getSlotId()));
+        for (SlotHold hold : outstanding) {
+            if (!live.contains(hold.getSlotId())) {
+                holds.remove(hold.getSlotId(), hold);
+            }
+        }
+        recovered = true;
+        log.info("Recovered {} outstanding slot holds", live.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        reaper.interrupt();
+    }
+
+    /**
+     * Register a callback run with the slot id whenever a hold expires unused.
+     * Callbacks run on the reaper thread.
+     */
+    public void addExpiryListener(Consumer<String> listener) {
+        expiryListeners.add(listener);
+    }
+
+    /**
+     * Hold the slot for the user, or extend their existing hold. The caller
+     * checks that the slot is available.
+     */
+    public SlotHold hold(String slotId, String userId, Long seconds) {
+        if (userId == null || userId.isEmpty()) {
+            throw new RuntimeException("User id is required");
+        }
+        long holdSeconds = seconds != null ? seconds : defaultSeconds;
+        if (holdSeconds <= 0 || holdSeconds > maxSeconds) {
+            throw new RuntimeException("Hold time must be between 1 and " + maxSeconds + " seconds");
+        }
+
+        Date now = new Date();
+        SlotHold hold = new SlotHold(slotId, userId, new Date(now.getTime() + holdSeconds * 1000),
+                LocalDateTime.now().format(formatter));
+
+        // Matches a free hold document or the user's own; anything else makes the
+        // upsert insert a second document with the same _id, which Mongo refuses
+        Query query = new Query(Criteria.where("_id").is(slotId)
+                .orOperator(Criteria.where("expiresAt").lte(now), Criteria.where("userId").is(userId)));
+        Update update = new Update()
+                .set("userId", userId)
+                .set("expiresAt", hold.getExpiresAt())
+                .set("createdAt", hold.getCreatedAt());
+        try {
+            mongoTemplate.upsert(query, update, SlotHold.class);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("Parking slot is already held by another user");
+        }
+
+        releaseOtherHolds(slotId, userId);
+        track(hold);
+        dataVersionService.bumpSlotsVersion();
+        return hold;
+    }
+
+    /**
+     * Drop the user's hold on the slot. Returns false if they did not hold it.
+     */
+    public boolean release(String slotId, String userId) {
+        long removed = mongoTemplate.remove(Query.query(Criteria.where("_id").is(slotId).and("userId").is(userId)),
+                SlotHold.class).getDeletedCount();
+        SlotHold hold = holds.get(slotId);
+        if (hold != null && hold.getUserId().equals(userId)) {
+            holds.remove(slotId, hold);
+        }
+        if (removed > 0) {
+            dataVersionService.bumpSlotsVersion();
+        }
+        return removed > 0;
+    }
+
+    /**
+     * Fail unless the slot is free of holds or held by this user
+     */
+    public void checkBookable(String slotId, String userId) {
+        SlotHold hold = activeHold(slotId);
+        if (hold != null && !hold.getUserId().equals(userId)) {
+            throw new RuntimeException("Parking slot is held by another user");
+        }
+    }
+
+    /**
+     * Ids of slots currently held, to be left out of availability
+     */
+    public Set<String> getHeldSlotIds() {
+        Date now = new Date();
+        Set<String> slotIds = new HashSet<>();
+        if (clusterService.isEnabled() || !recovered) {
+            // Other instances hold slots too, or ours are still loading; ask Mongo
+            Query query = Query.query(Criteria.where("expiresAt").gt(now));
+            query.fields().include("_id");
+            mongoTemplate.find(query, SlotHold.class).forEach(hold -> slotIds.add(hold.getSlotId()));
+            return slotIds;
+        }
+        holds.forEach((slotId, hold) -> {
+            if (hold.getExpiresAt().after(now)) {
+                slotIds.add(slotId);
+            }
+        });
+        return slotIds;
+    }
+
+    private SlotHold activeHold(String slotId) {
+        SlotHold hold = clusterService.isEnabled() || !recovered
+                ? mongoTemplate.findById(slotId, SlotHold.class)
+                : holds.get(slotId);
+        return hold != null && hold.getExpiresAt().after(new Date()) ? hold : null;
+    }
+
+    private void releaseOtherHolds(String slotId, String userId) {
+        Query query = Query.query(Criteria.where("userId").is(userId).and("_id").ne(slotId));
+        if (mongoTemplate.remove(query, SlotHold.class).getDeletedCount() > 0) {
+            holds.values().removeIf(hold -> hold.getUserId().equals(userId) && !hold.getSlotId().equals(slotId));
+        }
+    }
+
+    private void track(SlotHold hold) {
+        holds.put(hold.getSlotId(), hold);
+        expiries.offer(new Expiry(hold.getSlotId(), hold.getExpiresAt().getTime()));
+    }
+
+    private void reap() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                expire(expiries.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Failed to expire slot hold: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void expire(Expiry expiry) {
+        SlotHold hold = holds.get(expiry.slotId);
+        // Extended, released or consumed since this expiry was queued
+        if (hold == null || hold.getExpiresAt().getTime() != expiry.expiresAt || !holds.remove(expiry.slotId, hold)) {
+            return;
+        }
+
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(expiry.slotId).and("expiresAt").is(hold.getExpiresAt())),
+                SlotHold.class);
+        dataVersionService.bumpSlotsVersion();
+        for (Consumer<String> listener : expiryListeners) {
+            listener.accept(expiry.slotId);
+        }
+    }
+
+    private static final class Expiry implements Delayed {
+        private final String slotId;
+        private final long expiresAt;
+
+        private Expiry(String slotId, long expiresAt) {
+            this.slotId = slotId;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAt, ((Expiry) other).expiresAt);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package com.parking.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.parking.dto.SlotSearchQuery;
+import com.parking.dto.SlotSearchResult;
+import com.parking.invalidation.CacheTopic;
+import com.parking.invalidation.InvalidationBus;
+import com.parking.invalidation.InvalidationEvent.Operation;
+import com.parking.model.ParkingSlot;
+import com.parking.model.ParkingSlot.SizeClass;
+import com.parking.model.ParkingSlot.SlotStatus;
+import com.parking.snapshot.SlotStateStore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory search over slot attributes. Every slot gets a dense ordinal, and
+ * every attribute value (EV charger, size class, floor, lot, accessible) a
+ * compressed bitmap of the ordinals that have it. A search intersects the
+ * bitmaps of its filters, smallest first, with the bitmap of slots that are
+ * available and not held. It never touches Mongo.
+ *
+ * Attributes change rarely and availability changes all the time, so they are
+ * refreshed separately. The attribute bitmaps are rebuilt from the
+ * {@link SlotStateStore} when {@link #layoutChanged()} is called. Occupancy
+ * is flipped per slot by {@link #slotSaved}, as the {@link com.parking.lots.LotIndex}
+ * is, and slots changed by other instances are read back by id. After a slot
+ * version bump the availability bitmap is recomputed from occupancy and holds,
+ * off-thread and debounced like the snapshot cache, so a freed slot may show
+ * up a debounce plus one refresh late. Every app.slot-search.full-rebuild-ms
+ * everything, occupancy included, is reconciled with Mongo.
+ */
+@Service
+@Slf4j
+public class SlotSearchIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private SlotStateStore slotStateStore;
+
+    @Value("${app.slot-search.debounce-ms:50}")
+    private long debounceMs;
+
+    @Value("${app.slot-search.max-results:1000}")
+    private int maxResults;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "slot-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    private volatile boolean layoutDirty = true;
+
+    private volatile Index index;
+
+    // Guards replacing the index, so flips and refreshes do not undo each other
+    private final Object swapLock = new Object();
+
+    // Occupancy flipped while a refresh reads Mongo, replayed onto its result
+    private Map<String, Boolean> flippedDuringRead;
+
+    // Updated slots, perhaps by another instance, whose status is read back on the next refresh
+    private final Set<String> changedSlotIds = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        dataVersionService.addSlotsListener(this::scheduleRefresh);
+        // Updates are mostly status flips, read back by id; anything else may
+        // have changed attributes or the slot set
+        invalidationBus.register(CacheTopic.SLOTS, event -> {
+            if (event.getOperation() == Operation.UPDATE && event.getDocumentId() != null) {
+                changedSlotIds.add(event.getDocumentId());
+            } else {
+                layoutChanged();
+            }
+        });
+    }
+
+    /**
+     * The first build reads every slot, so it waits until the application is
+     * ready; a search before then builds inline
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInitial() {
+        scheduleRefresh();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Slot attributes, or the set of slots, changed; rebuild everything on the
+     * next refresh. Call after the change has reached Mongo.
+     */
+    public void layoutChanged() {
+        layoutDirty = true;
+        scheduleRefresh();
+    }
+
+    /**
+     * Reconcile everything with Mongo, in case a flip or an invalidation was
+     * missed
+     */
+    @Scheduled(fixedDelayString = "${app.slot-search.full-rebuild-ms:60000}",
+            initialDelayString = "${app.slot-search.full-rebuild-ms:60000}")
+    public void reconcile() {
+        layoutChanged();
+    }
+
+    /**
+     * The slot was written; flip its occupancy. A slot that became occupied
+     * leaves the results at once, a freed one once the refresh after the
+     * version bump has checked its holds.
+     */
+    public void slotSaved(ParkingSlot slot) {
+        boolean occupied = slot.getStatus() == SlotStatus.OCCUPIED;
+        synchronized (swapLock) {
+            if (flippedDuringRead != null) {
+                flippedDuringRead.put(slot.getId(), occupied);
+            }
+            Index current = index;
+            Integer ordinal = current != null ? current.layout.ordinals.get(slot.getId()) : null;
+            // A new slot comes with layoutChanged()
+            if (ordinal == null || current.occupied.contains(ordinal) == occupied) {
+                return;
+            }
+            RoaringBitmap flipped = current.occupied.clone();
+            flipped.flip(ordinal);
+            RoaringBitmap available = current.available;
+            if (occupied && available.contains(ordinal)) {
+                available = available.clone();
+                available.remove(ordinal);
+            }
+            index = new Index(current.version, current.layout, flipped, available);
+        }
+    }
+
+    public SlotSearchResult search(SlotSearchQuery query) {
+        long started = System.nanoTime();
+        Index current = index;
+        if (current == null) {
+            // First search before the first build finished
+            refresh();
+            current = index;
+            if (current == null) {
+                throw new RuntimeException("Slot search index is not available yet");
+            }
+        }
+        Layout layout = current.layout;
+
+        List<RoaringBitmap> include = new ArrayList<>();
+        List<RoaringBitmap> exclude = new ArrayList<>();
+        filter(query.getEv(), layout.ev, include, exclude);
+        filter(query.getAccessible(), layout.accessible, include, exclude);
+        filter(query.getAvailable(), current.available, include, exclude);
+        if (query.getSize() != null) {
+            include.add(layout.sizes.getOrDefault(query.getSize(), EMPTY));
+        }
+        if (query.getFloor() != null) {
+            include.add(layout.floors.getOrDefault(query.getFloor(), EMPTY));
+        }
+        if (query.getLot() != null) {
+            include.add(layout.lots.getOrDefault(query.getLot(), EMPTY));
+        }
+
+        // Smallest first keeps every intermediate result small
+        include.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        RoaringBitmap matches = layout.all;
+        for (RoaringBitmap bitmap : include) {
+            matches = RoaringBitmap.and(matches, bitmap);
+        }
+        for (RoaringBitmap bitmap : exclude) {
+            matches = RoaringBitmap.andNot(matches, bitmap);
+        }
+
+        int limit = query.getLimit() != null ? Math.max(0, Math.min(query.getLimit(), maxResults)) : maxResults;
+        List<SlotSearchResult.Hit> hits = new ArrayList<>(Math.min(limit, matches.getCardinality()));
+        PeekableIntIterator ordinals = matches.getIntIterator();
+        while (ordinals.hasNext() && hits.size() < limit) {
+            int ordinal = ordinals.next();
+            ParkingSlot slot = layout.slots[ordinal];
+            hits.add(new SlotSearchResult.Hit(slot.getId(), slot.getSlotNumber(), slot.getLot(), slot.getFloor(),
+                    slot.getSize(), slot.getEvCharger(), slot.getAccessible(), slot.getHourlyRate(),
+                    current.available.contains(ordinal)));
+        }
+
+        long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+        return new SlotSearchResult(matches.getCardinality(), current.version, elapsedMicros, hits);
+    }
+
+    private static void filter(Boolean wanted, RoaringBitmap bitmap, List<RoaringBitmap> include, List<RoaringBitmap> exclude) {
+        if (wanted != null) {
+            (wanted ? include : exclude).add(bitmap);
+        }
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::refresh, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void refresh() {
+        // Clear the flags before reading, so a change landing during the
+        // refresh schedules another one
+        refreshScheduled.set(false);
+        long version = dataVersionService.getSlotsVersion();
+
+        try {
+            if (layoutDirty || index == null || !refreshAvailable(version)) {
+                rebuild(version);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh slot search index: {}", e.getMessage());
+        } finally {
+            synchronized (swapLock) {
+                flippedDuringRead = null;
+            }
+        }
+    }
+
+    /**
+     * Recompute availability from the occupancy kept by slotSaved, the status
+     * of slots changed elsewhere and the current holds. False if a changed
+     * slot is not in the layout.
+     */
+    private boolean refreshAvailable(long version) {
+        synchronized (swapLock) {
+            flippedDuringRead = new HashMap<>();
+        }
+        Map<String, Boolean> changed = new HashMap<>();
+        if (!changedSlotIds.isEmpty()) {
+            List<String> slotIds = new ArrayList<>(changedSlotIds);
+            changedSlotIds.removeAll(slotIds);
+            Query query = Query.query(Criteria.where("_id").in(slotIds));
+            query.fields().include("status");
+            for (ParkingSlot slot : mongoTemplate.find(query, ParkingSlot.class)) {
+                changed.put(slot.getId(), slot.getStatus() == SlotStatus.OCCUPIED);
+            }
+            if (changed.size() < slotIds.size()) {
+                // Deleted since
+                return false;
+            }
+        }
+        Set<String> held = slotHoldService.getHeldSlotIds();
+
+        synchronized (swapLock) {
+            Index current = index;
+            RoaringBitmap occupied = current.occupied;
+            if (!changed.isEmpty()) {
+                occupied = occupied.clone();
+                if (!apply(current.layout, occupied, changed)) {
+                    return false;
+                }
+                // Flips made after the read are newer
+                apply(current.layout, occupied, flippedDuringRead);
+            }
+            index = new Index(version, current.layout, occupied, available(current.layout, occupied, held));
+        }
+        return true;
+    }
+
+    /**
+     * Rebuild the attribute bitmaps and occupancy from Mongo
+     */
+    private void rebuild(long version) {
+        synchronized (swapLock) {
+            flippedDuringRead = new HashMap<>();
+        }
+        layoutDirty = false;
+        // Everything is read below
+        changedSlotIds.clear();
+        Layout layout = buildLayout();
+        RoaringBitmap occupied = buildOccupied(layout);
+        Set<String> held = slotHoldService.getHeldSlotIds();
+
+        synchronized (swapLock) {
+            apply(layout, occupied, flippedDuringRead);
+            index = new Index(version, layout, occupied, available(layout, occupied, held));
+        }
+    }
+
+    /**
+     * Set occupancy by slot id. False if a slot is not in the layout.
+     */
+    private static boolean apply(Layout layout, RoaringBitmap occupied, Map<String, Boolean> changed) {
+        boolean all = true;
+        for (Map.Entry<String, Boolean> slot : changed.entrySet()) {
+            Integer ordinal = layout.ordinals.get(slot.getKey());
+            if (ordinal == null) {
+                all = false;
+            } else if (slot.getValue()) {
+                occupied.add(ordinal);
+            } else {
+                occupied.remove(ordinal);
+            }
+        }
+        return all;
+    }
+
+    private Layout buildLayout() {
+        List<ParkingSlot> slots = slotStateStore.loadSlots();
+
+        Layout layout = new Layout(slots.toArray(new ParkingSlot[0]));
+        for (int ordinal = 0; ordinal < layout.slots.length; ordinal++) {
+            ParkingSlot slot = layout.slots[ordinal];
+            layout.ordinals.put(slot.getId(), ordinal);
+            if (Boolean.TRUE.equals(slot.getEvCharger())) {
+                layout.ev.add(ordinal);
+            }
+            if (Boolean.TRUE.equals(slot.getAccessible())) {
+                layout.accessible.add(ordinal);
+            }
+            if (slot.getSize() != null) {
+                layout.sizes.computeIfAbsent(slot.getSize(), size -> new RoaringBitmap()).add(ordinal);
+            }
+            if (slot.getFloor() != null) {
+                layout.floors.computeIfAbsent(slot.getFloor(), floor -> new RoaringBitmap()).add(ordinal);
+            }
+            if (slot.getLot() != null) {
+                layout.lots.computeIfAbsent(slot.getLot(), lot -> new RoaringBitmap()).add(ordinal);
+            }
+        }
+        layout.all.add(0L, layout.slots.length);
+
+        layout.ev.runOptimize();
+        layout.accessible.runOptimize();
+        layout.sizes.values().forEach(RoaringBitmap::runOptimize);
+        layout.floors.values().forEach(RoaringBitmap::runOptimize);
+        layout.lots.values().forEach(RoaringBitmap::runOptimize);
+        return layout;
+    }
+
+    /**
+     * Occupied slots in the layout, read from Mongo. Slots missing from the
+     * layout are skipped until the next rebuild.
+     */
+    private RoaringBitmap buildOccupied(Layout layout) {
+        Query occupiedQuery = Query.query(Criteria.where("status").is(SlotStatus.OCCUPIED.name()));
+        occupiedQuery.fields().include("_id");
+        RoaringBitmap occupied = new RoaringBitmap();
+        for (ParkingSlot slot : mongoTemplate.find(occupiedQuery, ParkingSlot.class)) {
+            Integer ordinal = layout.ordinals.get(slot.getId());
+            if (ordinal != null) {
+                occupied.add(ordinal);
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * Every slot in the layout that is neither occupied nor held
+     */
+    private static RoaringBitmap available(Layout layout, RoaringBitmap occupied, Set<String> held) {
+        RoaringBitmap unavailable = occupied.clone();
+        for (String slotId : held) {
+            Integer ordinal = layout.ordinals.get(slotId);
+            if (ordinal != null) {
+                unavailable.add(ordinal);
+            }
+        }
+
+        RoaringBitmap available = RoaringBitmap.andNot(layout.all, unavailable);
+        available.runOptimize();
+        return available;
+    }
+
+    private static final class Layout {
+        private final ParkingSlot[] slots;
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final RoaringBitmap ev = new RoaringBitmap();
+        private final RoaringBitmap accessible = new RoaringBitmap();
+        private final Map<SizeClass, RoaringBitmap> sizes = new EnumMap<>(SizeClass.class);
+        private final Map<Integer, RoaringBitmap> floors = new HashMap<>();
+        private final Map<String, RoaringBitmap> lots = new HashMap<>();
+
+        private Layout(ParkingSlot[] slots) {
+            this.slots = slots;
+        }
+    }
+
+    private static final class Index {
+        // Slot version the availability bitmap was computed at
+        private final long version;
+        private final Layout layout;
+        // Never changed once published; flips replace the index
+        private final RoaringBitmap occupied;
+        private final RoaringBitmap available;
+
+        private Index(long version, Layout layout, RoaringBitmap occupied, RoaringBitmap available) {
+            this.version = version;
+            this.layout = layout;
+            this.occupied = occupied;
+            this.available = available;
+        }
+    }
+}
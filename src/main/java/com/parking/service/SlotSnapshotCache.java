@@ -0,0 +1,189 @@
+package com.parking.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parking.model.ParkingSlot;
+import com.parking.model.ParkingSlot.SlotStatus;
+import com.parking.repository.ParkingSlotRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds the serialized JSON (plain and gzip) of the full slot list and of the
+ * available slot list. The snapshot is rebuilt off-thread after slot mutations,
+ * debounced so a burst of bookings causes a single rebuild, and is only served
+ * while it matches the current slot version.
+ */
+@Service
+@Slf4j
+public class SlotSnapshotCache {
+
+    @Autowired
+    private ParkingSlotRepository parkingSlotRepository;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
+    @Value("${app.slot-cache.debounce-ms:50}")
+    private long debounceMs;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "slot-snapshot-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        dataVersionService.addSlotsListener(this::scheduleRebuild);
+    }
+
+    /**
+     * The first build reads every slot, so it waits until the application is
+     * ready; until then reads fall through to Mongo
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInitial() {
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Serialized list of all slots, or null when the snapshot is stale
+     */
+    public Payload getAllSlots() {
+        Snapshot current = currentSnapshot();
+        return current != null ? current.all : null;
+    }
+
+    /**
+     * Serialized list of available slots, or null when the snapshot is stale
+     */
+    public Payload getAvailableSlots() {
+        Snapshot current = currentSnapshot();
+        return current != null ? current.available : null;
+    }
+
+    /**
+     * Copy the payload straight to the response, gzip encoded when the client accepts it
+     */
+    public void write(Payload payload, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        byte[] body = payload.json;
+
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            body = payload.gzip;
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.version == dataVersionService.getSlotsVersion()) {
+            return current;
+        }
+        // Stale or missing (e.g. the first build failed), make sure a rebuild is on its way
+        scheduleRebuild();
+        return null;
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::rebuild, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuild() {
+        // Clear the flag before reading the version, so a mutation that lands
+        // during the build schedules another one
+        rebuildScheduled.set(false);
+        long version = dataVersionService.getSlotsVersion();
+
+        try {
+            // One query for both lists keeps them consistent with each other
+            List<ParkingSlot> all = parkingSlotRepository.findAll();
+            Set<String> held = slotHoldService.getHeldSlotIds();
+            List<ParkingSlot> available = all.stream()
+                    .filter(slot -> slot.getStatus() == SlotStatus.AVAILABLE && !held.contains(slot.getId()))
+                    .collect(Collectors.toList());
+
+            snapshot = new Snapshot(version, toPayload(all), toPayload(available));
+        } catch (Exception e) {
+            log.warn("Failed to rebuild slot snapshot: {}", e.getMessage());
+        }
+    }
+
+    private Payload toPayload(List<ParkingSlot> slots) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(slots);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        }
+
+        return new Payload(json, buffer.toByteArray());
+    }
+
+    public static final class Payload {
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private Payload(byte[] json, byte[] gzip) {
+            this.json = json;
+            this.gzip = gzip;
+        }
+    }
+
+    private static final class Snapshot {
+        private final long version;
+        private final Payload all;
+        private final Payload available;
+
+        private Snapshot(long version, Payload all, Payload available) {
+            this.version = version;
+            this.all = all;
+            this.available = available;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.parking.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.parking.dto.UserImportResult;
+import com.parking.dto.UserImportResult.RowError;
+import com.parking.dto.UserImportResult.RowStatus;
+import com.parking.dto.UserImportRow;
+import com.parking.model.User;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Streams users in from a CSV or NDJSON file, one batch at a time, so memory
+ * use does not grow with the file.
+ *
+ * Each batch is checked for existing usernames and emails with a single $in
+ * query before any password is hashed. The BCrypt work, the expensive part,
+ * is spread over a pool with one thread per core. The batch is then inserted
+ * unordered; the unique indexes on username and email catch duplicates the
+ * pre-check could not see, such as two batches of the same file or a
+ * concurrent signup.
+ */
+@Service
+public class UserImportService {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.user-import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.user-import.hash-threads:0}")
+    private int hashThreads;
+
+    private ExecutorService hashPool;
+
+    @PostConstruct
+    public void init() {
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        hashPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hash-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashPool.shutdownNow();
+    }
+
+    /**
+     * Import every user in the file. Rows that are not created are passed to
+     * onError as they are found, and the totals to onProgress after each batch
+     * and once more at the end, with done set.
+     */
+    public UserImportResult importUsers(BufferedReader reader, Format format, Consumer<RowError> onError,
+            Consumer<UserImportResult> onProgress) throws IOException {
+        UserImportResult result = new UserImportResult();
+        List<Pending> batch = new ArrayList<>();
+        List<String> header = null;
+        long lineNumber = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = Arrays.asList(parseCsvLine(line.trim().toLowerCase()));
+                if (!header.containsAll(List.of("username", "email", "password"))) {
+                    throw new RuntimeException("CSV header must name the username, email and password columns");
+                }
+                continue;
+            }
+
+            result.setProcessed(result.getProcessed() + 1);
+            UserImportRow row;
+            try {
+                row = format == Format.CSV ? toRow(header, parseCsvLine(line)) : objectMapper.readValue(line, UserImportRow.class);
+            } catch (Exception e) {
+                reject(result, onError, new RowError(lineNumber, null, RowStatus.INVALID, "Unreadable row"));
+                continue;
+            }
+
+            String problem = validate(row);
+            if (problem != null) {
+                reject(result, onError, new RowError(lineNumber, row.getUsername(), RowStatus.INVALID, problem));
+                continue;
+            }
+
+            batch.add(new Pending(lineNumber, row));
+            if (batch.size() >= batchSize) {
+                importBatch(batch, result, onError);
+                batch.clear();
+                onProgress.accept(result);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            importBatch(batch, result, onError);
+        }
+        result.setDone(true);
+        onProgress.accept(result);
+        return result;
+    }
+
+    private void importBatch(List<Pending> batch, UserImportResult result, Consumer<RowError> onError) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<Pending> candidates = new ArrayList<>();
+        for (Pending pending : batch) {
+            if (!usernames.add(pending.row.getUsername()) || !emails.add(pending.row.getEmail())) {
+                reject(result, onError, pending.error(RowStatus.DUPLICATE, "Username or email repeated in file"));
+            } else {
+                candidates.add(pending);
+            }
+        }
+
+        // One query for the whole batch, and no hashing for rows that would be rejected
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("username").in(usernames), Criteria.where("email").in(emails)));
+        query.fields().include("username").include("email");
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        for (User existing : mongoTemplate.find(query, User.class)) {
+            takenUsernames.add(existing.getUsername());
+            takenEmails.add(existing.getEmail());
+        }
+
+        List<Pending> toInsert = new ArrayList<>();
+        for (Pending pending : candidates) {
+            if (takenUsernames.contains(pending.row.getUsername())) {
+                reject(result, onError, pending.error(RowStatus.DUPLICATE, "Username is already taken"));
+            } else if (takenEmails.contains(pending.row.getEmail())) {
+                reject(result, onError, pending.error(RowStatus.DUPLICATE, "Email is already in use"));
+            } else {
+                toInsert.add(pending);
+            }
+        }
+        if (toInsert.isEmpty()) {
+            return;
+        }
+
+        List<User> users = hashPasswords(toInsert);
+        try {
+            mongoTemplate.bulkOps(BulkMode.UNORDERED, User.class).insert(users).execute();
+            result.setCreated(result.getCreated() + users.size());
+        } catch (BulkOperationException e) {
+            // Unordered, so everything not listed here was inserted
+            for (BulkWriteError error : e.getErrors()) {
+                Pending pending = toInsert.get(error.getIndex());
+                boolean duplicate = error.getCode() == DUPLICATE_KEY_ERROR;
+                reject(result, onError, pending.error(duplicate ? RowStatus.DUPLICATE : RowStatus.FAILED,
+                        duplicate ? "Username or email already exists" : error.getMessage()));
+            }
+            result.setCreated(result.getCreated() + users.size() - e.getErrors().size());
+        } catch (RuntimeException e) {
+            for (Pending pending : toInsert) {
+                reject(result, onError, pending.error(RowStatus.FAILED, e.getMessage()));
+            }
+        }
+    }
+
+    private List<User> hashPasswords(List<Pending> pendingUsers) {
+        List<Callable<String>> hashes = new ArrayList<>(pendingUsers.size());
+        for (Pending pending : pendingUsers) {
+            String password = pending.row.getPassword();
+            hashes.add(() -> passwordEncoder.encode(password));
+        }
+
+        String now = LocalDateTime.now().format(formatter);
+        List<User> users = new ArrayList<>(pendingUsers.size());
+        try {
+            List<Future<String>> encoded = hashPool.invokeAll(hashes);
+            for (int i = 0; i < pendingUsers.size(); i++) {
+                UserImportRow row = pendingUsers.get(i).row;
+                User user = new User();
+                user.setUsername(row.getUsername());
+                user.setEmail(row.getEmail());
+                user.setPassword(encoded.get(i).get());
+                user.setRoles(toRoles(row.getRoles()));
+                user.setCreatedAt(now);
+                user.setUpdatedAt(now);
+                users.add(user);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("User import was interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Password hashing failed: " + e.getCause().getMessage());
+        }
+        return users;
+    }
+
+    private static void reject(UserImportResult result, Consumer<RowError> onError, RowError error) {
+        switch (error.getStatus()) {
+        case DUPLICATE:
+            result.setDuplicates(result.getDuplicates() + 1);
+            break;
+        case INVALID:
+            result.setInvalid(result.getInvalid() + 1);
+            break;
+        default:
+            result.setFailed(result.getFailed() + 1);
+        }
+        onError.accept(error);
+    }
+
+    /**
+     * The same rules as signup
+     */
+    private static String validate(UserImportRow row) {
+        if (row.getUsername() == null || row.getUsername().length() < 3 || row.getUsername().length() > 20) {
+            return "Username must be 3 to 20 characters";
+        }
+        if (row.getEmail() == null || row.getEmail().length() > 50 || !row.getEmail().contains("@")) {
+            return "Email is not valid";
+        }
+        if (row.getPassword() == null || row.getPassword().length() < 6 || row.getPassword().length() > 40) {
+            return "Password must be 6 to 40 characters";
+        }
+        return null;
+    }
+
+    private static Set<String> toRoles(Set<String> requested) {
+        Set<String> roles = new HashSet<>();
+        if (requested != null) {
+            for (String role : requested) {
+                String name = role.trim().toLowerCase();
+                roles.add(name.equals("admin") || name.equals("role_admin") ? "ROLE_ADMIN" : "ROLE_USER");
+            }
+        }
+        if (roles.isEmpty()) {
+            roles.add("ROLE_USER");
+        }
+        return roles;
+    }
+
+    /**
+     * Map a CSV line onto the header. Multiple roles are separated by semicolons.
+     */
+    private static UserImportRow toRow(List<String> header, String[] values) {
+        UserImportRow row = new UserImportRow();
+        for (int i = 0; i < header.size() && i < values.length; i++) {
+            String value = values[i].trim();
+            switch (header.get(i)) {
+            case "username":
+                row.setUsername(value);
+                break;
+            case "email":
+                row.setEmail(value);
+                break;
+            case "password":
+                row.setPassword(value);
+                break;
+            case "roles":
+                if (!value.isEmpty()) {
+                    row.setRoles(new HashSet<>(Arrays.asList(value.split(";"))));
+                }
+                break;
+            default:
+                // Extra columns are ignored
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Split one CSV line, honouring double-quoted fields with "" as an escaped quote
+     */
+    private static String[] parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private static final class Pending {
+        private final long line;
+        private final UserImportRow row;
+
+        private Pending(long line, UserImportRow row) {
+            this.line = line;
+            this.row = row;
+        }
+
+        private RowError error(RowStatus status, String message) {
+            return new RowError(line, row.getUsername(), status, message);
+        }
+    }
+}
@@ -8,13 +8,24 @@ import java.util.Optional;
 import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import com.parking.dto.ListOptions;
+import com.parking.dto.ListPage;
 import com.parking.model.User;
 import com.parking.repository.UserRepository;
 
+import lombok.extern.slf4j.Slf4j;
+
 @Service
+@Slf4j
 public class UserService {
 
     @Autowired
@@ -23,12 +34,39 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private KeysetPager keysetPager;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    /**
+     * Usernames and emails are unique in the database too, so bulk imports and
+     * concurrent signups cannot slip duplicates past the existence checks
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        for (String field : new String[] { "username", "email" }) {
+            try {
+                mongoTemplate.indexOps(User.class)
+                        .ensureIndex(new Index().on(field, Sort.Direction.ASC).unique().sparse());
+            } catch (RuntimeException e) {
+                log.warn("Could not create unique index on users.{}, remove duplicate values first: {}", field, e.getMessage());
+            }
+        }
+    }
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
     
+    public ListPage getUsers(ListOptions options) {
+        return keysetPager.find(User.class, null, options);
+    }
+    
     public Optional<User> getUserById(String id) {
         return userRepository.findById(id);
     }
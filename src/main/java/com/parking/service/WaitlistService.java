@@ -0,0 +1,253 @@
+package com.parking.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.parking.dto.WaitlistRequest;
+import com.parking.dto.WaitlistStatus;
+import com.parking.dto.WaitlistStatus.State;
+import com.parking.model.Booking;
+
+/**
+ * First come, first served waitlist for a full lot.
+ *
+ * Waiters sit in a lock-free FIFO queue. Whoever frees a slot claims the head
+ * waiter with a single compare-and-set, which also decides races with a
+ * waiter cancelling, and hands the slot over without it ever becoming
+ * available. Waiters learn the outcome through {@link #watch}, which backs the
+ * long-poll endpoint.
+ */
+@Service
+public class WaitlistService {
+
+    @Autowired
+    private ParkingSlotService parkingSlotService;
+
+    @Value("${app.waitlist.max-wait-minutes:30}")
+    private long maxWaitMinutes;
+
+    @Value("${app.waitlist.poll-timeout-ms:30000}")
+    private long pollTimeoutMs;
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Runnable> joinListeners = new CopyOnWriteArrayList<>();
+
+    public WaitlistStatus enqueue(WaitlistRequest request) {
+        if (request.getUserId() == null || request.getUserId().isEmpty()) {
+            throw new RuntimeException("User id is required");
+        }
+        if (request.getDurationMinutes() <= 0) {
+            throw new RuntimeException("Duration must be greater than zero");
+        }
+        if (parkingSlotService.hasAvailableSlot()) {
+            throw new RuntimeException("Parking slots are available, book one directly");
+        }
+
+        Entry entry = new Entry(UUID.randomUUID().toString(), request.getUserId(), request.getDurationMinutes());
+        entries.put(entry.id, entry);
+        queue.offer(entry);
+
+        // A slot freed since the check above was offered to nobody
+        for (Runnable listener : joinListeners) {
+            listener.run();
+        }
+        return entry.toStatus();
+    }
+
+    /**
+     * Register a callback run on the joining thread after someone joins. It
+     * should offer any slot that is available by now.
+     */
+    public void addJoinListener(Runnable listener) {
+        joinListeners.add(listener);
+    }
+
+    /**
+     * Whether anyone may be waiting; finished entries can linger until claimed
+     */
+    public boolean hasWaiters() {
+        return !queue.isEmpty();
+    }
+
+    public Optional<WaitlistStatus> getStatus(String id) {
+        return Optional.ofNullable(entries.get(id)).map(Entry::toStatus);
+    }
+
+    public long getPollTimeoutMs() {
+        return pollTimeoutMs;
+    }
+
+    /**
+     * Call the listener once the entry is booked, cancelled or expired, right
+     * away if it already is. Returns false for an unknown id.
+     */
+    public boolean watch(String id, Consumer<WaitlistStatus> listener) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (entry) {
+            if (entry.state == State.WAITING) {
+                entry.listeners.add(listener);
+                return true;
+            }
+        }
+        listener.accept(entry.toStatus());
+        return true;
+    }
+
+    public void unwatch(String id, Consumer<WaitlistStatus> listener) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.listeners.remove(listener);
+            }
+        }
+    }
+
+    public WaitlistStatus cancel(String id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            throw new RuntimeException("Waitlist entry not found with id: " + id);
+        }
+        if (!entry.claimed.compareAndSet(false, true)) {
+            throw new RuntimeException("Waitlist entry is no longer waiting");
+        }
+        queue.remove(entry);
+        finish(entry, State.CANCELLED, null);
+        return entry.toStatus();
+    }
+
+    /**
+     * Take the longest waiting entry, skipping ones that were cancelled or ran
+     * out of time. The caller must {@link #fulfil}, {@link #requeue} or
+     * {@link #fail} it.
+     */
+    public Entry claimNext() {
+        long deadline = System.currentTimeMillis() - maxWaitMinutes * 60_000L;
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            if (!entry.claimed.compareAndSet(false, true)) {
+                continue;
+            }
+            if (entry.enqueuedAt < deadline) {
+                finish(entry, State.EXPIRED, null);
+                continue;
+            }
+            return entry;
+        }
+        return null;
+    }
+
+    public void fulfil(Entry entry, Booking booking) {
+        finish(entry, State.BOOKED, booking);
+    }
+
+    /**
+     * End a claimed entry whose booking could not be made. The waiter is told
+     * rather than put back, so a persistent failure cannot loop on them.
+     */
+    public void fail(Entry entry) {
+        finish(entry, State.FAILED, null);
+    }
+
+    /**
+     * Put back an entry whose handoff failed. It goes to the tail; a failed
+     * handoff is rare enough that this beats a second queue for retries.
+     * Requeueing an entry that is already back, or finished, does nothing.
+     */
+    public void requeue(Entry entry) {
+        if (entry.state == State.WAITING && entry.claimed.compareAndSet(true, false)) {
+            queue.offer(entry);
+        }
+    }
+
+    /**
+     * Expire waiters that have run out of time and forget finished entries once
+     * their owners have had the same amount of time to read the outcome
+     */
+    @Scheduled(fixedRate = 60_000)
+    public void sweep() {
+        long deadline = System.currentTimeMillis() - maxWaitMinutes * 60_000L;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            Entry entry = it.next();
+            if (entry.state == State.WAITING) {
+                if (entry.enqueuedAt < deadline && entry.claimed.compareAndSet(false, true)) {
+                    queue.remove(entry);
+                    finish(entry, State.EXPIRED, null);
+                }
+            } else if (entry.finishedAt < deadline) {
+                it.remove();
+            }
+        }
+    }
+
+    private void finish(Entry entry, State state, Booking booking) {
+        List<Consumer<WaitlistStatus>> listeners;
+        synchronized (entry) {
+            entry.booking = booking;
+            entry.finishedAt = System.currentTimeMillis();
+            entry.state = state;
+            listeners = new ArrayList<>(entry.listeners);
+            entry.listeners.clear();
+        }
+
+        WaitlistStatus status = entry.toStatus();
+        for (Consumer<WaitlistStatus> listener : listeners) {
+            listener.accept(status);
+        }
+    }
+
+    public static class Entry {
+        private final String id;
+        private final String userId;
+        private final long durationMinutes;
+        private final long enqueuedAt = System.currentTimeMillis();
+        // Set by whoever takes the entry off the waitlist: a handoff, a cancel or expiry
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final List<Consumer<WaitlistStatus>> listeners = new ArrayList<>();
+        private volatile State state = State.WAITING;
+        private volatile Booking booking;
+        private volatile long finishedAt;
+
+        Entry(String id, String userId, long durationMinutes) {
+            this.id = id;
+            this.userId = userId;
+            this.durationMinutes = durationMinutes;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public long getDurationMinutes() {
+            return durationMinutes;
+        }
+
+        WaitlistStatus toStatus() {
+            String enqueued = LocalDateTime.ofInstant(Instant.ofEpochMilli(enqueuedAt), ZoneId.systemDefault()).format(formatter);
+            return new WaitlistStatus(id, userId, state, enqueued, booking);
+        }
+    }
+}
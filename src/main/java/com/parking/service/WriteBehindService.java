@@ -0,0 +1,915 @@
+package com.parking.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.bson.BSONException;
+import org.bson.ByteBuf;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.parking.journal.BookingJournal;
+import com.parking.journal.JournalEvent;
+import com.parking.journal.JournalEvent.EventType;
+import com.parking.model.Booking;
+import com.parking.model.ParkingSlot;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind commit pipeline for booking flows, off unless
+ * app.write-behind.enabled is set.
+ *
+ * Slot and booking writes made inside {@link #atomically} are collected and
+ * committed together: they become visible through an in-memory overlay of
+ * pending documents, are appended to the booking journal as one WRITE_BATCH
+ * record and the caller returns once the journal's group fsync covers it. A
+ * background writer then drains committed batches in journal order into
+ * ordered bulk writes, retrying while Mongo is unavailable, and records the
+ * last written sequence in a checkpoint file. Writes Mongo keeps refusing are
+ * moved to a dead-letter file next to the journal. On startup every WRITE_BATCH after the
+ * checkpoint is replayed; writes are $set/$unset of the fields a unit changed
+ * from the version it read, or full inserts and deletes by _id for documents
+ * it did not read, so replaying one twice leaves the same result.
+ *
+ * Units run one at a time, from their first read until they are queued, so
+ * the overlay is the authoritative state while they decide. Writes that
+ * bypass the pipeline go through {@link #exclusively}. Lookups by id see
+ * pending documents. List queries read Mongo and can lag by one flush, which
+ * is why data versions are only bumped after a flush.
+ */
+@Service
+@Slf4j
+public class WriteBehindService {
+
+    private static final String SLOTS = "parking_slots";
+    private static final String BOOKINGS = "bookings";
+    private static final String CHECKPOINT_FILE = "write-behind.checkpoint";
+    private static final String DEAD_LETTER_FILE = "write-behind.dead-letters";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookingJournal bookingJournal;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Value("${app.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.write-behind.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Value("${app.write-behind.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.journal.dir:data/journal}")
+    private String journalDirectory;
+
+    private final ThreadLocal<Unit> currentUnit = new ThreadLocal<>();
+    // Held by a unit from its first read until it is queued, and by exclusive writes
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Object flushedLock = new Object();
+    private final LinkedBlockingQueue<Commit> committed = new LinkedBlockingQueue<>();
+
+    // Pending documents by collection and id; a null document is a pending delete
+    private final Map<String, Map<String, Pending>> overlay = Map.of(
+            SLOTS, new ConcurrentHashMap<>(),
+            BOOKINGS, new ConcurrentHashMap<>());
+
+    private volatile long lastCommittedSequence;
+    private volatile long flushedSequence;
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!bookingJournal.isEnabled()) {
+            if (enabled) {
+                log.warn("Write-behind needs the booking journal, writing synchronously instead");
+                enabled = false;
+            }
+            return;
+        }
+
+        // Always finish what an earlier run committed, even if write-behind is now off
+        recover();
+
+        if (enabled) {
+            running = true;
+            writer = new Thread(this::writeLoop, "write-behind-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        flush();
+        running = false;
+        writer.interrupt();
+        writer.join(1000);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Run the work as one unit: the slot and booking writes it makes are
+     * committed together, or not at all if it throws, and its
+     * {@link #afterCommit} actions run once they are. Inside a unit the work
+     * joins it, and if it throws only its own writes and actions are dropped,
+     * like rolling back to a savepoint. Without write-behind the work just runs.
+     *
+     * A unit is committed once it is queued for the writer. If waiting for the
+     * journal to make it durable is interrupted, this throws but undoes
+     * nothing, and the after-commit actions run once the writer has it.
+     */
+    public <T> T atomically(Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        Unit unit = currentUnit.get();
+        if (unit != null) {
+            Savepoint savepoint = unit.savepoint();
+            try {
+                return work.get();
+            } catch (RuntimeException | Error e) {
+                unit.rollBackTo(savepoint);
+                throw e;
+            }
+        }
+
+        unit = new Unit();
+        T result;
+        Commit commit;
+        commitLock.lock();
+        try {
+            currentUnit.set(unit);
+            result = work.get();
+            currentUnit.remove();
+            commit = enqueue(unit);
+        } catch (RuntimeException | Error e) {
+            currentUnit.remove();
+            commitLock.unlock();
+            // Nothing reached the writer, so the whole unit can be undone
+            unit.rollBack();
+            throw e;
+        }
+        commitLock.unlock();
+
+        if (commit != null) {
+            awaitDurable(commit);
+        }
+        unit.committed();
+        return result;
+    }
+
+    /**
+     * Run a write that bypasses the pipeline, such as a multi-document update.
+     * Everything committed before it reaches Mongo first and no unit commits
+     * until it is done, so a unit can neither overtake it with an older write
+     * nor decide on state it is changing. Must not be called inside a unit.
+     */
+    public <T> T exclusively(Supplier<T> write) {
+        if (!enabled) {
+            return write.get();
+        }
+        if (inUnit()) {
+            throw new IllegalStateException("Exclusive writes cannot be made inside atomically()");
+        }
+        // Drain most of the backlog without holding up units, then the rest
+        flush();
+        commitLock.lock();
+        try {
+            flush();
+            return write.get();
+        } finally {
+            commitLock.unlock();
+        }
+    }
+    
+    /**
+     * Run the action once the current unit is committed, or right away outside
+     * a unit. Caches, indexes, journal events and notifications that follow a
+     * write are updated through here, so nothing sees a write that is then
+     * not committed.
+     */
+    public void afterCommit(Runnable action) {
+        Unit unit = currentUnit.get();
+        if (unit == null) {
+            action.run();
+        } else {
+            unit.afterCommit.add(action);
+        }
+    }
+    
+    /**
+     * Run the action if the current unit is not committed, to give back
+     * something claimed inside it. Outside a unit there is nothing to roll
+     * back and the action is dropped.
+     */
+    public void onRollback(Runnable action) {
+        Unit unit = currentUnit.get();
+        if (unit != null) {
+            unit.onRollback.add(action);
+        }
+    }
+
+    /**
+     * Whether writes on this thread are currently being collected into a unit
+     */
+    public boolean inUnit() {
+        return currentUnit.get() != null;
+    }
+
+    public ParkingSlot saveSlot(ParkingSlot slot) {
+        if (slot.getId() == null) {
+            slot.setId(new ObjectId().toHexString());
+        }
+        Unit unit = requireUnit();
+        unit.put(SLOTS, slot.getId(), toDocument(slot));
+        unit.slotsChanged = true;
+        return slot;
+    }
+
+    public Booking saveBooking(Booking booking) {
+        if (booking.getId() == null) {
+            booking.setId(new ObjectId().toHexString());
+        }
+        Unit unit = requireUnit();
+        unit.put(BOOKINGS, booking.getId(), toDocument(booking));
+        unit.bookingUsers.add(booking.getUserId());
+        return booking;
+    }
+
+    public void deleteBooking(Booking booking) {
+        Unit unit = requireUnit();
+        unit.delete(BOOKINGS, booking.getId(), toDocument(booking).get("_id"));
+        unit.bookingUsers.add(booking.getUserId());
+    }
+
+    /**
+     * Look up a slot, preferring this unit's writes and then pending ones over Mongo
+     */
+    public Optional<ParkingSlot> findSlot(String id, Supplier<Optional<ParkingSlot>> loader) {
+        return find(SLOTS, id, ParkingSlot.class, loader);
+    }
+
+    public Optional<Booking> findBooking(String id, Supplier<Optional<Booking>> loader) {
+        return find(BOOKINGS, id, Booking.class, loader);
+    }
+
+    /**
+     * Block until everything committed so far has been written to Mongo, for
+     * reads that need it there. Units can commit again as soon as this returns;
+     * writes use {@link #exclusively} instead.
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        long target = lastCommittedSequence;
+        synchronized (flushedLock) {
+            while (running && flushedSequence < target) {
+                try {
+                    flushedLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while flushing pending writes");
+                }
+            }
+        }
+    }
+
+    private <T> Optional<T> find(String collection, String id, Class<T> type, Supplier<Optional<T>> loader) {
+        if (!enabled || id == null) {
+            return loader.get();
+        }
+        Unit unit = currentUnit.get();
+        String key = collection + ":" + id;
+        Pending pending = unit != null ? unit.writes.get(key) : null;
+        if (pending != null) {
+            return pending.document == null
+                    ? Optional.empty()
+                    : Optional.of(mongoTemplate.getConverter().read(type, pending.document));
+        }
+
+        pending = overlay.get(collection).get(id);
+        Document read;
+        Optional<T> found;
+        if (pending != null) {
+            read = pending.document;
+            found = read == null ? Optional.empty() : Optional.of(mongoTemplate.getConverter().read(type, read));
+        } else {
+            found = loader.get();
+            read = found.map(this::toDocument).orElse(null);
+        }
+        if (unit != null && read != null) {
+            // Writes to it are sent as the fields changed from this version
+            unit.read.putIfAbsent(key, read);
+        }
+        return found;
+    }
+
+    private Unit requireUnit() {
+        Unit unit = currentUnit.get();
+        if (unit == null) {
+            throw new IllegalStateException("Write-behind writes must be made inside atomically()");
+        }
+        return unit;
+    }
+
+    private Document toDocument(Object entity) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(entity, document);
+        return document;
+    }
+
+    /**
+     * Journal the unit and queue it for the writer, under the commit lock.
+     * Returns null when there was nothing to queue. Nothing after the journal
+     * append can fail, so a unit that throws here was not committed.
+     */
+    private Commit enqueue(Unit unit) {
+        if (unit.writes.isEmpty()) {
+            return null;
+        }
+
+        List<Document> ops = new ArrayList<>();
+        for (Pending pending : unit.writes.values()) {
+            Document op = new Document("c", pending.collection).append("_id", pending.mongoId);
+            op.putAll(pending.op);
+            ops.add(op);
+        }
+        JournalEvent event = JournalEvent.of(EventType.WRITE_BATCH, null, null, null);
+        event.setPayload(encode(new Document("ops", ops)));
+
+        long sequence = bookingJournal.append(event);
+        if (sequence < 0) {
+            // Journal already closed during shutdown, fall back to a direct write
+            writeLatest(latest(List.of(new Commit(0, unit))));
+            bumpVersions(List.of(new Commit(0, unit)));
+            return null;
+        }
+        for (Pending pending : unit.writes.values()) {
+            pending.sequence = sequence;
+            overlay.get(pending.collection).put(pending.id, pending);
+        }
+        lastCommittedSequence = sequence;
+        Commit commit = new Commit(sequence, unit);
+        committed.offer(commit);
+        return commit;
+    }
+
+    private void awaitDurable(Commit commit) {
+        try {
+            bookingJournal.awaitDurable(commit.sequence);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (commit.defer()) {
+                throw new RuntimeException("Interrupted while waiting for the journal, the booking change is committed "
+                        + "and its follow-up runs once it is written");
+            }
+            // Already in Mongo, so nothing is left to wait for
+        }
+    }
+
+    private void writeLoop() {
+        List<Commit> batch = new ArrayList<>();
+        while (running || !committed.isEmpty()) {
+            try {
+                Commit first = committed.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                committed.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    committed.drainTo(batch);
+                } else {
+                    continue;
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            writeWithRetry(batch);
+            long sequence = batch.get(batch.size() - 1).sequence;
+            writeCheckpoint(sequence);
+
+            for (Commit commit : batch) {
+                for (Pending pending : commit.unit.writes.values()) {
+                    // A newer commit may have replaced the entry; leave that one pending
+                    overlay.get(pending.collection).remove(pending.id, pending);
+                }
+            }
+            bumpVersions(batch);
+
+            synchronized (flushedLock) {
+                flushedSequence = sequence;
+                flushedLock.notifyAll();
+            }
+            for (Commit commit : batch) {
+                if (commit.written()) {
+                    // Actions may start units, which an exclusive write holding the lock could be flushing behind
+                    Thread thread = new Thread(() -> runDeferred(commit), "write-behind-after-commit");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * After-commit actions of a unit whose caller stopped waiting for the journal
+     */
+    private void runDeferred(Commit commit) {
+        try {
+            bookingJournal.awaitDurable(commit.sequence);
+        } catch (InterruptedException e) {
+            // The write is in Mongo regardless
+            Thread.currentThread().interrupt();
+        }
+        commit.unit.committed();
+    }
+
+    private void writeWithRetry(List<Commit> batch) {
+        writeWithRetry(latest(batch), batch.size() + " commits");
+    }
+
+    /**
+     * Retry until Mongo takes the writes. Unavailability is retried for as long
+     * as it lasts, but once Mongo has refused the writes themselves
+     * app.write-behind.max-attempts times, they are written one by one and
+     * whichever it refuses is parked in the dead-letter file, so one bad
+     * document cannot stall the writer and every flush() behind it.
+     */
+    private void writeWithRetry(Map<String, Map<Object, Document>> latest, String what) {
+        long backoff = retryBackoffMs;
+        int rejections = 0;
+        while (true) {
+            try {
+                writeLatest(latest);
+                return;
+            } catch (RuntimeException e) {
+                if (isRejected(e) && ++rejections >= maxAttempts) {
+                    writeEach(latest);
+                    return;
+                }
+                log.warn("Write-behind flush of {} failed, retrying in {} ms: {}", what, backoff, e.getMessage());
+                backoff = sleep(backoff);
+            }
+        }
+    }
+
+    private void writeEach(Map<String, Map<Object, Document>> latest) {
+        for (Map.Entry<String, Map<Object, Document>> collection : latest.entrySet()) {
+            for (Map.Entry<Object, Document> write : collection.getValue().entrySet()) {
+                Map<String, Map<Object, Document>> single = Map.of(collection.getKey(),
+                        Collections.singletonMap(write.getKey(), write.getValue()));
+                long backoff = retryBackoffMs;
+                while (true) {
+                    try {
+                        writeLatest(single);
+                        break;
+                    } catch (RuntimeException e) {
+                        if (isRejected(e)) {
+                            deadLetter(collection.getKey(), write.getKey(), write.getValue(), e);
+                            break;
+                        }
+                        log.warn("Write-behind write to {} failed, retrying in {} ms: {}", collection.getKey(),
+                                backoff, e.getMessage());
+                        backoff = sleep(backoff);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether Mongo, or the driver before sending, refused the writes
+     * themselves, as opposed to being unreachable or failing over
+     */
+    private static boolean isRejected(RuntimeException e) {
+        return e instanceof MongoBulkWriteException || e instanceof MongoWriteException || e instanceof BSONException;
+    }
+
+    /**
+     * Append a write Mongo will not take to the dead-letter file, one JSON line
+     * each, for someone to look at. The write is then dropped.
+     */
+    private void deadLetter(String collection, Object mongoId, Document write, RuntimeException e) {
+        log.error("Write-behind gave up on {} {} and moved it to {}: {}", collection, mongoId, DEAD_LETTER_FILE,
+                e.getMessage());
+        Document letter = new Document("collection", collection)
+                .append("_id", mongoId)
+                .append("error", e.getMessage())
+                .append("failedAt", System.currentTimeMillis())
+                .append("write", write);
+        try {
+            Files.write(Paths.get(journalDirectory, DEAD_LETTER_FILE),
+                    (letter.toJson() + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException | RuntimeException failed) {
+            log.error("Failed to write dead letter for {} {}: {}", collection, mongoId, failed.getMessage());
+        }
+    }
+
+    private long sleep(long backoff) {
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+            // Keep retrying during shutdown; the journal still has the batch if we are killed
+        }
+        return Math.min(backoff * 2, 10_000);
+    }
+
+    /**
+     * One write per document in the batch, each later write folded into the
+     * earlier ones
+     */
+    private static Map<String, Map<Object, Document>> latest(List<Commit> batch) {
+        Map<String, Map<Object, Document>> latest = new LinkedHashMap<>();
+        for (Commit commit : batch) {
+            for (Pending pending : commit.unit.writes.values()) {
+                latest.computeIfAbsent(pending.collection, c -> new LinkedHashMap<>())
+                        .merge(pending.mongoId, pending.op, WriteBehindService::merge);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * The write for a document as the unit changed it: the fields that differ
+     * from the version it read, or the whole document when it read none
+     */
+    static Document op(Document read, Document document) {
+        if (read == null || document == null) {
+            return new Document("d", document);
+        }
+        Document set = new Document();
+        for (Map.Entry<String, Object> field : document.entrySet()) {
+            if (!read.containsKey(field.getKey()) || !Objects.equals(read.get(field.getKey()), field.getValue())) {
+                set.put(field.getKey(), field.getValue());
+            }
+        }
+        List<String> unset = new ArrayList<>();
+        for (String name : read.keySet()) {
+            if (!document.containsKey(name)) {
+                unset.add(name);
+            }
+        }
+        return new Document("s", set).append("u", unset);
+    }
+
+    /**
+     * One write with the effect of the earlier followed by the later
+     */
+    static Document merge(Document earlier, Document later) {
+        if (later.containsKey("d")) {
+            return later;
+        }
+        List<String> unset = later.getList("u", String.class);
+        if (earlier.containsKey("d")) {
+            Document document = earlier.get("d", Document.class);
+            if (document == null) {
+                // Updating a deleted document does nothing
+                return earlier;
+            }
+            Document updated = new Document(document);
+            updated.putAll(later.get("s", Document.class));
+            unset.forEach(updated::remove);
+            return new Document("d", updated);
+        }
+        Document set = new Document(earlier.get("s", Document.class));
+        set.putAll(later.get("s", Document.class));
+        unset.forEach(set::remove);
+        List<String> mergedUnset = new ArrayList<>(earlier.getList("u", String.class));
+        mergedUnset.removeAll(later.get("s", Document.class).keySet());
+        for (String name : unset) {
+            if (!mergedUnset.contains(name)) {
+                mergedUnset.add(name);
+            }
+        }
+        return new Document("s", set).append("u", mergedUnset);
+    }
+
+    /**
+     * One ordered bulk write per collection. Updates never upsert, so a write
+     * to a document deleted outside the pipeline does not bring it back.
+     */
+    private void writeLatest(Map<String, Map<Object, Document>> latest) {
+        for (Map.Entry<String, Map<Object, Document>> collection : latest.entrySet()) {
+            List<WriteModel<Document>> models = new ArrayList<>();
+            for (Map.Entry<Object, Document> write : collection.getValue().entrySet()) {
+                WriteModel<Document> model = model(write.getKey(), write.getValue());
+                if (model != null) {
+                    models.add(model);
+                }
+            }
+            if (!models.isEmpty()) {
+                mongoTemplate.getCollection(collection.getKey()).bulkWrite(models, new BulkWriteOptions().ordered(true));
+            }
+        }
+    }
+
+    private static WriteModel<Document> model(Object mongoId, Document op) {
+        if (op.containsKey("d")) {
+            Document document = op.get("d", Document.class);
+            return document == null
+                    ? new DeleteOneModel<>(Filters.eq("_id", mongoId))
+                    : new ReplaceOneModel<>(Filters.eq("_id", mongoId), document, new ReplaceOptions().upsert(true));
+        }
+        Document set = op.get("s", Document.class);
+        List<String> unset = op.getList("u", String.class);
+        if (set.isEmpty() && unset.isEmpty()) {
+            return null;
+        }
+        Document update = new Document();
+        if (!set.isEmpty()) {
+            update.append("$set", set);
+        }
+        if (!unset.isEmpty()) {
+            Document fields = new Document();
+            unset.forEach(name -> fields.append(name, ""));
+            update.append("$unset", fields);
+        }
+        return new UpdateOneModel<>(Filters.eq("_id", mongoId), update);
+    }
+
+    private void bumpVersions(List<Commit> batch) {
+        boolean slotsChanged = false;
+        Set<String> users = new HashSet<>();
+        for (Commit commit : batch) {
+            slotsChanged |= commit.unit.slotsChanged;
+            users.addAll(commit.unit.bookingUsers);
+        }
+        if (slotsChanged) {
+            dataVersionService.bumpSlotsVersion();
+        }
+        for (String userId : users) {
+            dataVersionService.bumpBookingsVersion(userId);
+        }
+    }
+
+    /**
+     * Re-apply every WRITE_BATCH the journal holds past the checkpoint
+     */
+    private void recover() throws IOException {
+        long checkpoint = readCheckpoint();
+        Map<String, Map<Object, Document>> latest = new LinkedHashMap<>();
+        long[] last = { checkpoint };
+
+        bookingJournal.replay(event -> {
+            if (event.getType() != EventType.WRITE_BATCH || event.getSequence() <= checkpoint) {
+                return;
+            }
+            for (Document op : decode(event.getPayload()).getList("ops", Document.class)) {
+                String collection = (String) op.remove("c");
+                Object mongoId = op.remove("_id");
+                latest.computeIfAbsent(collection, c -> new LinkedHashMap<>()).merge(mongoId, op, WriteBehindService::merge);
+            }
+            last[0] = event.getSequence();
+        });
+
+        if (last[0] > checkpoint) {
+            writeWithRetry(latest, "journal sequences " + (checkpoint + 1) + " to " + last[0]);
+            writeCheckpoint(last[0]);
+            dataVersionService.bumpSlotsVersion();
+            log.info("Write-behind recovery replayed journal sequences {} to {}", checkpoint + 1, last[0]);
+        }
+        flushedSequence = last[0];
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = Paths.get(journalDirectory, CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        return Long.parseLong(new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim());
+    }
+
+    /**
+     * The checkpoint only saves replay work, so it is replaced atomically but not fsynced
+     */
+    private void writeCheckpoint(long sequence) {
+        Path path = Paths.get(journalDirectory, CHECKPOINT_FILE);
+        Path temp = Paths.get(journalDirectory, CHECKPOINT_FILE + ".tmp");
+        try {
+            Files.write(temp, Long.toString(sequence).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write write-behind checkpoint: {}", e.getMessage());
+        }
+    }
+
+    private static byte[] encode(Document document) {
+        ByteBuf buffer = new RawBsonDocument(document, new DocumentCodec()).getByteBuffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static Document decode(byte[] bytes) {
+        return new RawBsonDocument(bytes).decode(new DocumentCodec());
+    }
+
+    /**
+     * A document write waiting to reach Mongo
+     */
+    private static class Pending {
+        final String collection;
+        final String id;
+        final Object mongoId;
+        // The whole document for lookups, null for a delete
+        final Document document;
+        // What is journaled and written, see op()
+        final Document op;
+        volatile long sequence;
+
+        Pending(String collection, String id, Object mongoId, Document document, Document op) {
+            this.collection = collection;
+            this.id = id;
+            this.mongoId = mongoId;
+            this.document = document;
+            this.op = op;
+        }
+    }
+
+    /**
+     * Writes collected on one thread inside atomically(), last write per document wins
+     */
+    private static class Unit {
+        final Map<String, Pending> writes = new LinkedHashMap<>();
+        // Documents as first read by the unit, before any of its writes
+        final Map<String, Document> read = new HashMap<>();
+        final Set<String> bookingUsers = new HashSet<>();
+        final List<Runnable> afterCommit = new ArrayList<>();
+        final List<Runnable> onRollback = new ArrayList<>();
+        // Every put and delete with the write it replaced, for savepoints
+        final List<Undo> undo = new ArrayList<>();
+        // Over-reporting these only costs an extra version bump, so savepoints leave them
+        boolean slotsChanged;
+
+        Savepoint savepoint() {
+            return new Savepoint(undo.size(), afterCommit.size(), onRollback.size());
+        }
+
+        void rollBackTo(Savepoint savepoint) {
+            for (int i = undo.size() - 1; i >= savepoint.undo; i--) {
+                Undo step = undo.get(i);
+                if (step.previous == null) {
+                    writes.remove(step.key);
+                } else {
+                    writes.put(step.key, step.previous);
+                }
+            }
+            undo.subList(savepoint.undo, undo.size()).clear();
+            afterCommit.subList(savepoint.afterCommit, afterCommit.size()).clear();
+
+            // Latest first, like unwinding
+            List<Runnable> actions = new ArrayList<>(onRollback.subList(savepoint.onRollback, onRollback.size()));
+            onRollback.subList(savepoint.onRollback, onRollback.size()).clear();
+            Collections.reverse(actions);
+            run(actions, "rollback");
+        }
+
+        void committed() {
+            // The unit stays queued until it is written, so let go of the actions
+            run(afterCommit, "after-commit");
+            afterCommit.clear();
+            onRollback.clear();
+            undo.clear();
+            read.clear();
+        }
+
+        void rollBack() {
+            rollBackTo(new Savepoint(0, 0, 0));
+        }
+
+        private static void run(List<Runnable> actions, String kind) {
+            for (Runnable action : actions) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    log.warn("Write-behind {} action failed: {}", kind, e.getMessage());
+                }
+            }
+        }
+
+        void put(String collection, String id, Document document) {
+            String key = collection + ":" + id;
+            record(key, new Pending(collection, id, document.get("_id"), document, op(read.get(key), document)));
+        }
+
+        void delete(String collection, String id, Object mongoId) {
+            record(collection + ":" + id, new Pending(collection, id, mongoId, null, op(null, null)));
+        }
+
+        private void record(String key, Pending pending) {
+            undo.add(new Undo(key, writes.put(key, pending)));
+        }
+    }
+
+    private static class Undo {
+        final String key;
+        // Null when the unit had not written the document before
+        final Pending previous;
+
+        Undo(String key, Pending previous) {
+            this.key = key;
+            this.previous = previous;
+        }
+    }
+
+    private static class Savepoint {
+        final int undo;
+        final int afterCommit;
+        final int onRollback;
+
+        Savepoint(int undo, int afterCommit, int onRollback) {
+            this.undo = undo;
+            this.afterCommit = afterCommit;
+            this.onRollback = onRollback;
+        }
+    }
+
+    private static class Commit {
+        final long sequence;
+        final Unit unit;
+        private boolean written;
+        private boolean deferred;
+
+        Commit(long sequence, Unit unit) {
+            this.sequence = sequence;
+            this.unit = unit;
+        }
+
+        /**
+         * Leave the after-commit actions to the writer. False if it has already
+         * written the unit, and the caller should run them.
+         */
+        synchronized boolean defer() {
+            deferred = !written;
+            return deferred;
+        }
+
+        /**
+         * The writer has written the unit; true if it should run the actions
+         */
+        synchronized boolean written() {
+            written = true;
+            return deferred;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.parking.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.parking.model.ParkingSlot;
+import com.parking.model.ParkingSlot.SizeClass;
+import com.parking.model.ParkingSlot.SlotStatus;
+
+/**
+ * Binary snapshot of the slot fields kept in memory.
+ *
+ * Layout: magic (4 bytes), format version (4), taken-at millis (8), watermark
+ * (the latest updatedAt in the snapshot), the names of the SlotStatus and
+ * SizeClass constants, the slot count (4) and the slots, then a CRC32 (8) of
+ * everything before it. Strings are length-prefixed UTF-8 (2 byte length, -1
+ * for null). Enums are stored as indexes into the name tables, so constants
+ * can be added or reordered without breaking old snapshots.
+ */
+public final class SlotSnapshotFile {
+
+    public static final int MAGIC = 0x50534c54;
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int TRAILER_SIZE = 8;
+
+    /**
+     * Contents of a snapshot that passed its checks
+     */
+    public static final class Contents {
+        private final long takenAt;
+        private final String watermark;
+        private final List<ParkingSlot> slots;
+
+        private Contents(long takenAt, String watermark, List<ParkingSlot> slots) {
+            this.takenAt = takenAt;
+            this.watermark = watermark;
+            this.slots = slots;
+        }
+
+        public long getTakenAt() {
+            return takenAt;
+        }
+
+        public String getWatermark() {
+            return watermark;
+        }
+
+        public List<ParkingSlot> getSlots() {
+            return slots;
+        }
+    }
+
+    private SlotSnapshotFile() {
+    }
+
+    /**
+     * Write the snapshot to a temporary file, force it to disk and move it over
+     * the old one, so a crash never leaves a half-written snapshot in place
+     */
+    public static void write(Path file, long takenAt, String watermark, Collection<ParkingSlot> slots) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            OutputStream raw = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(raw, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(takenAt);
+            writeString(out, watermark);
+            writeNames(out, SlotStatus.values());
+            writeNames(out, SizeClass.values());
+
+            out.writeInt(slots.size());
+            for (ParkingSlot slot : slots) {
+                writeString(out, slot.getId());
+                writeString(out, slot.getSlotNumber());
+                writeString(out, slot.getLot());
+                out.writeByte(slot.getStatus() != null ? slot.getStatus().ordinal() : -1);
+                out.writeDouble(slot.getHourlyRate());
+                out.writeByte(flag(slot.getEvCharger()));
+                out.writeByte(slot.getSize() != null ? slot.getSize().ordinal() : -1);
+                out.writeBoolean(slot.getFloor() != null);
+                out.writeInt(slot.getFloor() != null ? slot.getFloor() : 0);
+                out.writeByte(flag(slot.getAccessible()));
+                writeString(out, slot.getUpdatedAt());
+            }
+            out.flush();
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).putLong(crc.getValue());
+            trailer.flip();
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Map the snapshot and decode it. Throws if the file is damaged, truncated
+     * or from another format version.
+     */
+    public static Contents read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot has an invalid size of " + size + " bytes");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            int bodySize = (int) size - TRAILER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(mapped.duplicate().limit(bodySize));
+            if (crc.getValue() != mapped.getLong(bodySize)) {
+                throw new IOException("Snapshot checksum does not match");
+            }
+
+            ByteBuffer buffer = mapped.duplicate().limit(bodySize);
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException("Not a slot snapshot");
+                }
+                int version = buffer.getInt();
+                if (version != FORMAT_VERSION) {
+                    throw new IOException("Unsupported snapshot format version " + version);
+                }
+                long takenAt = buffer.getLong();
+                String watermark = getString(buffer);
+                SlotStatus[] statuses = readNames(buffer, SlotStatus.class);
+                SizeClass[] sizes = readNames(buffer, SizeClass.class);
+
+                int count = buffer.getInt();
+                List<ParkingSlot> slots = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    ParkingSlot slot = new ParkingSlot();
+                    slot.setId(getString(buffer));
+                    slot.setSlotNumber(getString(buffer));
+                    slot.setLot(getString(buffer));
+                    slot.setStatus(constant(statuses, buffer.get()));
+                    slot.setHourlyRate(buffer.getDouble());
+                    slot.setEvCharger(flag(buffer.get()));
+                    slot.setSize(constant(sizes, buffer.get()));
+                    boolean hasFloor = buffer.get() != 0;
+                    int floor = buffer.getInt();
+                    slot.setFloor(hasFloor ? floor : null);
+                    slot.setAccessible(flag(buffer.get()));
+                    slot.setUpdatedAt(getString(buffer));
+                    slots.add(slot);
+                }
+                if (buffer.hasRemaining()) {
+                    throw new IOException("Snapshot has " + buffer.remaining() + " unexpected trailing bytes");
+                }
+                return new Contents(takenAt, watermark, slots);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Snapshot is truncated");
+            }
+        }
+    }
+
+    private static int flag(Boolean value) {
+        return value == null ? -1 : value ? 1 : 0;
+    }
+
+    private static Boolean flag(byte value) {
+        return value < 0 ? null : value != 0;
+    }
+
+    private static <E extends Enum<E>> E constant(E[] table, byte index) {
+        return index >= 0 && index < table.length ? table[index] : null;
+    }
+
+    private static void writeNames(DataOutputStream out, Enum<?>[] constants) throws IOException {
+        out.writeByte(constants.length);
+        for (Enum<?> constant : constants) {
+            writeString(out, constant.name());
+        }
+    }
+
+    /**
+     * Constants by their index when written; null for names that no longer exist
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Enum<E>> E[] readNames(ByteBuffer buffer, Class<E> type) {
+        int count = buffer.get();
+        E[] table = (E[]) Array.newInstance(type, count);
+        for (int i = 0; i < count; i++) {
+            String name = getString(buffer);
+            for (E constant : type.getEnumConstants()) {
+                if (constant.name().equals(name)) {
+                    table[i] = constant;
+                }
+            }
+        }
+        return table;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,246 @@
+package com.parking.snapshot;
+
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.parking.model.ParkingSlot;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory copy of the slot fields the search and lot indexes are built from,
+ * so they do not each scan the slot collection.
+ *
+ * The first load after a restart maps the snapshot in app.snapshot.dir and
+ * reads only the slots updated since it was taken. Every later load catches
+ * up the same way from the newest updatedAt seen, re-reading
+ * app.snapshot.delta-overlap-ms before it for writes from instances with
+ * slightly different clocks or still in the write-behind queue. updatedAt
+ * does not show deletes: local ones are reported, and when the slot count
+ * differs, or every app.snapshot.id-scan-ms, the ids are scanned to drop any
+ * others. A snapshot is written every app.snapshot.interval-ms when something
+ * changed, and on shutdown, so a rolling restart reads almost nothing.
+ */
+@Service
+@Slf4j
+public class SlotStateStore {
+
+    private static final String SNAPSHOT_FILE = "slots.snapshot";
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.snapshot.dir:data/snapshot}")
+    private String snapshotDir;
+
+    @Value("${app.snapshot.delta-overlap-ms:5000}")
+    private long deltaOverlapMs;
+
+    @Value("${app.snapshot.id-scan-ms:600000}")
+    private long idScanMs;
+
+    // Slots by id; entries are replaced, never modified, as callers keep them
+    private Map<String, ParkingSlot> slots;
+
+    // Newest updatedAt among the slots
+    private String watermark;
+
+    private long idsScannedAt;
+
+    private boolean changedSinceSnapshot;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            mongoTemplate.indexOps(ParkingSlot.class).ensureIndex(new Index().on("updatedAt", Sort.Direction.ASC));
+        } catch (RuntimeException e) {
+            log.warn("Could not create index on parking_slots.updatedAt: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeSnapshot();
+    }
+
+    /**
+     * All slots with the indexed fields, current as of this call. The slots
+     * are shared with other callers and must not be modified.
+     */
+    public synchronized List<ParkingSlot> loadSlots() {
+        if (!enabled) {
+            return mongoTemplate.find(projected(new Query()), ParkingSlot.class);
+        }
+
+        if (slots == null) {
+            if (!warmStart()) {
+                fullLoad();
+            }
+        } else if (watermark == null) {
+            // Nothing to catch up from
+            fullLoad();
+        } else {
+            catchUp();
+        }
+        return new ArrayList<>(slots.values());
+    }
+
+    /**
+     * A slot was deleted on this instance
+     */
+    public synchronized void slotDeleted(String slotId) {
+        if (slots != null && slots.remove(slotId) != null) {
+            changedSinceSnapshot = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.snapshot.interval-ms:300000}", initialDelayString = "${app.snapshot.interval-ms:300000}")
+    public void scheduledSnapshot() {
+        writeSnapshot();
+    }
+
+    private boolean warmStart() {
+        Path file = snapshotFile();
+        long started = System.currentTimeMillis();
+        SlotSnapshotFile.Contents contents;
+        try {
+            contents = SlotSnapshotFile.read(file);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (Exception e) {
+            log.warn("Ignoring slot snapshot {}: {}", file, e.getMessage());
+            return false;
+        }
+
+        slots = new HashMap<>(contents.getSlots().size() * 2);
+        for (ParkingSlot slot : contents.getSlots()) {
+            slots.put(slot.getId(), slot);
+        }
+        watermark = contents.getWatermark();
+        if (watermark == null) {
+            fullLoad();
+            return true;
+        }
+        // Ids are always checked once after a restart, deletes are not in the delta
+        idsScannedAt = 0;
+        int updated = catchUp();
+        log.info("Loaded {} slots from snapshot taken at {} and {} changed since in {} ms", contents.getSlots().size(),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(contents.getTakenAt()), ZoneId.systemDefault()).format(formatter),
+                updated, System.currentTimeMillis() - started);
+        return true;
+    }
+
+    private void fullLoad() {
+        List<ParkingSlot> loaded = mongoTemplate.find(projected(new Query()), ParkingSlot.class);
+        slots = new HashMap<>(loaded.size() * 2);
+        watermark = null;
+        for (ParkingSlot slot : loaded) {
+            put(slot);
+        }
+        idsScannedAt = System.currentTimeMillis();
+        changedSinceSnapshot = true;
+    }
+
+    /**
+     * Read the slots updated since the watermark and drop deleted ones. Returns
+     * the number of slots read.
+     */
+    private int catchUp() {
+        String since = LocalDateTime.parse(watermark, formatter)
+                .minusNanos(deltaOverlapMs * 1_000_000L)
+                .format(formatter);
+        List<ParkingSlot> changed = mongoTemplate.find(
+                projected(Query.query(Criteria.where("updatedAt").gte(since))), ParkingSlot.class);
+        for (ParkingSlot slot : changed) {
+            if (!slot.equals(slots.get(slot.getId()))) {
+                put(slot);
+                changedSinceSnapshot = true;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - idsScannedAt >= idScanMs || mongoTemplate.estimatedCount(ParkingSlot.class) != slots.size()) {
+            dropDeleted();
+            idsScannedAt = now;
+        }
+        return changed.size();
+    }
+
+    private void dropDeleted() {
+        Query query = new Query();
+        query.fields().include("_id");
+        Set<String> ids = new HashSet<>();
+        for (ParkingSlot slot : mongoTemplate.find(query, ParkingSlot.class)) {
+            ids.add(slot.getId());
+        }
+        if (slots.keySet().retainAll(ids)) {
+            changedSinceSnapshot = true;
+        }
+    }
+
+    private void put(ParkingSlot slot) {
+        slots.put(slot.getId(), slot);
+        String updatedAt = slot.getUpdatedAt();
+        if (updatedAt != null && (watermark == null || updatedAt.compareTo(watermark) > 0)) {
+            watermark = updatedAt;
+        }
+    }
+
+    private synchronized void writeSnapshot() {
+        if (!enabled || slots == null || !changedSinceSnapshot) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            SlotSnapshotFile.write(snapshotFile(), started, watermark, slots.values());
+            changedSinceSnapshot = false;
+            log.debug("Wrote slot snapshot of {} slots in {} ms", slots.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.warn("Failed to write slot snapshot: {}", e.getMessage());
+        }
+    }
+
+    private Path snapshotFile() {
+        return Paths.get(snapshotDir).resolve(SNAPSHOT_FILE);
+    }
+
+    private static Query projected(Query query) {
+        query.fields().include("slotNumber").include("lot").include("status").include("hourlyRate")
+                .include("evCharger").include("size").include("floor").include("accessible").include("updatedAt");
+        return query;
+    }
+}
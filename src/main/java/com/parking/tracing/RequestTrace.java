@@ -0,0 +1,37 @@
+package com.parking.tracing;
+
+import java.util.Arrays;
+
+/**
+ * Span totals of the request running on a thread. One instance per thread is
+ * reused for every request it serves, so tracing allocates nothing per request.
+ */
+final class RequestTrace {
+
+    static final int KINDS = SpanKind.values().length;
+
+    boolean active;
+    long startNanos;
+    long handlerStartNanos;
+    final long[] spanNanos = new long[KINDS];
+    final long[] spanMaxNanos = new long[KINDS];
+    final int[] spanCounts = new int[KINDS];
+
+    void begin() {
+        active = true;
+        startNanos = System.nanoTime();
+        handlerStartNanos = 0;
+        Arrays.fill(spanNanos, 0L);
+        Arrays.fill(spanMaxNanos, 0L);
+        Arrays.fill(spanCounts, 0);
+    }
+
+    void add(SpanKind kind, long nanos) {
+        int index = kind.ordinal();
+        spanNanos[index] += nanos;
+        spanCounts[index]++;
+        if (nanos > spanMaxNanos[index]) {
+            spanMaxNanos[index] = nanos;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.parking.tracing;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.parking.dto.SlowRequest;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Always-on request tracing.
+ *
+ * {@link TracingFilter} starts a trace when a request comes in and publishes
+ * it to the ring when it leaves. In between, instrumented code records spans
+ * with {@link #start()} and {@link #record}, which only add to the current
+ * thread's trace and do nothing outside a request. Work handed to other
+ * threads (async handlers, fan-out queries, the write-behind writer) is not
+ * attributed to the request.
+ */
+@Service
+public class RequestTracer {
+
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Only request threads get a trace, so other threads recording spans cost nothing
+    private static final ThreadLocal<RequestTrace> TRACES = new ThreadLocal<>();
+
+    @Value("${app.tracing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.tracing.buffer-size:8192}")
+    private int bufferSize;
+
+    private TraceRing ring;
+
+    @PostConstruct
+    public void init() {
+        ring = new TraceRing(bufferSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void begin() {
+        RequestTrace trace = TRACES.get();
+        if (trace == null) {
+            trace = new RequestTrace();
+            TRACES.set(trace);
+        }
+        trace.begin();
+    }
+
+    void end(String method, String uri, int status) {
+        RequestTrace trace = TRACES.get();
+        if (trace != null && trace.active) {
+            trace.active = false;
+            ring.publish(trace, System.nanoTime() - trace.startNanos, System.currentTimeMillis(), method, uri, status);
+        }
+    }
+
+    void beginHandler() {
+        RequestTrace trace = TRACES.get();
+        if (trace != null && trace.active) {
+            trace.handlerStartNanos = System.nanoTime();
+        }
+    }
+
+    void endHandler() {
+        RequestTrace trace = TRACES.get();
+        if (trace != null && trace.active && trace.handlerStartNanos != 0) {
+            trace.add(SpanKind.HANDLER, System.nanoTime() - trace.handlerStartNanos);
+            trace.handlerStartNanos = 0;
+        }
+    }
+
+    /**
+     * Start time for a span, passed back to {@link #record}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void record(SpanKind kind, long startNanos) {
+        recordNanos(kind, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record a span whose duration was measured elsewhere, e.g. by the Mongo driver
+     */
+    public void recordNanos(SpanKind kind, long nanos) {
+        RequestTrace trace = TRACES.get();
+        if (trace != null && trace.active) {
+            trace.add(kind, nanos);
+        }
+    }
+
+    /**
+     * The slowest requests that ended in the last given minutes, slowest first
+     */
+    public List<SlowRequest> getSlowest(int limit, int minutes) {
+        long since = System.currentTimeMillis() - minutes * 60_000L;
+        return ring.snapshot(since).stream()
+                .sorted(Comparator.comparingLong((TraceRing.Slot slot) -> slot.totalNanos).reversed())
+                .limit(limit)
+                .map(RequestTracer::toSlowRequest)
+                .collect(Collectors.toList());
+    }
+
+    private static SlowRequest toSlowRequest(TraceRing.Slot slot) {
+        List<SlowRequest.Span> spans = new ArrayList<>();
+        for (SpanKind kind : SpanKind.values()) {
+            int index = kind.ordinal();
+            if (slot.spanCounts[index] > 0) {
+                spans.add(new SlowRequest.Span(kind.name(), slot.spanCounts[index],
+                        toMillis(slot.spanNanos[index]), toMillis(slot.spanMaxNanos[index])));
+            }
+        }
+        String endedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(slot.endedAtMillis), ZoneId.systemDefault()).format(formatter);
+        return new SlowRequest(slot.method, slot.uri, slot.status, endedAt, toMillis(slot.totalNanos), spans);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
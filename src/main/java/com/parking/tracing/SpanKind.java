@@ -0,0 +1,13 @@
+package com.parking.tracing;
+
+/**
+ * What a span measured. HANDLER covers the controller call including the
+ * Mongo, serialization and password hashing spans it triggers.
+ */
+public enum SpanKind {
+    AUTH_FILTER,
+    HANDLER,
+    MONGO,
+    SERIALIZATION,
+    PASSWORD_HASH
+}
@@ -0,0 +1,96 @@
+package com.parking.tracing;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size ring of finished requests, overwritten oldest first.
+ *
+ * Writers claim the next position with one getAndIncrement and copy the
+ * trace into the preallocated slot under a per-slot sequence lock: the
+ * version is odd while a write is in progress. A writer that finds its slot
+ * still being written (the ring lapped a stalled writer) drops its record
+ * rather than wait. Readers copy a slot and keep it only if the version
+ * was even and unchanged across the copy.
+ */
+final class TraceRing {
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    TraceRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    void publish(RequestTrace trace, long totalNanos, long endedAtMillis, String method, String uri, int status) {
+        Slot slot = slots[(int) (next.getAndIncrement() & mask)];
+        long version = slot.version.get();
+        if ((version & 1) != 0 || !slot.version.compareAndSet(version, version + 1)) {
+            return;
+        }
+
+        slot.endedAtMillis = endedAtMillis;
+        slot.totalNanos = totalNanos;
+        slot.method = method;
+        slot.uri = uri;
+        slot.status = status;
+        System.arraycopy(trace.spanNanos, 0, slot.spanNanos, 0, RequestTrace.KINDS);
+        System.arraycopy(trace.spanMaxNanos, 0, slot.spanMaxNanos, 0, RequestTrace.KINDS);
+        System.arraycopy(trace.spanCounts, 0, slot.spanCounts, 0, RequestTrace.KINDS);
+
+        slot.version.set(version + 2);
+    }
+
+    /**
+     * Consistent copies of the requests that ended at or after the given time
+     */
+    List<Slot> snapshot(long sinceMillis) {
+        List<Slot> copies = new ArrayList<>();
+        for (Slot slot : slots) {
+            long before = slot.version.get();
+            if (before == 0 || (before & 1) != 0 || slot.endedAtMillis < sinceMillis) {
+                continue;
+            }
+            Slot copy = slot.copy();
+            // Keep the field reads above from moving past the second version read
+            VarHandle.acquireFence();
+            if (slot.version.get() == before) {
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
+    static final class Slot {
+        private final AtomicLong version = new AtomicLong();
+        long endedAtMillis;
+        long totalNanos;
+        String method;
+        String uri;
+        int status;
+        final long[] spanNanos = new long[RequestTrace.KINDS];
+        final long[] spanMaxNanos = new long[RequestTrace.KINDS];
+        final int[] spanCounts = new int[RequestTrace.KINDS];
+
+        private Slot copy() {
+            Slot copy = new Slot();
+            copy.endedAtMillis = endedAtMillis;
+            copy.totalNanos = totalNanos;
+            copy.method = method;
+            copy.uri = uri;
+            copy.status = status;
+            System.arraycopy(spanNanos, 0, copy.spanNanos, 0, RequestTrace.KINDS);
+            System.arraycopy(spanMaxNanos, 0, copy.spanMaxNanos, 0, RequestTrace.KINDS);
+            System.arraycopy(spanCounts, 0, copy.spanCounts, 0, RequestTrace.KINDS);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.parking.tracing;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Records PASSWORD_HASH spans around another encoder, BCrypt being the usual
+ * suspect when logins and registrations slow down
+ */
+public class TracedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final RequestTracer requestTracer;
+
+    public TracedPasswordEncoder(PasswordEncoder delegate, RequestTracer requestTracer) {
+        this.delegate = delegate;
+        this.requestTracer = requestTracer;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        long start = requestTracer.start();
+        try {
+            return delegate.encode(rawPassword);
+        } finally {
+            requestTracer.record(SpanKind.PASSWORD_HASH, start);
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        long start = requestTracer.start();
+        try {
+            return delegate.matches(rawPassword, encodedPassword);
+        } finally {
+            requestTracer.record(SpanKind.PASSWORD_HASH, start);
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,70 @@
+package com.parking.tracing;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Hooks the tracer into Spring MVC, the Mongo driver and Jackson. Mongo spans
+ * come from a command listener, so every repository and template call is
+ * covered with the driver's own timing.
+ */
+@Configuration
+public class TracingConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private RequestTracer requestTracer;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TracingInterceptor(requestTracer));
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer tracingCommandListener() {
+        CommandListener listener = new CommandListener() {
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+                requestTracer.recordNanos(SpanKind.MONGO, event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+
+            @Override
+            public void commandFailed(CommandFailedEvent event) {
+                requestTracer.recordNanos(SpanKind.MONGO, event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+        };
+        return builder -> builder.addCommandListener(listener);
+    }
+
+    /**
+     * Takes the place of Boot's default JSON converter and times each response body
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                long start = requestTracer.start();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    requestTracer.record(SpanKind.SERIALIZATION, start);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package com.parking.tracing;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Outermost filter, so the traced time covers security and everything after it
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RequestTracer requestTracer;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!requestTracer.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        requestTracer.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            requestTracer.end(request.getMethod(), request.getRequestURI(), response.getStatus());
+        }
+    }
+}
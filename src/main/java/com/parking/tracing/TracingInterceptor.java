@@ -0,0 +1,29 @@
+package com.parking.tracing;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * HANDLER span from just before the controller runs until the response is written
+ */
+class TracingInterceptor implements HandlerInterceptor {
+
+    private final RequestTracer requestTracer;
+
+    TracingInterceptor(RequestTracer requestTracer) {
+        this.requestTracer = requestTracer;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        requestTracer.beginHandler();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        requestTracer.endHandler();
+    }
+}
@@ -5,9 +5,13 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
@@ -16,9 +20,14 @@ import com.parking.repository.UserRepository;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Makes sure the default admin user exists once the application is ready. It
+ * runs asynchronously after readiness so the blocking MongoDB calls and the
+ * BCrypt hash stay off the startup path.
+ */
 @Component
 @Slf4j
-public class AdminUserInitializer implements CommandLineRunner {
+public class AdminUserInitializer {
 
     @Autowired
     private UserRepository userRepository;
@@ -26,10 +35,20 @@ public class AdminUserInitializer implements CommandLineRunner {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    // Fixed id so instances starting together cannot create two admin users
+    private static final String ADMIN_ID = "default-admin";
+    
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
-    @Override
-    public void run(String... args) throws Exception {
+    private final AtomicBoolean initialized = new AtomicBoolean();
+    
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        if (!initialized.compareAndSet(false, true)) {
+            return;
+        }
+        
         // Check if admin user exists
         Optional<User> adminUser = userRepository.findByUsername("admin");
         
@@ -52,6 +71,7 @@ public class AdminUserInitializer implements CommandLineRunner {
     
     private void createAdminUser() {
         User admin = new User();
+        admin.setId(ADMIN_ID);
         admin.setUsername("admin");
         admin.setEmail("admin@parking.com");
         admin.setPassword(passwordEncoder.encode("admin123"));
@@ -66,7 +86,11 @@ public class AdminUserInitializer implements CommandLineRunner {
         admin.setCreatedAt(now.format(DATE_FORMATTER));
         admin.setUpdatedAt(now.format(DATE_FORMATTER));
         
-        userRepository.save(admin);
-        log.info("Default admin user created successfully.");
+        try {
+            userRepository.insert(admin);
+            log.info("Default admin user created successfully.");
+        } catch (DuplicateKeyException e) {
+            log.info("Default admin user was created by another instance.");
+        }
     }
 }
\ No newline at end of file
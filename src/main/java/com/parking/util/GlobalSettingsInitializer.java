@@ -1,40 +1,47 @@
 package com.parking.util;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.core.annotation.Order;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
-import com.parking.model.GlobalSettings;
 import com.parking.repository.GlobalSettingsRepository;
+import com.parking.service.GlobalSettingsService;
 
+/**
+ * Creates the default global settings once the application is ready. It runs
+ * asynchronously so a slow MongoDB does not hold the instance out of rotation;
+ * until it finishes, GlobalSettingsService creates the same defaults on demand.
+ */
 @Component
-@Order(2) // Run after AdminUserInitializer
-public class GlobalSettingsInitializer implements CommandLineRunner {
+public class GlobalSettingsInitializer {
 
     @Autowired
     private GlobalSettingsRepository globalSettingsRepository;
     
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    @Autowired
+    private GlobalSettingsService globalSettingsService;
+    
+    private final AtomicBoolean initialized = new AtomicBoolean();
 
-    @Override
-    public void run(String... args) throws Exception {
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        if (!initialized.compareAndSet(false, true)) {
+            return;
+        }
+        
         // Check if global settings already exist
         if (globalSettingsRepository.findFirstBy() == null) {
             System.out.println("Initializing global settings...");
             
-            // Create default global settings
-            GlobalSettings settings = new GlobalSettings();
-            settings.setDefaultPenaltyAmount(50.0);
-            settings.setDefaultHourlyRate(10.0);
-            settings.setUpdatedAt(LocalDateTime.now().format(formatter));
-            
-            globalSettingsRepository.save(settings);
+            // Defaults come from GlobalSettings (50.0 penalty, 10.0 hourly rate)
+            globalSettingsService.createDefaultSettings();
             
             System.out.println("Global settings initialized successfully.");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,200 @@
+package com.parking.journal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.parking.journal.JournalEvent.EventType;
+
+class BookingJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<BookingJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() throws InterruptedException {
+        for (BookingJournal journal : opened) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void eventCodecRoundTrips() {
+        JournalEvent event = new JournalEvent(EventType.WRITE_BATCH, 42L, 1_700_000_000_000L,
+                "slot-\u00e9\u4e2d", null, "", new byte[] { 0, -1, 127 });
+
+        JournalEvent decoded = JournalEvent.decode(ByteBuffer.wrap(event.encode()));
+
+        assertEquals(EventType.WRITE_BATCH, decoded.getType());
+        assertEquals(42L, decoded.getSequence());
+        assertEquals(1_700_000_000_000L, decoded.getTimestamp());
+        assertEquals("slot-\u00e9\u4e2d", decoded.getSlotId());
+        assertNull(decoded.getUserId());
+        assertEquals("", decoded.getBookingId());
+        assertArrayEquals(new byte[] { 0, -1, 127 }, decoded.getPayload());
+
+        JournalEvent empty = JournalEvent.decode(ByteBuffer.wrap(JournalEvent.of(EventType.SLOT_DELETED, null, null, null).encode()));
+        assertNull(empty.getSlotId());
+        assertNull(empty.getPayload());
+    }
+
+    @Test
+    void replaysAfterReopenAndContinuesTheSequence() throws Exception {
+        BookingJournal journal = open(1);
+        journal.append(JournalEvent.of(EventType.SLOT_BOOKED, "s1", "u1", null));
+        journal.append(JournalEvent.of(EventType.BOOKING_CREATED, "s1", "u1", "b1"));
+        journal.append(JournalEvent.of(EventType.SLOT_BOOKED, "s2", "u2", null));
+        journal.append(JournalEvent.of(EventType.SLOT_RELEASED, "s2", null, null));
+        journal.close();
+
+        BookingJournal reopened = open(1);
+        List<JournalEvent> events = replay(reopened);
+        assertEquals(4, events.size());
+        assertEquals(EventType.BOOKING_CREATED, events.get(1).getType());
+        assertEquals("b1", events.get(1).getBookingId());
+
+        Map<String, Occupant> occupancy = reopened.getOccupancy();
+        assertEquals(1, occupancy.size());
+        assertEquals("u1", occupancy.get("s1").getUserId());
+        assertEquals("b1", occupancy.get("s1").getBookingId());
+
+        assertEquals(5, reopened.append(JournalEvent.of(EventType.SLOT_DELETED, "s1", null, null)));
+    }
+
+    @Test
+    void rotatesFullSegments() throws Exception {
+        BookingJournal journal = open(1);
+        for (int i = 0; i < 30; i++) {
+            journal.append(payloadEvent(100 * 1024));
+        }
+        journal.close();
+
+        assertTrue(segments().size() > 1);
+
+        BookingJournal reopened = open(1);
+        List<JournalEvent> events = replay(reopened);
+        assertEquals(30, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).getSequence());
+            assertEquals(100 * 1024, events.get(i).getPayload().length);
+        }
+        assertEquals(31, reopened.append(payloadEvent(10)));
+    }
+
+    @Test
+    void stopsAtARecordWithABadChecksum() throws Exception {
+        JournalEvent first = JournalEvent.of(EventType.SLOT_BOOKED, "s1", "u1", null);
+        BookingJournal journal = open(1);
+        journal.append(first);
+        journal.append(JournalEvent.of(EventType.SLOT_BOOKED, "s2", "u2", null));
+        journal.append(JournalEvent.of(EventType.SLOT_BOOKED, "s3", "u3", null));
+        journal.close();
+
+        // Flip a byte in the body of the second record
+        int second = recordSize(first);
+        flipByte(segments().get(0), second + 8 + 5);
+
+        BookingJournal reopened = open(1);
+        List<JournalEvent> events = replay(reopened);
+        assertEquals(1, events.size());
+        assertEquals("s1", events.get(0).getSlotId());
+
+        // Appends overwrite the damaged tail and the third record is not resurrected
+        assertEquals(2, reopened.append(JournalEvent.of(EventType.SLOT_BOOKED, "s9", "u9", null)));
+        reopened.close();
+        List<JournalEvent> after = replay(open(1));
+        assertEquals(2, after.size());
+        assertEquals("s9", after.get(1).getSlotId());
+    }
+
+    @Test
+    void stopsAtARecordLongerThanTheSegment() throws Exception {
+        JournalEvent first = JournalEvent.of(EventType.SLOT_BOOKED, "s1", "u1", null);
+        BookingJournal journal = open(1);
+        journal.append(first);
+        journal.append(JournalEvent.of(EventType.SLOT_BOOKED, "s2", "u2", null));
+        journal.close();
+
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), recordSize(first));
+        }
+
+        assertEquals(1, replay(open(1)).size());
+    }
+
+    @Test
+    void rejectsARecordLargerThanASegment() throws Exception {
+        BookingJournal journal = open(1);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> journal.append(payloadEvent(2 * 1024 * 1024)));
+        assertTrue(e.getMessage().contains("does not fit"));
+
+        // Nothing was written and no sequence number was used
+        assertEquals(1, journal.append(payloadEvent(10)));
+        assertEquals(1, segments().size());
+        assertEquals(1, replay(journal).size());
+    }
+
+    private BookingJournal open(int segmentSizeMb) throws IOException {
+        BookingJournal journal = new BookingJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentSizeMb", segmentSizeMb);
+        ReflectionTestUtils.setField(journal, "fsyncIntervalMs", 1L);
+        journal.open();
+        opened.add(journal);
+        return journal;
+    }
+
+    private static List<JournalEvent> replay(BookingJournal journal) throws IOException {
+        List<JournalEvent> events = new ArrayList<>();
+        journal.replay(events::add);
+        return events;
+    }
+
+    private static JournalEvent payloadEvent(int size) {
+        JournalEvent event = JournalEvent.of(EventType.WRITE_BATCH, null, null, null);
+        event.setPayload(new byte[size]);
+        return event;
+    }
+
+    private static int recordSize(JournalEvent event) {
+        return 8 + event.encode().length;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("journal-")).sorted().toList();
+        }
+    }
+
+    private static void flipByte(Path file, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, offset);
+            b.put(0, (byte) (b.get(0) ^ 0xFF));
+            b.position(0);
+            channel.write(b, offset);
+        }
+    }
+}
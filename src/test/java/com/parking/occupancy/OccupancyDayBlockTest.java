@@ -0,0 +1,130 @@
+package com.parking.occupancy;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OccupancyDayBlockTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsMinutesAndSlotHours() throws IOException {
+        int[] minutes = new int[OccupancyDayBlock.MINUTES_PER_DAY];
+        for (int minute = 0; minute < minutes.length; minute++) {
+            minutes[minute] = minute % 97 == 0 ? -1 : (minute * 31) % 500;
+        }
+        // Extremes the zigzag deltas must survive
+        minutes[10] = Integer.MAX_VALUE;
+        minutes[11] = 0;
+        minutes[12] = Integer.MAX_VALUE;
+
+        Map<String, int[]> slotHours = new HashMap<>();
+        for (int slot = 0; slot < 50; slot++) {
+            int[] hours = new int[OccupancyDayBlock.HOURS_PER_DAY];
+            for (int hour = 0; hour < hours.length; hour++) {
+                hours[hour] = (slot + hour) % 61;
+            }
+            slotHours.put("slot-" + slot, hours);
+        }
+
+        Path path = dir.resolve("day.bin");
+        new OccupancyDayBlock(19_723L, minutes, slotHours).write(path);
+        OccupancyDayBlock read = OccupancyDayBlock.read(path);
+
+        assertEquals(19_723L, read.epochDay);
+        assertArrayEquals(minutes, read.minutes);
+        assertEquals(slotHours.keySet(), read.slotHours.keySet());
+        for (Map.Entry<String, int[]> entry : slotHours.entrySet()) {
+            assertArrayEquals(entry.getValue(), read.slotHours.get(entry.getKey()));
+        }
+        assertFalse(Files.exists(dir.resolve("day.bin.tmp")));
+    }
+
+    @Test
+    void storesAQuietDayCompactly() throws IOException {
+        int[] minutes = new int[OccupancyDayBlock.MINUTES_PER_DAY];
+        Arrays.fill(minutes, 0, 480, -1);
+        Arrays.fill(minutes, 480, minutes.length, 42);
+
+        Path path = dir.resolve("day.bin");
+        new OccupancyDayBlock(1L, minutes, new HashMap<>()).write(path);
+
+        assertTrue(Files.size(path) < 100);
+        assertArrayEquals(minutes, OccupancyDayBlock.read(path).minutes);
+    }
+
+    @Test
+    void rejectsDataThatIsNotDeflated() throws IOException {
+        Path path = dir.resolve("day.bin");
+        Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+
+        assertThrows(IOException.class, () -> OccupancyDayBlock.read(path));
+    }
+
+    @Test
+    void rejectsATruncatedBlock() throws IOException {
+        Path path = dir.resolve("day.bin");
+        new OccupancyDayBlock(1L, new int[OccupancyDayBlock.MINUTES_PER_DAY], Map.of("s1", new int[24])).write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThrows(IOException.class, () -> OccupancyDayBlock.read(path));
+    }
+
+    @Test
+    void rejectsAnotherFormat() throws IOException {
+        Path path = dir.resolve("day.bin");
+        Files.write(path, deflate(out -> {
+            out.writeInt(0x12345678);
+            out.writeLong(1L);
+        }));
+
+        IOException e = assertThrows(IOException.class, () -> OccupancyDayBlock.read(path));
+        assertTrue(e.getMessage().contains("Not an occupancy block"));
+    }
+
+    @Test
+    void rejectsAnOverlongVarint() throws IOException {
+        Path path = dir.resolve("day.bin");
+        Files.write(path, deflate(out -> {
+            out.writeInt(0x4F434331);
+            out.writeLong(1L);
+            for (int i = 0; i < 6; i++) {
+                out.writeByte(0xFF);
+            }
+            out.writeByte(0x01);
+        }));
+
+        IOException e = assertThrows(IOException.class, () -> OccupancyDayBlock.read(path));
+        assertTrue(e.getMessage().contains("Malformed varint"));
+    }
+
+    private interface BlockWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] deflate(BlockWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            writer.write(out);
+        }
+        return bytes.toByteArray();
+    }
+}
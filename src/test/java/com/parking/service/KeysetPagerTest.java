@@ -0,0 +1,237 @@
+package com.parking.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.parking.dto.ListOptions;
+import com.parking.dto.ListPage;
+import com.parking.model.Booking;
+import com.parking.model.User;
+
+class KeysetPagerTest {
+
+    private final FakeMongo mongo = new FakeMongo();
+    private final KeysetPager pager = new KeysetPager();
+
+    KeysetPagerTest() {
+        ReflectionTestUtils.setField(pager, "mongoTemplate", mongo);
+        ReflectionTestUtils.setField(pager, "defaultLimit", 100);
+        ReflectionTestUtils.setField(pager, "maxLimit", 1000);
+    }
+
+    @Test
+    void crossesFromTheHotToTheArchiveCollection() {
+        // Archived bookings are older, so their ids sort before every hot one
+        mongo.add("bookings", booking(4, "u1"), booking(5, "u1"), booking(6, "u1"), booking(7, "u2"));
+        mongo.add("bookings_archive", booking(1, "u1"), booking(2, "u2"), booking(3, "u1"));
+        Criteria mine = Criteria.where("userId").is("u1");
+
+        List<List<String>> pages = pages(Booking.class, mine, 2, "bookings", "bookings_archive");
+        assertEquals(List.of(List.of(oid(4), oid(5)), List.of(oid(6), oid(1)), List.of(oid(3))), pages);
+
+        // A page that ends exactly with the hot collection starts the next one at the top of the archive
+        ListPage first = pager.find(Booking.class, mine, new ListOptions(3, null, null), "bookings", "bookings_archive");
+        assertEquals(List.of(oid(4), oid(5), oid(6)), ids(first));
+        assertEquals(cursor("1|"), first.getNextCursor());
+        ListPage second = pager.find(Booking.class, mine, new ListOptions(3, first.getNextCursor(), null), "bookings", "bookings_archive");
+        assertEquals(List.of(oid(1), oid(3)), ids(second));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void continuesFromStringIdsToObjectIds() {
+        mongo.add("users", user(new ObjectId(oid(2)), "b"), user("default-admin", "admin"), user(new ObjectId(oid(1)), "a"),
+                user("system", "system"), user(new ObjectId(oid(3)), "c"));
+
+        List<List<String>> pages = pages(User.class, null, 2, "users");
+        // Strings sort first; the page after "system" still finds every ObjectId
+        assertEquals(List.of(List.of("default-admin", "system"), List.of(oid(1), oid(2)), List.of(oid(3))), pages);
+
+        ListPage projected = pager.find(User.class, null, new ListOptions(3, null, "username"));
+        Document item = (Document) projected.getItems().get(2);
+        assertEquals(oid(1), item.get("id"));
+        assertEquals("a", item.get("username"));
+        assertNull(item.get("_id"));
+        assertNull(item.get("roles"));
+    }
+
+    @Test
+    void rejectsInvalidCursors() {
+        mongo.add("bookings", booking(1, "u1"));
+
+        for (String invalid : List.of("not a cursor!", cursor("x|"), cursor("-1|"), cursor("1|"), cursor("0|o|nothex"))) {
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> pager.find(Booking.class, null, new ListOptions(10, invalid, null), "bookings"));
+            assertEquals("Invalid cursor", e.getMessage());
+        }
+
+        // The archive index is only valid on a listing that includes the archive
+        assertNotNull(pager.find(Booking.class, null, new ListOptions(10, cursor("1|"), null), "bookings", "bookings_archive"));
+    }
+
+    /**
+     * Ids of every page, following the cursors to the end
+     */
+    private List<List<String>> pages(Class<?> entityClass, Criteria criteria, int limit, String... collections) {
+        List<List<String>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            ListPage page = pager.find(entityClass, criteria, new ListOptions(limit, cursor, null), collections);
+            pages.add(ids(page));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return pages;
+    }
+
+    private static List<String> ids(ListPage page) {
+        List<String> ids = new ArrayList<>();
+        for (Object item : page.getItems()) {
+            if (item instanceof Booking) {
+                ids.add(((Booking) item).getId());
+            } else if (item instanceof User) {
+                ids.add(((User) item).getId());
+            }
+        }
+        return ids;
+    }
+
+    private static String oid(int n) {
+        return String.format("%024x", n);
+    }
+
+    private static String cursor(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Document booking(int id, String userId) {
+        return new Document("_id", new ObjectId(oid(id))).append("userId", userId);
+    }
+
+    private static Document user(Object id, String username) {
+        return new Document("_id", id).append("username", username).append("roles", List.of("USER"));
+    }
+
+    /**
+     * Collections kept in lists behind a MongoTemplate whose find understands
+     * the filters, _id order and projections the pager builds. Like Mongo, $gt
+     * only matches values of the same BSON type.
+     */
+    private static final class FakeMongo extends MongoTemplate {
+        private final Map<String, List<Document>> collections = new HashMap<>();
+
+        FakeMongo() {
+            super(factory(), converter());
+        }
+
+        void add(String collection, Document... documents) {
+            collections.computeIfAbsent(collection, c -> new ArrayList<>()).addAll(List.of(documents));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> find(Query query, Class<T> entityClass, String collectionName) {
+            Document fields = query.getFieldsObject();
+            List<Document> found = new ArrayList<>();
+            for (Document document : collections.getOrDefault(collectionName, List.of())) {
+                if (matches(document, query.getQueryObject())) {
+                    found.add(fields.isEmpty() ? document : project(document, fields));
+                }
+            }
+            found.sort(Comparator.comparing((Document document) -> typeOrder(document.get("_id")))
+                    .thenComparing(document -> document.get("_id"), FakeMongo::compare));
+            return (List<T>) found.subList(0, Math.min(found.size(), query.getLimit()));
+        }
+
+        private static boolean matches(Document document, Document filter) {
+            for (Map.Entry<String, Object> entry : filter.entrySet()) {
+                if (entry.getKey().equals("$or")) {
+                    if (((Collection<?>) entry.getValue()).stream().noneMatch(branch -> matches(document, (Document) branch))) {
+                        return false;
+                    }
+                } else if (!matches(document.get(entry.getKey()), entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean matches(Object value, Object condition) {
+            if (!(condition instanceof Document)) {
+                return condition.equals(value);
+            }
+            for (Map.Entry<String, Object> operator : ((Document) condition).entrySet()) {
+                Object operand = operator.getValue();
+                boolean match = switch (operator.getKey()) {
+                    case "$gt" -> typeOrder(value) == typeOrder(operand) && compare(value, operand) > 0;
+                    case "$type" -> operand instanceof Collection
+                            ? ((Collection<?>) operand).contains(typeOrder(value))
+                            : operand.equals(typeOrder(value));
+                    default -> throw new UnsupportedOperationException(operator.getKey());
+                };
+                if (!match) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Document project(Document document, Document fields) {
+            Document projected = new Document("_id", document.get("_id"));
+            fields.keySet().forEach(field -> projected.put(field, document.get(field)));
+            return projected;
+        }
+
+        /**
+         * BSON type number, which is also how Mongo orders values of different types
+         */
+        private static int typeOrder(Object value) {
+            return value instanceof ObjectId ? 7 : 2;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private static int compare(Object a, Object b) {
+            return ((Comparable) a).compareTo(b);
+        }
+
+        private static MongoDatabaseFactory factory() {
+            return (MongoDatabaseFactory) Proxy.newProxyInstance(KeysetPagerTest.class.getClassLoader(),
+                    new Class<?>[] { MongoDatabaseFactory.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("getExceptionTranslator")) {
+                            return new MongoExceptionTranslator();
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private static MappingMongoConverter converter() {
+            MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+            converter.afterPropertiesSet();
+            return converter;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.parking.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.parking.dto.SingleFlightStats;
+
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void joinsALoadInFlight() throws Exception {
+        SingleFlight<Object> group = new SingleFlight<>("test", 60_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Object value = new Object();
+
+        Future<Object> first = executor.submit(() -> group.get("k", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return value;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Object> second = executor.submit(() -> group.get("k", () -> {
+            calls.incrementAndGet();
+            return new Object();
+        }));
+        awaitUntil(() -> group.getStats().getJoinedInFlight() == 1);
+        release.countDown();
+
+        assertSame(value, first.get(5, TimeUnit.SECONDS));
+        assertSame(value, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        SingleFlightStats stats = group.getStats();
+        assertEquals(2, stats.getRequests());
+        assertEquals(1, stats.getLoads());
+        assertEquals(0.5, stats.getCoalescingRatio());
+    }
+
+    @Test
+    void servesWithinTheTtlAndLoadsAgainAfterIt() throws InterruptedException {
+        SingleFlight<Object> group = new SingleFlight<>("test", 30);
+        AtomicInteger calls = new AtomicInteger();
+
+        Object value = group.get("k", () -> calls.incrementAndGet());
+        assertSame(value, group.get("k", () -> calls.incrementAndGet()));
+        assertEquals(1, calls.get());
+        assertEquals(1, group.getStats().getServedFromTtl());
+
+        // Another key is another load
+        group.get("other", () -> calls.incrementAndGet());
+        assertEquals(2, calls.get());
+
+        Thread.sleep(60);
+        assertEquals(3, group.get("k", () -> calls.incrementAndGet()));
+        assertEquals(3, group.getStats().getLoads());
+    }
+
+    @Test
+    void sharesAFailedLoadButDoesNotCacheIt() throws Exception {
+        SingleFlight<Object> group = new SingleFlight<>("test", 60_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RuntimeException failure = new IllegalStateException("Mongo is down");
+
+        Future<Object> first = executor.submit(() -> group.get("k", () -> {
+            started.countDown();
+            await(release);
+            throw failure;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Object> second = executor.submit(() -> group.get("k", Object::new));
+        awaitUntil(() -> group.getStats().getJoinedInFlight() == 1);
+        release.countDown();
+
+        assertSame(failure, cause(first));
+        assertSame(failure, cause(second));
+
+        // The next caller within the TTL loads again
+        Object value = new Object();
+        assertSame(value, group.get("k", () -> value));
+        assertEquals(2, group.getStats().getLoads());
+    }
+
+    @Test
+    void startsOneLoadWhenCallersRaceForAnExpiredEntry() throws Exception {
+        SingleFlight<Object> group = new SingleFlight<>("test", 10);
+        group.get("k", Object::new);
+        Thread.sleep(40);
+
+        int callers = 8;
+        CyclicBarrier barrier = new CyclicBarrier(callers);
+        AtomicInteger calls = new AtomicInteger();
+        Object value = new Object();
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                barrier.await(5, TimeUnit.SECONDS);
+                // Every caller sees the expired entry, only one replaces it
+                return group.get("k", () -> {
+                    calls.incrementAndGet();
+                    sleep(100);
+                    return value;
+                });
+            }));
+        }
+
+        for (Future<Object> result : results) {
+            assertSame(value, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(2, group.getStats().getLoads());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static Throwable cause(Future<Object> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+}
@@ -0,0 +1,443 @@
+package com.parking.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BSONException;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.parking.journal.BookingJournal;
+import com.parking.model.ParkingSlot;
+import com.parking.model.ParkingSlot.SlotStatus;
+
+class WriteBehindServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final FakeMongo mongo = new FakeMongo();
+    private final List<BookingJournal> journals = new ArrayList<>();
+    private final List<WriteBehindService> services = new ArrayList<>();
+
+    @AfterEach
+    void stopAll() throws InterruptedException {
+        mongo.gate.countDown();
+        for (WriteBehindService service : services) {
+            service.stop();
+        }
+        for (BookingJournal journal : journals) {
+            journal.close();
+        }
+        // An interrupted durability wait leaves the flag set on purpose
+        Thread.interrupted();
+    }
+
+    @Test
+    void writesACommittedUnitAndRunsItsActions() throws IOException {
+        WriteBehindService service = start(1);
+        ParkingSlot slot = slot("A1");
+        List<String> actions = new CopyOnWriteArrayList<>();
+
+        service.atomically(() -> {
+            service.saveSlot(slot);
+            service.afterCommit(() -> actions.add("after"));
+            service.onRollback(() -> actions.add("rollback"));
+            return null;
+        });
+        service.flush();
+
+        assertEquals(List.of("after"), actions);
+        assertEquals("A1", mongo.slot(slot.getId()).getString("slotNumber"));
+        // Nothing was read first, so the whole document is written
+        assertTrue(mongo.models.get(0) instanceof ReplaceOneModel);
+    }
+
+    @Test
+    void nestedFailureRollsBackToItsSavepoint() throws IOException {
+        WriteBehindService service = start(1);
+        ParkingSlot first = slot("A1");
+        ParkingSlot second = slot("A2");
+        List<String> actions = new CopyOnWriteArrayList<>();
+
+        service.atomically(() -> {
+            service.saveSlot(first);
+            service.afterCommit(() -> actions.add("outer after"));
+            try {
+                service.atomically(() -> {
+                    ParkingSlot changed = copy(first);
+                    changed.setStatus(SlotStatus.OCCUPIED);
+                    service.saveSlot(changed);
+                    service.saveSlot(second);
+                    service.afterCommit(() -> actions.add("inner after"));
+                    service.onRollback(() -> actions.add("inner rollback"));
+                    throw new RuntimeException("inner failed");
+                });
+            } catch (RuntimeException e) {
+                // The outer unit carries on without the inner writes
+            }
+            assertEquals(SlotStatus.AVAILABLE, service.findSlot(first.getId(), Optional::empty).get().getStatus());
+            assertFalse(service.findSlot(second.getId(), Optional::empty).isPresent());
+            return null;
+        });
+        service.flush();
+
+        assertEquals(List.of("inner rollback", "outer after"), actions);
+        assertEquals("AVAILABLE", mongo.slot(first.getId()).getString("status"));
+        assertNull(mongo.slot(second.getId()));
+    }
+
+    @Test
+    void failedUnitWritesNothingAndRunsRollbackActions() throws IOException {
+        WriteBehindService service = start(1);
+        ParkingSlot slot = slot("A1");
+        List<String> actions = new CopyOnWriteArrayList<>();
+
+        assertThrows(IllegalStateException.class, () -> service.atomically(() -> {
+            service.saveSlot(slot);
+            service.afterCommit(() -> actions.add("after"));
+            service.onRollback(() -> actions.add("rollback"));
+            throw new IllegalStateException("failed");
+        }));
+        service.flush();
+
+        assertEquals(List.of("rollback"), actions);
+        assertFalse(service.findSlot(slot.getId(), Optional::empty).isPresent());
+        assertTrue(mongo.models.isEmpty());
+    }
+
+    @Test
+    void unitThatCannotBeJournaledIsRolledBack() throws IOException {
+        WriteBehindService service = start(1);
+        ParkingSlot slot = slot("A1");
+        // Larger than a 1 MB journal segment
+        slot.setLot("x".repeat(2 * 1024 * 1024));
+        List<String> actions = new CopyOnWriteArrayList<>();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.atomically(() -> {
+            service.saveSlot(slot);
+            service.afterCommit(() -> actions.add("after"));
+            service.onRollback(() -> actions.add("rollback"));
+            return null;
+        }));
+        assertTrue(e.getMessage().contains("does not fit"));
+        assertEquals(List.of("rollback"), actions);
+        assertFalse(service.findSlot(slot.getId(), Optional::empty).isPresent());
+
+        // The commit lock was given back
+        ParkingSlot next = slot("A2");
+        service.atomically(() -> service.saveSlot(next));
+        service.flush();
+        assertEquals("A2", mongo.slot(next.getId()).getString("slotNumber"));
+        assertNull(mongo.slot(slot.getId()));
+    }
+
+    @Test
+    void interruptedDurabilityWaitKeepsTheUnitCommitted() throws Exception {
+        WriteBehindService service = start(300);
+        ParkingSlot slot = slot("A1");
+        List<String> actions = new CopyOnWriteArrayList<>();
+        CountDownLatch afterCommit = new CountDownLatch(1);
+        mongo.closeGate();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.atomically(() -> {
+            service.saveSlot(slot);
+            service.afterCommit(() -> {
+                actions.add("after");
+                afterCommit.countDown();
+            });
+            service.onRollback(() -> actions.add("rollback"));
+            Thread.currentThread().interrupt();
+            return null;
+        }));
+        assertTrue(Thread.interrupted());
+        assertTrue(e.getMessage().contains("committed"));
+        assertTrue(actions.isEmpty());
+        // Still visible while it waits for the writer
+        assertTrue(service.findSlot(slot.getId(), Optional::empty).isPresent());
+
+        mongo.gate.countDown();
+        assertTrue(afterCommit.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("after"), actions);
+        assertEquals("A1", mongo.slot(slot.getId()).getString("slotNumber"));
+    }
+
+    @Test
+    void writesOnlyTheFieldsAUnitChanged() throws IOException {
+        WriteBehindService service = start(1);
+        ParkingSlot slot = slot("A1");
+        slot.setHourlyRate(2.0);
+        mongo.put(slot);
+
+        mongo.closeGate();
+        service.atomically(() -> {
+            ParkingSlot read = service.findSlot(slot.getId(), () -> mongo.load(slot.getId())).get();
+            read.setStatus(SlotStatus.OCCUPIED);
+            read.setBookedBy("u1");
+            return service.saveSlot(read);
+        });
+        // Written directly while the unit waits for the writer
+        mongo.slot(slot.getId()).put("hourlyRate", 5.0);
+        mongo.gate.countDown();
+        service.flush();
+
+        Document written = mongo.slot(slot.getId());
+        assertEquals("OCCUPIED", written.getString("status"));
+        assertEquals("u1", written.getString("bookedBy"));
+        assertEquals(5.0, written.getDouble("hourlyRate").doubleValue());
+        Document update = (Document) ((UpdateOneModel<Document>) mongo.models.get(0)).getUpdate();
+        assertEquals(Set.of("status", "bookedBy"), update.get("$set", Document.class).keySet());
+    }
+
+    @Test
+    void doesNotBringBackADocumentDeletedMeanwhile() throws IOException {
+        WriteBehindService service = start(1);
+        ParkingSlot slot = slot("A1");
+        mongo.put(slot);
+
+        mongo.closeGate();
+        service.atomically(() -> {
+            ParkingSlot read = service.findSlot(slot.getId(), () -> mongo.load(slot.getId())).get();
+            read.setStatus(SlotStatus.OCCUPIED);
+            return service.saveSlot(read);
+        });
+        mongo.collection("parking_slots").remove(new ObjectId(slot.getId()));
+        mongo.gate.countDown();
+        service.flush();
+
+        assertNull(mongo.slot(slot.getId()));
+    }
+
+    @Test
+    void movesRejectedWritesToTheDeadLetterFile() throws IOException {
+        WriteBehindService service = start(1);
+        ParkingSlot good = slot("A1");
+        ParkingSlot bad = slot("A2");
+        mongo.rejected.add(new ObjectId(bad.getId()));
+
+        service.atomically(() -> {
+            service.saveSlot(good);
+            return service.saveSlot(bad);
+        });
+        service.flush();
+
+        assertEquals("A1", mongo.slot(good.getId()).getString("slotNumber"));
+        assertNull(mongo.slot(bad.getId()));
+        List<String> letters = Files.readAllLines(dir.resolve("write-behind.dead-letters"), StandardCharsets.UTF_8);
+        assertEquals(1, letters.size());
+        Document letter = Document.parse(letters.get(0));
+        assertEquals("parking_slots", letter.getString("collection"));
+        assertEquals(new ObjectId(bad.getId()), letter.getObjectId("_id"));
+        assertEquals("A2", letter.get("write", Document.class).get("d", Document.class).getString("slotNumber"));
+    }
+
+    @Test
+    void replaysWriteBatchesPastTheCheckpoint() throws Exception {
+        WriteBehindService first = start(1);
+        ParkingSlot a = slot("A1");
+        ParkingSlot b = slot("B1");
+        first.atomically(() -> first.saveSlot(a));
+        first.flush();
+        first.atomically(() -> first.saveSlot(b));
+        first.atomically(() -> {
+            ParkingSlot read = first.findSlot(b.getId(), () -> mongo.load(b.getId())).get();
+            read.setStatus(SlotStatus.OCCUPIED);
+            return first.saveSlot(read);
+        });
+        first.flush();
+        stopAll();
+        services.clear();
+        journals.clear();
+
+        // As if the process died after writing only the first batch
+        Files.write(dir.resolve("write-behind.checkpoint"), "1".getBytes(StandardCharsets.UTF_8));
+        mongo.collections.clear();
+        mongo.models.clear();
+        start(1);
+
+        assertNull(mongo.slot(a.getId()));
+        assertEquals("OCCUPIED", mongo.slot(b.getId()).getString("status"));
+        assertEquals("B1", mongo.slot(b.getId()).getString("slotNumber"));
+        assertEquals("3", Files.readString(dir.resolve("write-behind.checkpoint")));
+    }
+
+    private WriteBehindService start(long fsyncIntervalMs) throws IOException {
+        BookingJournal journal = new BookingJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(journal, "fsyncIntervalMs", fsyncIntervalMs);
+        journal.open();
+        journals.add(journal);
+
+        WriteBehindService service = new WriteBehindService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongo.template);
+        ReflectionTestUtils.setField(service, "bookingJournal", journal);
+        ReflectionTestUtils.setField(service, "dataVersionService", new DataVersionService());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "retryBackoffMs", 1L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 2);
+        ReflectionTestUtils.setField(service, "journalDirectory", dir.toString());
+        service.start();
+        services.add(service);
+        return service;
+    }
+
+    private static ParkingSlot slot(String slotNumber) {
+        ParkingSlot slot = new ParkingSlot();
+        slot.setId(new ObjectId().toHexString());
+        slot.setSlotNumber(slotNumber);
+        slot.setStatus(SlotStatus.AVAILABLE);
+        slot.setUpdatedAt("2024-01-01 00:00:00");
+        return slot;
+    }
+
+    private static ParkingSlot copy(ParkingSlot slot) {
+        ParkingSlot copy = new ParkingSlot();
+        copy.setId(slot.getId());
+        copy.setSlotNumber(slot.getSlotNumber());
+        copy.setStatus(slot.getStatus());
+        copy.setUpdatedAt(slot.getUpdatedAt());
+        return copy;
+    }
+
+    /**
+     * Collections kept in maps behind a MongoTemplate whose getCollection
+     * answers bulkWrite, the only call write-behind makes
+     */
+    private static final class FakeMongo {
+        final Map<String, Map<Object, Document>> collections = new ConcurrentHashMap<>();
+        final List<WriteModel<Document>> models = new CopyOnWriteArrayList<>();
+        final Set<Object> rejected = ConcurrentHashMap.newKeySet();
+        // Writes wait on it while closed
+        volatile CountDownLatch gate = new CountDownLatch(0);
+        final MongoTemplate template;
+
+        FakeMongo() {
+            MongoDatabaseFactory factory = (MongoDatabaseFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { MongoDatabaseFactory.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("getExceptionTranslator")) {
+                            return new MongoExceptionTranslator();
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+            MongoMappingContext mappingContext = new MongoMappingContext();
+            MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+            converter.afterPropertiesSet();
+            template = new MongoTemplate(factory, converter) {
+                @Override
+                @SuppressWarnings("unchecked")
+                public MongoCollection<Document> getCollection(String name) {
+                    return (MongoCollection<Document>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                            new Class<?>[] { MongoCollection.class }, (proxy, method, args) -> {
+                                if (method.getName().equals("bulkWrite")) {
+                                    bulkWrite(name, (List<WriteModel<Document>>) args[0]);
+                                    return null;
+                                }
+                                throw new UnsupportedOperationException(method.getName());
+                            });
+                }
+            };
+        }
+
+        void closeGate() {
+            gate = new CountDownLatch(1);
+        }
+
+        Map<Object, Document> collection(String name) {
+            return collections.computeIfAbsent(name, c -> new ConcurrentHashMap<>());
+        }
+
+        Document slot(String id) {
+            return collection("parking_slots").get(new ObjectId(id));
+        }
+
+        void put(ParkingSlot slot) {
+            Document document = new Document();
+            template.getConverter().write(slot, document);
+            collection("parking_slots").put(document.get("_id"), document);
+        }
+
+        Optional<ParkingSlot> load(String id) {
+            return Optional.ofNullable(slot(id)).map(document -> template.getConverter().read(ParkingSlot.class, document));
+        }
+
+        private void bulkWrite(String name, List<WriteModel<Document>> batch) throws InterruptedException {
+            gate.await();
+            for (WriteModel<Document> model : batch) {
+                if (rejected.contains(idOf(model))) {
+                    throw new BSONException("Rejected " + idOf(model));
+                }
+            }
+            Map<Object, Document> collection = collection(name);
+            for (WriteModel<Document> model : batch) {
+                models.add(model);
+                Object id = idOf(model);
+                if (model instanceof DeleteOneModel) {
+                    collection.remove(id);
+                } else if (model instanceof ReplaceOneModel) {
+                    collection.put(id, new Document(((ReplaceOneModel<Document>) model).getReplacement()));
+                } else {
+                    Document update = (Document) ((UpdateOneModel<Document>) model).getUpdate();
+                    Document document = collection.get(id);
+                    if (document != null) {
+                        Document set = update.get("$set", Document.class);
+                        Document unset = update.get("$unset", Document.class);
+                        if (set != null) {
+                            document.putAll(set);
+                        }
+                        if (unset != null) {
+                            unset.keySet().forEach(document::remove);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static Object idOf(WriteModel<Document> model) {
+            Bson filter = model instanceof DeleteOneModel
+                    ? ((DeleteOneModel<Document>) model).getFilter()
+                    : model instanceof ReplaceOneModel
+                            ? ((ReplaceOneModel<Document>) model).getFilter()
+                            : ((UpdateOneModel<Document>) model).getFilter();
+            BsonValue id = filter.toBsonDocument().get("_id");
+            return id.isObjectId() ? id.asObjectId().getValue() : id.asString().getValue();
+        }
+    }
+}
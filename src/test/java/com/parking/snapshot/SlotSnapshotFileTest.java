@@ -0,0 +1,185 @@
+package com.parking.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.parking.model.ParkingSlot;
+import com.parking.model.ParkingSlot.SizeClass;
+import com.parking.model.ParkingSlot.SlotStatus;
+
+class SlotSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEveryField() throws IOException {
+        Path file = dir.resolve("slots.snapshot");
+        ParkingSlot full = slot("a1", SlotStatus.OCCUPIED);
+        full.setLot("North \u00c5");
+        full.setHourlyRate(12.5);
+        full.setEvCharger(true);
+        full.setSize(SizeClass.LARGE);
+        full.setFloor(-2);
+        full.setAccessible(false);
+        ParkingSlot sparse = slot("b2", null);
+
+        SlotSnapshotFile.write(file, 1_700_000_000_000L, "2024-01-02 03:04:05", List.of(full, sparse));
+        SlotSnapshotFile.Contents contents = SlotSnapshotFile.read(file);
+
+        assertEquals(1_700_000_000_000L, contents.getTakenAt());
+        assertEquals("2024-01-02 03:04:05", contents.getWatermark());
+        assertEquals(2, contents.getSlots().size());
+
+        ParkingSlot a = contents.getSlots().get(0);
+        assertEquals("a1", a.getId());
+        assertEquals("A1", a.getSlotNumber());
+        assertEquals("North \u00c5", a.getLot());
+        assertEquals(SlotStatus.OCCUPIED, a.getStatus());
+        assertEquals(12.5, a.getHourlyRate());
+        assertEquals(Boolean.TRUE, a.getEvCharger());
+        assertEquals(SizeClass.LARGE, a.getSize());
+        assertEquals(Integer.valueOf(-2), a.getFloor());
+        assertEquals(Boolean.FALSE, a.getAccessible());
+        assertEquals("2024-01-01 00:00:00", a.getUpdatedAt());
+
+        ParkingSlot b = contents.getSlots().get(1);
+        assertNull(b.getStatus());
+        assertNull(b.getLot());
+        assertNull(b.getEvCharger());
+        assertNull(b.getSize());
+        assertNull(b.getFloor());
+        assertNull(b.getAccessible());
+    }
+
+    @Test
+    void replacesAnEarlierSnapshot() throws IOException {
+        Path file = dir.resolve("slots.snapshot");
+        SlotSnapshotFile.write(file, 1L, null, List.of(slot("a1", SlotStatus.AVAILABLE)));
+        SlotSnapshotFile.write(file, 2L, null, List.of());
+
+        SlotSnapshotFile.Contents contents = SlotSnapshotFile.read(file);
+        assertEquals(2L, contents.getTakenAt());
+        assertNull(contents.getWatermark());
+        assertTrue(contents.getSlots().isEmpty());
+        assertFalse(Files.exists(dir.resolve("slots.snapshot.tmp")));
+    }
+
+    @Test
+    void mapsEnumsByNameAndDropsUnknownOnes() throws IOException {
+        Path file = written(slot("a1", SlotStatus.AVAILABLE), slot("b2", SlotStatus.OCCUPIED));
+        // As if OCCUPIED had since been removed from SlotStatus
+        rewriteBody(file, body -> replace(body, "OCCUPIED", "OCCUPIES"));
+
+        List<ParkingSlot> slots = SlotSnapshotFile.read(file).getSlots();
+        assertEquals(SlotStatus.AVAILABLE, slots.get(0).getStatus());
+        assertNull(slots.get(1).getStatus());
+    }
+
+    @Test
+    void rejectsAFlippedByte() throws IOException {
+        Path file = written(slot("a1", SlotStatus.AVAILABLE));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertFailure(file, "checksum");
+    }
+
+    @Test
+    void rejectsATruncatedFile() throws IOException {
+        Path file = written(slot("a1", SlotStatus.AVAILABLE));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertFailure(file, "checksum");
+
+        Files.write(file, new byte[4]);
+        assertFailure(file, "invalid size");
+    }
+
+    @Test
+    void rejectsABodyCutShortWithAMatchingChecksum() throws IOException {
+        Path file = written(slot("a1", SlotStatus.AVAILABLE));
+        rewriteBody(file, body -> Arrays.copyOf(body, body.length - 5));
+
+        assertFailure(file, "truncated");
+    }
+
+    @Test
+    void rejectsTrailingBytes() throws IOException {
+        Path file = written(slot("a1", SlotStatus.AVAILABLE));
+        rewriteBody(file, body -> Arrays.copyOf(body, body.length + 2));
+
+        assertFailure(file, "trailing bytes");
+    }
+
+    @Test
+    void rejectsAnotherFormat() throws IOException {
+        Path file = written(slot("a1", SlotStatus.AVAILABLE));
+        rewriteBody(file, body -> ByteBuffer.wrap(body).putInt(4, SlotSnapshotFile.FORMAT_VERSION + 1).array());
+        assertFailure(file, "format version");
+
+        rewriteBody(file, body -> ByteBuffer.wrap(body).putInt(0, 0x12345678).array());
+        assertFailure(file, "Not a slot snapshot");
+    }
+
+    private Path written(ParkingSlot... slots) throws IOException {
+        Path file = dir.resolve("slots.snapshot");
+        SlotSnapshotFile.write(file, 1L, "2024-01-01 00:00:00", List.of(slots));
+        return file;
+    }
+
+    private static ParkingSlot slot(String id, SlotStatus status) {
+        ParkingSlot slot = new ParkingSlot();
+        slot.setId(id);
+        slot.setSlotNumber(id.toUpperCase());
+        slot.setStatus(status);
+        slot.setUpdatedAt("2024-01-01 00:00:00");
+        return slot;
+    }
+
+    private static void assertFailure(Path file, String message) {
+        IOException e = assertThrows(IOException.class, () -> SlotSnapshotFile.read(file));
+        assertTrue(e.getMessage().contains(message));
+    }
+
+    /**
+     * Change the body and write a matching checksum, as a buggy or foreign writer would
+     */
+    private static void rewriteBody(Path file, UnaryOperator<byte[]> change) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        byte[] body = change.apply(Arrays.copyOf(bytes, bytes.length - 8));
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer out = ByteBuffer.allocate(body.length + 8);
+        out.put(body).putLong(crc.getValue());
+        Files.write(file, out.array());
+    }
+
+    private static byte[] replace(byte[] body, String from, String to) {
+        byte[] needle = from.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + needle.length <= body.length; i++) {
+            if (Arrays.equals(body, i, i + needle.length, needle, 0, needle.length)) {
+                System.arraycopy(to.getBytes(StandardCharsets.UTF_8), 0, body, i, needle.length);
+                return body;
+            }
+        }
+        throw new AssertionError(from + " not found");
+    }
+}